@@ -0,0 +1,70 @@
+package com.devebot.opflow;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * @author acegik
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpflowRestrictorBenchmark {
+    
+    private static class Chain extends OpflowRestrictable.Runner {
+        Chain() {
+            append(new OpflowRestrictor.Pause());
+            append(new OpflowRestrictor.Valve());
+            append(new OpflowRestrictor.OnOff(null));
+        }
+    }
+    
+    private final static Long RESULT = 0l;
+    
+    private final OpflowRestrictable.Action<Long> action = new OpflowRestrictable.Action<Long>() {
+        @Override
+        public Long process() throws Throwable {
+            return RESULT;
+        }
+    };
+    
+    private Chain chain;
+    
+    @Setup
+    public void setup() throws Throwable {
+        chain = new Chain();
+        // the pipeline is linked by the first call, the measured calls reuse it
+        chain.filter(action);
+    }
+    
+    @Benchmark
+    public Long direct() throws Throwable {
+        return action.process();
+    }
+    
+    @Benchmark
+    @Threads(1)
+    public Long filterSingleThread() throws Throwable {
+        return chain.filter(action);
+    }
+    
+    @Benchmark
+    @Threads(4)
+    public Long filterFourThreads() throws Throwable {
+        return chain.filter(action);
+    }
+}
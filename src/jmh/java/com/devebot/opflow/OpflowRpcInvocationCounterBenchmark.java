@@ -0,0 +1,73 @@
+package com.devebot.opflow;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * @author acegik
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpflowRpcInvocationCounterBenchmark {
+    
+    private OpflowRpcInvocationCounter counter;
+    
+    @Setup
+    public void setup() {
+        counter = new OpflowRpcInvocationCounter();
+    }
+    
+    @Benchmark
+    @Threads(1)
+    public void incrementSingleThread() {
+        counter.incRemoteAMQPSuccess();
+    }
+    
+    @Benchmark
+    @Threads(4)
+    public void incrementFourThreads() {
+        counter.incRemoteAMQPSuccess();
+    }
+    
+    @Benchmark
+    @Threads(4)
+    public void incrementMixedFourThreads() {
+        // the connectors count the different outcomes of the same invocations
+        counter.incPublishingOk();
+        counter.incRemoteAMQPSuccess();
+        counter.incRemoteHTTPTimeout();
+        counter.incRejectedRpc();
+    }
+    
+    @Benchmark
+    @Group("incrementWhileReading")
+    @GroupThreads(3)
+    public void writer() {
+        counter.incRemoteAMQPSuccess();
+    }
+    
+    @Benchmark
+    @Group("incrementWhileReading")
+    @GroupThreads(1)
+    public Map<String, Object> reader() {
+        return counter.toMap(false);
+    }
+}
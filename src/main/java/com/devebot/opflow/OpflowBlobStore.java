@@ -0,0 +1,14 @@
+package com.devebot.opflow;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ *
+ * @author acegik
+ */
+public interface OpflowBlobStore {
+    public String store(byte[] data) throws IOException;
+    public ByteBuffer load(String reference) throws IOException;
+    public void remove(String reference);
+}
@@ -219,6 +219,7 @@ public class OpflowCommander implements AutoCloseable {
 
                 restServer = new OpflowRestServer(connectors, infoCollector, taskSubmitter, OpflowObjectTree.buildMap(restServerCfg)
                         .put(OpflowConstant.COMPONENT_ID, componentId)
+                        .put(OpflowConstant.COMP_MEASURER, measurer)
                         .toMap());
             }
         } catch(OpflowBootstrapException exception) {
@@ -277,6 +278,9 @@ public class OpflowCommander implements AutoCloseable {
             if (restrictor != null) {
                 restrictor.unblock();
             }
+            if (rpcObserver != null) {
+                rpcObserver.serve();
+            }
             if (rpcWatcher != null) {
                 rpcWatcher.serve(); // Timer should be run after the unblock() call
             }
@@ -469,6 +473,7 @@ public class OpflowCommander implements AutoCloseable {
             @Override
             public void transform(Map<String, Object> opts) {
                 opts.put(OpflowConstant.COMPONENT_ID, componentId);
+                opts.put(OpflowConstant.PARAM_CONNECTOR_NAME, connectorName);
                 opts.put(OpflowConstant.OPFLOW_COMMON_STRICT, strictMode);
                 opts.put(OpflowConstant.COMP_REQ_EXTRACTOR, reqExtractor);
                 opts.put(OpflowConstant.COMP_RESTRICTOR, restrictor);
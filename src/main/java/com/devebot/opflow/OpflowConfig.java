@@ -235,6 +235,15 @@ public class OpflowConfig {
                     OpflowConstant.OPFLOW_PUBSUB_PREFETCH_COUNT,
                     OpflowConstant.OPFLOW_PUBSUB_REDELIVERED_LIMIT,
                     OpflowConstant.OPFLOW_PUBSUB_TRASH_NAME,
+                    OpflowConstant.OPFLOW_PUBSUB_RETRY_DELAY,
+                    OpflowConstant.OPFLOW_PUBSUB_RETRY_MAX_DELAY,
+                    OpflowConstant.OPFLOW_PUBSUB_LANE_COUNT,
+                    OpflowConstant.OPFLOW_PUBSUB_LANE_KEY,
+                    OpflowConstant.OPFLOW_PUBSUB_BATCH_SIZE,
+                    OpflowConstant.OPFLOW_PUBSUB_BATCH_LINGER,
+                    OpflowConstant.OPFLOW_PUBSUB_SHARD_COUNT,
+                    OpflowConstant.OPFLOW_PUBSUB_SHARD_KEY,
+                    OpflowConstant.OPFLOW_PUBSUB_SHARD_REBALANCE_INTERVAL,
                 });
 
                 Map<String, Object> opflowNode = getChildMapByPath(config, new String[] {OpflowConstant.FRAMEWORK_ID});
@@ -325,7 +334,22 @@ public class OpflowConfig {
                             OpflowConstant.OPFLOW_RESTRICT_PAUSE_TIMEOUT,
                             OpflowConstant.OPFLOW_RESTRICT_SEMAPHORE_ENABLED,
                             OpflowConstant.OPFLOW_RESTRICT_SEMAPHORE_PERMITS,
-                            OpflowConstant.OPFLOW_RESTRICT_SEMAPHORE_TIMEOUT
+                            OpflowConstant.OPFLOW_RESTRICT_SEMAPHORE_TIMEOUT,
+                            OpflowConstant.OPFLOW_RESTRICT_ADAPTIVE_ENABLED,
+                            OpflowConstant.OPFLOW_RESTRICT_ADAPTIVE_MIN_LIMIT,
+                            OpflowConstant.OPFLOW_RESTRICT_ADAPTIVE_INITIAL_LIMIT,
+                            OpflowConstant.OPFLOW_RESTRICT_RATE_ENABLED,
+                            OpflowConstant.OPFLOW_RESTRICT_RATE_POLICY,
+                            OpflowConstant.OPFLOW_RESTRICT_RATE_TIMEOUT,
+                            OpflowConstant.OPFLOW_RESTRICT_RATE_LIMITS,
+                            OpflowConstant.OPFLOW_RESTRICT_BULKHEAD_ENABLED,
+                            OpflowConstant.OPFLOW_RESTRICT_BULKHEAD_TIMEOUT,
+                            OpflowConstant.OPFLOW_RESTRICT_BULKHEADS,
+                            OpflowConstant.OPFLOW_RESTRICT_SHEDDING_ENABLED,
+                            OpflowConstant.OPFLOW_RESTRICT_SHEDDING_LIMIT,
+                            OpflowConstant.OPFLOW_RESTRICT_SHEDDING_QUEUE_SIZE,
+                            OpflowConstant.OPFLOW_RESTRICT_SHEDDING_TIMEOUT,
+                            OpflowConstant.OPFLOW_RESTRICT_SHEDDING_PRIORITIES
                         });
                         break;
                     case OpflowConstant.COMP_PUBLISHER:
@@ -361,6 +385,11 @@ public class OpflowConfig {
                             OpflowConstant.OPFLOW_RPC_MONITOR_ENABLED,
                             OpflowConstant.OPFLOW_RPC_MONITOR_INTERVAL,
                             OpflowConstant.OPFLOW_RPC_MONITOR_TIMEOUT,
+                            OpflowConstant.OPFLOW_CLAIM_CHECK_ENABLED,
+                            OpflowConstant.OPFLOW_CLAIM_CHECK_DIRECTORY,
+                            OpflowConstant.OPFLOW_CLAIM_CHECK_THRESHOLD,
+                            OpflowConstant.OPFLOW_CLAIM_CHECK_RETENTION,
+                            OpflowConstant.OPFLOW_PROGRESS_COALESCED,
                         });
                         break;
                     case OpflowConstant.COMP_RPC_HTTP_MASTER:
@@ -378,6 +407,15 @@ public class OpflowConfig {
                             OpflowConstant.OPFLOW_COUNSELOR_THREAD_POOL_SIZE,
                             OpflowConstant.OPFLOW_COUNSELOR_TRIMMING_ENABLED,
                             OpflowConstant.OPFLOW_COUNSELOR_TRIMMING_TIME_DELAY,
+                            OpflowConstant.OPFLOW_COUNSELOR_OUTLIER_ENABLED,
+                            OpflowConstant.OPFLOW_COUNSELOR_OUTLIER_INTERVAL,
+                            OpflowConstant.OPFLOW_COUNSELOR_OUTLIER_MIN_REQUESTS,
+                            OpflowConstant.OPFLOW_COUNSELOR_OUTLIER_FAILURE_RATE,
+                            OpflowConstant.OPFLOW_COUNSELOR_OUTLIER_LATENCY_FACTOR,
+                            OpflowConstant.OPFLOW_COUNSELOR_OUTLIER_EJECTION_TIME,
+                            OpflowConstant.OPFLOW_COUNSELOR_OUTLIER_EJECTION_MAX_TIME,
+                            OpflowConstant.OPFLOW_COUNSELOR_OUTLIER_EJECTION_PERCENT,
+                            OpflowConstant.OPFLOW_COUNSELOR_OUTLIER_PROBE_TIMEOUT,
                         });
                         break;
                     case OpflowConstant.COMP_GARBAGE_COLLECTOR:
@@ -496,6 +534,8 @@ public class OpflowConfig {
             OpflowUtil.copyParameters(params, componentRoot, new String[] {
                 OpflowConstant.OPFLOW_COMMON_STRICT,
                 OpflowConstant.OPFLOW_COMMON_SERVICE_NAME,
+                OpflowConstant.OPFLOW_ROUTINE_CACHE_MAX_WEIGHT,
+                OpflowConstant.OPFLOW_ROUTINE_CACHE_OFF_HEAP,
             });
             
             // rename the deprecated childMaps
@@ -549,6 +589,24 @@ public class OpflowConfig {
                             OpflowConstant.OPFLOW_OUTGOING_EXCHANGE_TYPE,
                             OpflowConstant.OPFLOW_OUTGOING_EXCHANGE_DURABLE,
                             OpflowConstant.OPFLOW_OUTGOING_ROUTING_KEY,
+                            OpflowConstant.OPFLOW_CLAIM_CHECK_ENABLED,
+                            OpflowConstant.OPFLOW_CLAIM_CHECK_DIRECTORY,
+                            OpflowConstant.OPFLOW_COMPRESSION_ENABLED,
+                            OpflowConstant.OPFLOW_COMPRESSION_ENCODING,
+                            OpflowConstant.OPFLOW_COMPRESSION_THRESHOLD,
+                            OpflowConstant.OPFLOW_ROUTINE_POOL_ENABLED,
+                            OpflowConstant.OPFLOW_ROUTINE_POOL_SIZE,
+                            OpflowConstant.OPFLOW_ROUTINE_POOL_SIZES,
+                            OpflowConstant.OPFLOW_ROUTINE_QUEUE_LIMIT,
+                            OpflowConstant.OPFLOW_ROUTINE_REJECT_ACTION,
+                            OpflowConstant.OPFLOW_AUTOSCALE_ENABLED,
+                            OpflowConstant.OPFLOW_AUTOSCALE_INTERVAL,
+                            OpflowConstant.OPFLOW_AUTOSCALE_MIN_CONSUMERS,
+                            OpflowConstant.OPFLOW_AUTOSCALE_MAX_CONSUMERS,
+                            OpflowConstant.OPFLOW_AUTOSCALE_MIN_PREFETCH,
+                            OpflowConstant.OPFLOW_AUTOSCALE_MAX_PREFETCH,
+                            OpflowConstant.OPFLOW_AUTOSCALE_BUFFER_TIME,
+                            OpflowConstant.OPFLOW_PROGRESS_INTERVAL,
                         });
                         break;
                     case OpflowConstant.COMP_RPC_HTTP_WORKER:
@@ -557,6 +615,9 @@ public class OpflowConfig {
                             OpflowConstant.OPFLOW_COMMON_HOST,
                             OpflowConstant.OPFLOW_COMMON_HOSTNAME,
                             OpflowConstant.OPFLOW_COMMON_PORTS,
+                            OpflowConstant.OPFLOW_COMPRESSION_ENABLED,
+                            OpflowConstant.OPFLOW_COMPRESSION_ENCODING,
+                            OpflowConstant.OPFLOW_COMPRESSION_THRESHOLD,
                         });
                         break;
                     case OpflowConstant.COMP_SUBSCRIBER:
@@ -644,9 +705,20 @@ public class OpflowConfig {
         OpflowConstant.OPFLOW_COMMON_STRICT,
         OpflowConstant.OPFLOW_COUNSELOR_THREAD_POOL_ENABLED,
         OpflowConstant.OPFLOW_COUNSELOR_TRIMMING_ENABLED,
+        OpflowConstant.OPFLOW_COUNSELOR_OUTLIER_ENABLED,
         OpflowConstant.OPFLOW_RPC_MONITOR_ENABLED,
+        OpflowConstant.OPFLOW_COMPRESSION_ENABLED,
+        OpflowConstant.OPFLOW_CLAIM_CHECK_ENABLED,
+        OpflowConstant.OPFLOW_ROUTINE_POOL_ENABLED,
+        OpflowConstant.OPFLOW_AUTOSCALE_ENABLED,
+        OpflowConstant.OPFLOW_PROGRESS_COALESCED,
+        OpflowConstant.OPFLOW_ROUTINE_CACHE_OFF_HEAP,
         OpflowConstant.OPFLOW_RESTRICT_PAUSE_ENABLED,
         OpflowConstant.OPFLOW_RESTRICT_SEMAPHORE_ENABLED,
+        OpflowConstant.OPFLOW_RESTRICT_ADAPTIVE_ENABLED,
+        OpflowConstant.OPFLOW_RESTRICT_RATE_ENABLED,
+        OpflowConstant.OPFLOW_RESTRICT_BULKHEAD_ENABLED,
+        OpflowConstant.OPFLOW_RESTRICT_SHEDDING_ENABLED,
         OpflowConstant.AMQP_CONARG_AUTOMATIC_RECOVERY_ENABLED,
         OpflowConstant.AMQP_CONARG_TOPOLOGY_RECOVERY_ENABLED,
         
@@ -678,6 +750,8 @@ public class OpflowConfig {
         OpflowConstant.OPFLOW_PUBSUB_ROUTING_KEY,
         OpflowConstant.OPFLOW_PUBSUB_QUEUE_NAME,
         OpflowConstant.OPFLOW_PUBSUB_TRASH_NAME,
+        OpflowConstant.OPFLOW_PUBSUB_LANE_KEY,
+        OpflowConstant.OPFLOW_PUBSUB_SHARD_KEY,
         
         OpflowConstant.OPFLOW_DISPATCH_EXCHANGE_NAME,
         OpflowConstant.OPFLOW_DISPATCH_EXCHANGE_TYPE,
@@ -694,6 +768,11 @@ public class OpflowConfig {
         
         OpflowConstant.OPFLOW_RPC_MONITOR_ID,
         
+        OpflowConstant.OPFLOW_COMPRESSION_ENCODING,
+        OpflowConstant.OPFLOW_CLAIM_CHECK_DIRECTORY,
+        OpflowConstant.OPFLOW_ROUTINE_REJECT_ACTION,
+        OpflowConstant.OPFLOW_RESTRICT_RATE_POLICY,
+        
         OpflowConstant.AMQP_CONARG_URI,
         OpflowConstant.AMQP_CONARG_HOST,
         OpflowConstant.AMQP_CONARG_VHOST,
@@ -719,13 +798,32 @@ public class OpflowConfig {
         OpflowConstant.AMQP_CONARG_NETWORK_RECOVERY_INTERVAL,
         OpflowConstant.OPFLOW_COMMON_LENGTH,
         OpflowConstant.OPFLOW_COUNSELOR_THREAD_POOL_SIZE,
+        OpflowConstant.OPFLOW_COUNSELOR_OUTLIER_MIN_REQUESTS,
+        OpflowConstant.OPFLOW_COUNSELOR_OUTLIER_FAILURE_RATE,
+        OpflowConstant.OPFLOW_COUNSELOR_OUTLIER_LATENCY_FACTOR,
+        OpflowConstant.OPFLOW_COUNSELOR_OUTLIER_EJECTION_PERCENT,
         OpflowConstant.OPFLOW_RPC_MONITOR_INTERVAL,
+        OpflowConstant.OPFLOW_COMPRESSION_THRESHOLD,
+        OpflowConstant.OPFLOW_CLAIM_CHECK_THRESHOLD,
+        OpflowConstant.OPFLOW_ROUTINE_POOL_SIZE,
+        OpflowConstant.OPFLOW_ROUTINE_QUEUE_LIMIT,
+        OpflowConstant.OPFLOW_AUTOSCALE_MIN_CONSUMERS,
+        OpflowConstant.OPFLOW_AUTOSCALE_MAX_CONSUMERS,
+        OpflowConstant.OPFLOW_AUTOSCALE_MIN_PREFETCH,
+        OpflowConstant.OPFLOW_AUTOSCALE_MAX_PREFETCH,
         OpflowConstant.OPFLOW_RESTRICT_SEMAPHORE_PERMITS,
+        OpflowConstant.OPFLOW_RESTRICT_ADAPTIVE_MIN_LIMIT,
+        OpflowConstant.OPFLOW_RESTRICT_ADAPTIVE_INITIAL_LIMIT,
+        OpflowConstant.OPFLOW_RESTRICT_SHEDDING_LIMIT,
+        OpflowConstant.OPFLOW_RESTRICT_SHEDDING_QUEUE_SIZE,
         OpflowConstant.OPFLOW_CONSUMING_PREFETCH_COUNT,
         OpflowConstant.OPFLOW_INCOMING_PREFETCH_COUNT,
         OpflowConstant.OPFLOW_RESPONSE_PREFETCH_COUNT,
         OpflowConstant.OPFLOW_PUBSUB_CONSUMER_LIMIT,
         OpflowConstant.OPFLOW_PUBSUB_REDELIVERED_LIMIT,
+        OpflowConstant.OPFLOW_PUBSUB_LANE_COUNT,
+        OpflowConstant.OPFLOW_PUBSUB_BATCH_SIZE,
+        OpflowConstant.OPFLOW_PUBSUB_SHARD_COUNT,
         OpflowConstant.AMQP_PARAM_SHARED_THREAD_POOL_SIZE
     });
     
@@ -737,9 +835,25 @@ public class OpflowConfig {
         OpflowConstant.AMQP_PARAM_MESSAGE_TTL,
         OpflowConstant.OPFLOW_COMMON_INTERVAL,
         OpflowConstant.OPFLOW_COUNSELOR_TRIMMING_TIME_DELAY,
+        OpflowConstant.OPFLOW_COUNSELOR_OUTLIER_INTERVAL,
+        OpflowConstant.OPFLOW_COUNSELOR_OUTLIER_EJECTION_TIME,
+        OpflowConstant.OPFLOW_COUNSELOR_OUTLIER_EJECTION_MAX_TIME,
+        OpflowConstant.OPFLOW_COUNSELOR_OUTLIER_PROBE_TIMEOUT,
         OpflowConstant.OPFLOW_RPC_MONITOR_TIMEOUT,
+        OpflowConstant.OPFLOW_CLAIM_CHECK_RETENTION,
+        OpflowConstant.OPFLOW_AUTOSCALE_INTERVAL,
+        OpflowConstant.OPFLOW_AUTOSCALE_BUFFER_TIME,
+        OpflowConstant.OPFLOW_PROGRESS_INTERVAL,
+        OpflowConstant.OPFLOW_PUBSUB_RETRY_DELAY,
+        OpflowConstant.OPFLOW_PUBSUB_RETRY_MAX_DELAY,
+        OpflowConstant.OPFLOW_PUBSUB_BATCH_LINGER,
+        OpflowConstant.OPFLOW_PUBSUB_SHARD_REBALANCE_INTERVAL,
+        OpflowConstant.OPFLOW_ROUTINE_CACHE_MAX_WEIGHT,
         OpflowConstant.OPFLOW_RESTRICT_PAUSE_TIMEOUT,
         OpflowConstant.OPFLOW_RESTRICT_SEMAPHORE_TIMEOUT,
+        OpflowConstant.OPFLOW_RESTRICT_RATE_TIMEOUT,
+        OpflowConstant.OPFLOW_RESTRICT_BULKHEAD_TIMEOUT,
+        OpflowConstant.OPFLOW_RESTRICT_SHEDDING_TIMEOUT,
         OpflowConstant.OPFLOW_DISCOVERY_CLIENT_CHECK_INTERVAL,
         OpflowConstant.OPFLOW_DISCOVERY_CLIENT_CHECK_TTL,
     });
@@ -26,6 +26,7 @@ public class OpflowConnector {
     private final static Logger LOG = LoggerFactory.getLogger(OpflowConnector.class);
 
     private final String componentId;
+    private final String connectorName;
     private final OpflowLogTracer logTracer;
 
     private final boolean strictMode;
@@ -43,6 +44,7 @@ public class OpflowConnector {
 
     public OpflowConnector(Map<String, Object> kwargs) throws OpflowBootstrapException {
         componentId = OpflowUtil.getStringField(kwargs, OpflowConstant.COMPONENT_ID, true);
+        connectorName = OpflowUtil.getStringField(kwargs, OpflowConstant.PARAM_CONNECTOR_NAME, DEFAULT_CONNECTOR_NAME);
         logTracer = OpflowLogTracer.ROOT.branch("componentId", componentId);
 
         if (logTracer.ready(LOG, Level.INFO)) LOG.info(logTracer
@@ -205,7 +207,7 @@ public class OpflowConnector {
                     .text("getInvocationHandler() InvocationHandler not found, create new one")
                     .stringify());
             handlers.put(clazzName, new OpflowRpcInvocationHandler(logTracer, measurer, restrictor, reqExtractor, rpcObserver, 
-                    amqpMaster, httpMaster, publisher, clazz, bean, nativeWorkerEnabled));
+                    amqpMaster, httpMaster, publisher, connectorName, clazz, bean, nativeWorkerEnabled));
         } else {
             if (strictMode) {
                 throw new OpflowRpcRegistrationException("Class [" + clazzName + "] has already registered");
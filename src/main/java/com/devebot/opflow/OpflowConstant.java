@@ -48,6 +48,7 @@ public class OpflowConstant {
     public final static String COMP_RESTRICTOR = "restrictor";
     public final static String COMP_REQ_EXTRACTOR = "reqExtractor";
     public final static String COMP_SPEED_METER = "speedMeter";
+    public final static String COMP_BLOB_STORE = "blobStore";
 
     @Deprecated
     public final static String COMP_CFG_AMQP_MASTER = "rpcMaster";
@@ -80,6 +81,7 @@ public class OpflowConstant {
     public final static String METHOD_INVOCATION_REMOTE_HTTP_WORKER = "remote_http";
     public final static String METHOD_INVOCATION_REMOTE_AMQP_WORKER = "remote_amqp";
     public final static String METHOD_INVOCATION_NATIVE_WORKER = "backup_method";
+    public final static String METHOD_INVOCATION_ROUTINE_CACHE = "routine_cache";
     
     public final static String METHOD_INVOCATION_STATUS_OK = "ok";
     public final static String METHOD_INVOCATION_STATUS_FAILED = "failed";
@@ -89,11 +91,17 @@ public class OpflowConstant {
     public final static String METHOD_INVOCATION_STATUS_SERVICE_NOT_READY = "service-not-ready";
     public final static String METHOD_INVOCATION_STATUS_PAUSING_TIMEOUT = "pausing-timeout";
     public final static String METHOD_INVOCATION_STATUS_SEMAPHORE_TIMEOUT = "semaphore-timeout";
+    public final static String METHOD_INVOCATION_STATUS_RATE_LIMITED = "rate-limited";
+    public final static String METHOD_INVOCATION_STATUS_BULKHEAD_FULL = "bulkhead-full";
+    public final static String METHOD_INVOCATION_STATUS_SHED = "shed";
     public final static String METHOD_INVOCATION_STATUS_ENTER = "begin";
     public final static String METHOD_INVOCATION_STATUS_RESCUE = "rescue";
     public final static String METHOD_INVOCATION_STATUS_NORMAL = "retain";
+    public final static String METHOD_INVOCATION_STATUS_HIT = "hit";
+    public final static String METHOD_INVOCATION_STATUS_MISS = "miss";
 
     public final static String PARAM_NATIVE_WORKER_ENABLED = "nativeWorkerEnabled";
+    public final static String PARAM_CONNECTOR_NAME = "connectorName";
 
     // engine - rabbitMQ
     public final static String OPFLOW_COMMON_PROTO_VERSION = "protocolVersion";
@@ -145,12 +153,51 @@ public class OpflowConstant {
     public final static String OPFLOW_COUNSELOR_TRIMMING_ENABLED = "trimmingEnabled";
     public final static String OPFLOW_COUNSELOR_TRIMMING_TIME_DELAY = "trimmingTimeDelay";
     public final static String OPFLOW_COUNSELOR_KEEP_ALIVE_TIMEOUT = "keepAliveTimeout";
+    public final static String OPFLOW_COUNSELOR_OUTLIER_ENABLED = "outlierEnabled";
+    public final static String OPFLOW_COUNSELOR_OUTLIER_INTERVAL = "outlierInterval";
+    public final static String OPFLOW_COUNSELOR_OUTLIER_MIN_REQUESTS = "outlierMinRequests";
+    public final static String OPFLOW_COUNSELOR_OUTLIER_FAILURE_RATE = "outlierFailureRate";
+    public final static String OPFLOW_COUNSELOR_OUTLIER_LATENCY_FACTOR = "outlierLatencyFactor";
+    public final static String OPFLOW_COUNSELOR_OUTLIER_EJECTION_TIME = "outlierEjectionTime";
+    public final static String OPFLOW_COUNSELOR_OUTLIER_EJECTION_MAX_TIME = "outlierEjectionMaxTime";
+    public final static String OPFLOW_COUNSELOR_OUTLIER_EJECTION_PERCENT = "outlierEjectionPercent";
+    public final static String OPFLOW_COUNSELOR_OUTLIER_PROBE_TIMEOUT = "outlierProbeTimeout";
+    public final static String OPFLOW_COUNSELOR_OUTLIER_EJECTED = "outlierEjected";
 
     public final static String OPFLOW_RPC_MONITOR_ID = "monitorId";
     public final static String OPFLOW_RPC_MONITOR_ENABLED = "monitorEnabled";
     public final static String OPFLOW_RPC_MONITOR_INTERVAL = "monitorInterval";
     public final static String OPFLOW_RPC_MONITOR_TIMEOUT = "monitorTimeout";
 
+    public final static String OPFLOW_PROGRESS_INTERVAL = "progressInterval";
+    public final static String OPFLOW_PROGRESS_COALESCED = "progressCoalesced";
+
+    public final static String OPFLOW_COMPRESSION_ENABLED = "compressionEnabled";
+    public final static String OPFLOW_COMPRESSION_ENCODING = "compressionEncoding";
+    public final static String OPFLOW_COMPRESSION_THRESHOLD = "compressionThreshold";
+
+    public final static String OPFLOW_CLAIM_CHECK_ENABLED = "claimCheckEnabled";
+    public final static String OPFLOW_CLAIM_CHECK_DIRECTORY = "claimCheckDirectory";
+    public final static String OPFLOW_CLAIM_CHECK_THRESHOLD = "claimCheckThreshold";
+    public final static String OPFLOW_CLAIM_CHECK_RETENTION = "claimCheckRetention";
+
+    public final static String OPFLOW_ROUTINE_POOL_ENABLED = "routinePoolEnabled";
+    public final static String OPFLOW_ROUTINE_POOL_SIZE = "routinePoolSize";
+    public final static String OPFLOW_ROUTINE_POOL_SIZES = "routinePoolSizes";
+    public final static String OPFLOW_ROUTINE_QUEUE_LIMIT = "routineQueueLimit";
+    public final static String OPFLOW_ROUTINE_REJECT_ACTION = "routineRejectAction";
+
+    public final static String OPFLOW_ROUTINE_CACHE_MAX_WEIGHT = "routineCacheMaxWeight";
+    public final static String OPFLOW_ROUTINE_CACHE_OFF_HEAP = "routineCacheOffHeap";
+
+    public final static String OPFLOW_AUTOSCALE_ENABLED = "autoscaleEnabled";
+    public final static String OPFLOW_AUTOSCALE_INTERVAL = "autoscaleInterval";
+    public final static String OPFLOW_AUTOSCALE_MIN_CONSUMERS = "autoscaleMinConsumers";
+    public final static String OPFLOW_AUTOSCALE_MAX_CONSUMERS = "autoscaleMaxConsumers";
+    public final static String OPFLOW_AUTOSCALE_MIN_PREFETCH = "autoscaleMinPrefetch";
+    public final static String OPFLOW_AUTOSCALE_MAX_PREFETCH = "autoscaleMaxPrefetch";
+    public final static String OPFLOW_AUTOSCALE_BUFFER_TIME = "autoscaleBufferTime";
+
     public final static String OPFLOW_RESTRICT_PAUSE_ENABLED = "pauseEnabled";
     public final static String OPFLOW_RESTRICT_PAUSE_TIMEOUT = "pauseTimeout";
     public final static String OPFLOW_RESTRICT_PAUSE_STATUS = "pauseStatus";
@@ -163,6 +210,39 @@ public class OpflowConstant {
     public final static String OPFLOW_RESTRICT_SEMAPHORE_FREE_PERMITS = "semaphoreFreePermits";
     public final static String OPFLOW_RESTRICT_SEMAPHORE_USED_PERMITS = "semaphoreUsedPermits";
 
+    public final static String OPFLOW_RESTRICT_ADAPTIVE_ENABLED = "adaptiveEnabled";
+    public final static String OPFLOW_RESTRICT_ADAPTIVE_MIN_LIMIT = "adaptiveMinLimit";
+    public final static String OPFLOW_RESTRICT_ADAPTIVE_INITIAL_LIMIT = "adaptiveInitialLimit";
+    public final static String OPFLOW_RESTRICT_ADAPTIVE_LIMIT = "adaptiveLimit";
+    public final static String OPFLOW_RESTRICT_ADAPTIVE_INFLIGHT = "adaptiveInflight";
+    public final static String OPFLOW_RESTRICT_ADAPTIVE_RTT = "adaptiveRttMicros";
+
+    public final static String OPFLOW_RESTRICT_RATE_ENABLED = "rateEnabled";
+    public final static String OPFLOW_RESTRICT_RATE_POLICY = "ratePolicy";
+    public final static String OPFLOW_RESTRICT_RATE_TIMEOUT = "rateTimeout";
+    public final static String OPFLOW_RESTRICT_RATE_LIMITS = "rateLimits";
+    public final static String OPFLOW_RESTRICT_RATE_BURST = "burst";
+    public final static String OPFLOW_RESTRICT_RATE_REFILL = "refillPerSecond";
+    public final static String OPFLOW_RESTRICT_RATE_PER_CONNECTOR = "perConnector";
+
+    public final static String OPFLOW_RESTRICT_BULKHEAD_ENABLED = "bulkheadEnabled";
+    public final static String OPFLOW_RESTRICT_BULKHEAD_TIMEOUT = "bulkheadTimeout";
+    public final static String OPFLOW_RESTRICT_BULKHEADS = "bulkheads";
+    public final static String OPFLOW_RESTRICT_BULKHEAD_PERMITS = "permits";
+    public final static String OPFLOW_RESTRICT_BULKHEAD_USED_PERMITS = "usedPermits";
+    public final static String OPFLOW_RESTRICT_BULKHEAD_REJECTED = "rejected";
+    public final static String OPFLOW_RESTRICT_BULKHEAD_WAIT_TIMEOUT = "timeout";
+
+    public final static String OPFLOW_RESTRICT_SHEDDING_ENABLED = "sheddingEnabled";
+    public final static String OPFLOW_RESTRICT_SHEDDING_LIMIT = "sheddingLimit";
+    public final static String OPFLOW_RESTRICT_SHEDDING_QUEUE_SIZE = "sheddingQueueSize";
+    public final static String OPFLOW_RESTRICT_SHEDDING_TIMEOUT = "sheddingTimeout";
+    public final static String OPFLOW_RESTRICT_SHEDDING_PRIORITIES = "sheddingPriorities";
+    public final static String OPFLOW_RESTRICT_SHEDDING_INFLIGHT = "sheddingInflight";
+    public final static String OPFLOW_RESTRICT_SHEDDING_QUEUED = "sheddingQueued";
+    public final static String OPFLOW_RESTRICT_SHEDDING_TOTAL = "sheddingTotal";
+    public final static String OPFLOW_RESTRICT_SHEDDING_SERVICE_TIME = "sheddingServiceTimeMicros";
+
     public final static String OPFLOW_PRODUCING_EXCHANGE_NAME = "exchangeName";
     public final static String OPFLOW_PRODUCING_EXCHANGE_TYPE = "exchangeType";
     public final static String OPFLOW_PRODUCING_EXCHANGE_DURABLE = "exchangeDurable";
@@ -174,6 +254,7 @@ public class OpflowConstant {
     public final static String OPFLOW_CONSUMING_QUEUE_EXCLUSIVE = "exclusive";
     public final static String OPFLOW_CONSUMING_BINDING_KEYS = "otherKeys";
     public final static String OPFLOW_CONSUMING_PREFETCH_COUNT = "prefetchCount";
+    public final static String OPFLOW_CONSUMING_PREFETCH_GLOBAL = "prefetchGlobal";
     public final static String OPFLOW_CONSUMING_AUTO_ACK = "autoAck";
     public final static String OPFLOW_CONSUMING_AUTO_BINDING = "binding";
     public final static String OPFLOW_CONSUMING_REPLY_TO = "replyTo";
@@ -199,6 +280,15 @@ public class OpflowConstant {
     public final static String OPFLOW_PUBSUB_CONSUMER_LIMIT = "subscriberLimit";
     public final static String OPFLOW_PUBSUB_REDELIVERED_LIMIT = "redeliveredLimit";
     public final static String OPFLOW_PUBSUB_TRASH_NAME = "recyclebinName";
+    public final static String OPFLOW_PUBSUB_RETRY_DELAY = "retryDelay";
+    public final static String OPFLOW_PUBSUB_RETRY_MAX_DELAY = "retryMaxDelay";
+    public final static String OPFLOW_PUBSUB_LANE_COUNT = "laneCount";
+    public final static String OPFLOW_PUBSUB_LANE_KEY = "laneKey";
+    public final static String OPFLOW_PUBSUB_BATCH_SIZE = "batchSize";
+    public final static String OPFLOW_PUBSUB_BATCH_LINGER = "batchLinger";
+    public final static String OPFLOW_PUBSUB_SHARD_COUNT = "shardCount";
+    public final static String OPFLOW_PUBSUB_SHARD_KEY = "shardKey";
+    public final static String OPFLOW_PUBSUB_SHARD_REBALANCE_INTERVAL = "shardRebalanceInterval";
 
     // producer - master
     public final static String OPFLOW_DISPATCH_EXCHANGE_NAME = "exchangeName";
@@ -234,11 +324,16 @@ public class OpflowConstant {
     public final static String OPFLOW_REQ_HEADER_ROUTINE_SCOPE = "oxScope";
     public final static String OPFLOW_REQ_HEADER_ROUTINE_SIGNATURE = "oxSignature";
     public final static String OPFLOW_REQ_HEADER_ROUTINE_TAGS = "oxTags";
+    public final static String OPFLOW_REQ_HEADER_ACCEPT_ENCODING = "oxAcceptEncoding";
+    public final static String OPFLOW_REQ_HEADER_CLAIM_CHECK = "oxClaimCheck";
+    public final static String OPFLOW_REQ_HEADER_ROUTINE_DEADLINE = "oxDeadline";
     
     public final static String OPFLOW_RES_HEADER_PROTO_VERSION = "o-version";
     public final static String OPFLOW_RES_HEADER_SERVERLET_ID = "o-serverletId";
     public final static String OPFLOW_RES_HEADER_HTTP_ADDRESS = "o-httpAddress";
     public final static String OPFLOW_RES_HEADER_AMQP_PATTERN = "o-bindingKey";
+    public final static String OPFLOW_RES_HEADER_CHUNK_SEQUENCE = "o-chunkSeq";
+    public final static String OPFLOW_RES_HEADER_CHUNK_TOTAL = "o-chunkTotal";
     
     //~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~ RPC HTTP HEADERS
 
@@ -247,6 +342,7 @@ public class OpflowConstant {
     public final static String HTTP_HEADER_ROUTINE_SIGNATURE = OPFLOW_REQ_HEADER_ROUTINE_SIGNATURE;
     public final static String HTTP_HEADER_ROUTINE_SCOPE = OPFLOW_REQ_HEADER_ROUTINE_SCOPE;
     public final static String HTTP_HEADER_ROUTINE_TAGS = OPFLOW_REQ_HEADER_ROUTINE_TAGS;
+    public final static String HTTP_HEADER_ROUTINE_DEADLINE = OPFLOW_REQ_HEADER_ROUTINE_DEADLINE;
 
     public final static String HTTP_MASTER_PARAM_CALL_TIMEOUT = "callTimeout";
     public final static String HTTP_MASTER_PARAM_PUSH_TIMEOUT = "writeTimeout";
@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -30,6 +31,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.net.ssl.SSLContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -82,6 +84,7 @@ public class OpflowEngine implements AutoCloseable {
     };
     
     private final static Logger LOG = LoggerFactory.getLogger(OpflowEngine.class);
+    private final static int CLAIM_CHECK_THRESHOLD = 256 * 1024;
     private final OpflowLogTracer logTracer;
     private final String componentId;
     private final OpflowPromMeasurer measurer;
@@ -109,6 +112,9 @@ public class OpflowEngine implements AutoCloseable {
     private final Object consumingChannelLock = new Object();
     private final Object consumingBlockedListenerLock = new Object();
     
+    private final OpflowBlobStore blobStore;
+    private final int claimCheckThreshold;
+    
     private String appId;
     private String exchangeName;
     private String exchangeType;
@@ -120,6 +126,8 @@ public class OpflowEngine implements AutoCloseable {
         
         componentId = OpflowUtil.getStringField(kwargs, OpflowConstant.COMPONENT_ID, true);
         measurer = (OpflowPromMeasurer) OpflowUtil.getOptionField(kwargs, OpflowConstant.COMP_MEASURER, OpflowPromMeasurer.NULL);
+        blobStore = (OpflowBlobStore) OpflowUtil.getOptionField(kwargs, OpflowConstant.COMP_BLOB_STORE, null);
+        claimCheckThreshold = OpflowUtil.getIntegerField(kwargs, OpflowConstant.OPFLOW_CLAIM_CHECK_THRESHOLD, CLAIM_CHECK_THRESHOLD);
         
         logTracer = OpflowLogTracer.ROOT.branch("engineId", componentId);
         
@@ -461,10 +469,25 @@ public class OpflowEngine implements AutoCloseable {
         produce(body, headers, null, override, null);
     }
     
-    public void produce(final byte[] body, final Map<String, Object> headers, AMQP.BasicProperties.Builder propBuilder, Map<String, Object> override, OpflowLogTracer reqTracer) {
+    public void produce(byte[] body, Map<String, Object> headers, AMQP.BasicProperties.Builder propBuilder, Map<String, Object> override, OpflowLogTracer reqTracer) {
         propBuilder = (propBuilder == null) ? new AMQP.BasicProperties.Builder() : propBuilder;
         
+        String claimCheck = null;
         try {
+            if (blobStore != null && body != null && body.length >= claimCheckThreshold) {
+                claimCheck = blobStore.store(body);
+                headers = (headers == null) ? new HashMap<String, Object>() : new HashMap<>(headers);
+                headers.put(OpflowConstant.OPFLOW_REQ_HEADER_CLAIM_CHECK, claimCheck);
+                if (reqTracer != null && reqTracer.ready(LOG, Level.DEBUG)) {
+                    LOG.debug(reqTracer
+                            .put("claimCheck", claimCheck)
+                            .put("bodyLength", body.length)
+                            .text("Request[${requestId}][${requestTime}][x-engine-msg-claim-check] - body (size: ${bodyLength}) is offloaded to blob [${claimCheck}]")
+                            .stringify());
+                }
+                body = new byte[0];
+            }
+            
             String appId = this.appId;
             String reqExchangeName = this.exchangeName;
             String reqRoutingKey = this.routingKey;
@@ -512,6 +535,9 @@ public class OpflowEngine implements AutoCloseable {
             }
             _channel.basicPublish(reqExchangeName, reqRoutingKey, propBuilder.build(), body);
         } catch (IOException exception) {
+            if (claimCheck != null) {
+                blobStore.remove(claimCheck);
+            }
             if (reqTracer != null && reqTracer.ready(LOG, Level.ERROR)) {
                 LOG.error(reqTracer
                         .put("exceptionClass", exception.getClass().getName())
@@ -528,10 +554,17 @@ public class OpflowEngine implements AutoCloseable {
                         .text("Request[${requestId}][${requestTime}][x-engine-msg-publish-timeout] - produce() is timeout")
                         .stringify());
             }
+            if (claimCheck != null) {
+                blobStore.remove(claimCheck);
+            }
             throw new OpflowOperationException(exception);
         }
     }
     
+    public OpflowBlobStore getBlobStore() {
+        return blobStore;
+    }
+    
     public ConsumerInfo consume(final OpflowEngine.Listener listener, final Map<String, Object> options) {
         final Map<String, Object> opts = OpflowObjectTree.ensureNonNull(options);
         final String _consumerId = OpflowUtil.getStringField(opts, OpflowConstant.OPFLOW_CONSUMING_CONSUMER_ID, true);
@@ -551,7 +584,11 @@ public class OpflowEngine implements AutoCloseable {
                 _prefetchCount = (Integer) opts.get(OpflowConstant.OPFLOW_CONSUMING_PREFETCH_COUNT);
             }
             if (_prefetchCount != null && _prefetchCount > 0) {
-                _channel.basicQos(_prefetchCount);
+                if (Boolean.TRUE.equals(opts.get(OpflowConstant.OPFLOW_CONSUMING_PREFETCH_GLOBAL))) {
+                    _channel.basicQos(_prefetchCount, true);
+                } else {
+                    _channel.basicQos(_prefetchCount);
+                }
             }
             
             final String _queueName;
@@ -562,7 +599,11 @@ public class OpflowEngine implements AutoCloseable {
             final boolean opts_autoDelete = Boolean.TRUE.equals(opts.get(OpflowConstant.OPFLOW_CONSUMING_QUEUE_AUTO_DELETE));
             AMQP.Queue.DeclareOk _declareOk;
             if (opts_queueName != null) {
-                _declareOk = _channel.queueDeclare(opts_queueName, opts_durable, opts_exclusive, opts_autoDelete, null);
+                Map<String, Object> opts_queueArgs = null;
+                if (opts.get("queueArguments") instanceof Map) {
+                    opts_queueArgs = (Map<String, Object>) opts.get("queueArguments");
+                }
+                _declareOk = _channel.queueDeclare(opts_queueName, opts_durable, opts_exclusive, opts_autoDelete, opts_queueArgs);
                 _fixedQueue = true;
             } else {
                 _declareOk = _channel.queueDeclare();
@@ -624,20 +665,54 @@ public class OpflowEngine implements AutoCloseable {
             }
             
             final Consumer _consumer = new DefaultConsumer(_channel) {
+                // the deferred acknowledgements are sent from the worker threads, the channel
+                // is used as the lock that serializes them with the replies published on it
                 private void invokeAck(Envelope envelope, boolean success) throws IOException {
                     if (!_autoAck) {
-                        if (success) {
-                            _channel.basicAck(envelope.getDeliveryTag(), false);
-                        } else {
-                            if (!_requeueFailure) {
+                        if (success || !_requeueFailure) {
+                            synchronized (_channel) {
                                 _channel.basicAck(envelope.getDeliveryTag(), false);
-                            } else {
-                                _channel.basicNack(envelope.getDeliveryTag(), false, true);
                             }
+                        } else {
+                            invokeNack(envelope);
                         }
                     }
                 }
 
+                private void invokeNack(Envelope envelope) throws IOException {
+                    synchronized (_channel) {
+                        _channel.basicNack(envelope.getDeliveryTag(), false, true);
+                    }
+                }
+
+                private Acknowledger createAcknowledger(final Envelope envelope) {
+                    final AtomicBoolean settled = new AtomicBoolean(false);
+                    return new Acknowledger() {
+                        @Override
+                        public void ack(boolean success) throws IOException {
+                            if (settled.compareAndSet(false, true)) {
+                                invokeAck(envelope, success);
+                            }
+                        }
+
+                        @Override
+                        public void ackMultiple() throws IOException {
+                            if (settled.compareAndSet(false, true) && !_autoAck) {
+                                synchronized (_channel) {
+                                    _channel.basicAck(envelope.getDeliveryTag(), true);
+                                }
+                            }
+                        }
+
+                        @Override
+                        public void requeue() throws IOException {
+                            if (settled.compareAndSet(false, true) && !_autoAck) {
+                                invokeNack(envelope);
+                            }
+                        }
+                    };
+                }
+
                 @Override
                 public void handleDelivery(String consumerTag, Envelope envelope,
                                            AMQP.BasicProperties properties, byte[] body) throws IOException {
@@ -648,6 +723,9 @@ public class OpflowEngine implements AutoCloseable {
 
                     final OpflowLogTracer reqTracer = logConsume.branch(OpflowConstant.REQUEST_TIME, routineTimestamp)
                             .branch(OpflowConstant.REQUEST_ID, routineId, new OpflowUtil.OmitInternalOplogs(routineScope));
+                    
+                    // every settlement goes through the acknowledger, so that a delivery is never acked twice
+                    final Acknowledger acknowledger = createAcknowledger(envelope);
 
                     try {
                         if (reqTracer != null && reqTracer.ready(LOG, Level.INFO)) LOG.info(reqTracer
@@ -669,7 +747,18 @@ public class OpflowEngine implements AutoCloseable {
                                     .put(CONST.AMQP_HEADER_ROUTINE_SCOPE, routineScope)
                                     .toMap();
                             
-                            boolean captured = listener.processMessage(body, properties, _replyToName, _channel, consumerTag, extras);
+                            boolean captured;
+                            if (listener instanceof DeferredListener) {
+                                captured = ((DeferredListener) listener).processMessage(body, properties, _replyToName, _channel, consumerTag, extras, acknowledger);
+                                if (captured) {
+                                    if (reqTracer != null && reqTracer.ready(LOG, Level.INFO)) LOG.info(reqTracer
+                                            .text("Request[${requestId}][${requestTime}][x-engine-delivery-deferred] has been handed off, the listener settles the ACK")
+                                            .stringify());
+                                    return;
+                                }
+                            } else {
+                                captured = listener.processMessage(body, properties, _replyToName, _channel, consumerTag, extras);
+                            }
                             
                             if (captured) {
                                 if (reqTracer != null && reqTracer.ready(LOG, Level.INFO)) LOG.info(reqTracer
@@ -687,13 +776,13 @@ public class OpflowEngine implements AutoCloseable {
                                     .text("Request[${requestId}][${requestTime}][x-engine-delivery-ack] invoke ACK")
                                     .stringify());
                             
-                            invokeAck(envelope, true);
+                            acknowledger.ack(true);
                         } else {
                             if (reqTracer != null && reqTracer.ready(LOG, Level.INFO)) LOG.info(reqTracer
                                     .put("appId", appId)
                                     .text("Request[${requestId}][${requestTime}][x-engine-delivery-rejected] has been rejected, mismatched appId")
                                     .stringify());
-                            invokeAck(envelope, false);
+                            acknowledger.ack(false);
                         }
                     } catch (Exception ex) {
                         // catch ALL of Error here: don't let it harm our service/close the channel
@@ -707,7 +796,7 @@ public class OpflowEngine implements AutoCloseable {
                                 .text("Request[${requestId}][${requestTime}][x-engine-delivery-exception] has been failed. Service still alive")
                                 .stringify());
                         //ex.printStackTrace();
-                        invokeAck(envelope, false);
+                        acknowledger.ack(false);
                     }
                 }
                 
@@ -1310,10 +1399,51 @@ public class OpflowEngine implements AutoCloseable {
                 Map<String, String> extras) throws IOException;
     }
     
+    public interface DeferredListener extends Listener {
+        @Override
+        default boolean processMessage(
+                byte[] content,
+                AMQP.BasicProperties properties,
+                String queueName,
+                Channel channel,
+                String consumerTag,
+                Map<String, String> extras) throws IOException {
+            // invoked without a deferring consumer, the caller acknowledges on return
+            return processMessage(content, properties, queueName, channel, consumerTag, extras, Acknowledger.IMMEDIATE);
+        }
+        
+        public boolean processMessage(
+                byte[] content,
+                AMQP.BasicProperties properties,
+                String queueName,
+                Channel channel,
+                String consumerTag,
+                Map<String, String> extras,
+                Acknowledger acknowledger) throws IOException;
+    }
+    
+    public interface Acknowledger {
+        public final static Acknowledger IMMEDIATE = new Acknowledger() {
+            @Override
+            public void ack(boolean success) {}
+
+            @Override
+            public void ackMultiple() {}
+
+            @Override
+            public void requeue() {}
+        };
+        
+        public void ack(boolean success) throws IOException;
+        public void ackMultiple() throws IOException;
+        public void requeue() throws IOException;
+    }
+    
     public static class Message {
 
         private final byte[] body;
         private final Map<String, Object> headers;
+        private final String contentEncoding;
 
         public final static Message EMPTY = new Message();
         public final static Message ERROR = new Message(null, OpflowObjectTree.buildMap(false).put("status", "failed").toMap());
@@ -1321,11 +1451,17 @@ public class OpflowEngine implements AutoCloseable {
         private Message() {
             body = null;
             headers = null;
+            contentEncoding = null;
         }
 
         public Message(byte[] body, Map<String, Object> headers) {
+            this(body, headers, null);
+        }
+
+        public Message(byte[] body, Map<String, Object> headers, String contentEncoding) {
             this.body = body;
             this.headers = headers;
+            this.contentEncoding = contentEncoding;
         }
 
         public byte[] getBody() {
@@ -1340,5 +1476,9 @@ public class OpflowEngine implements AutoCloseable {
         public Map<String, Object> getHeaders() {
             return headers;
         }
+
+        public String getContentEncoding() {
+            return contentEncoding;
+        }
     }
 }
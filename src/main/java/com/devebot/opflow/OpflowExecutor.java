@@ -103,6 +103,20 @@ public class OpflowExecutor {
         }
     }
     
+    public int countConsumers(final String queueName) {
+        try {
+            return engine.acquireChannel(new OpflowEngine.Operator() {
+                @Override
+                public Integer handleEvent(Channel _channel) throws IOException {
+                    AMQP.Queue.DeclareOk ok = _channel.queueDeclarePassive(queueName);
+                    return ok.getConsumerCount();
+                }
+            });
+        } catch (IOException | TimeoutException exception) {
+            throw new OpflowOperationException(exception);
+        }
+    }
+    
     public AMQP.Queue.PurgeOk purgeQueue(final String queueName) {
         if (queueName == null) return null;
         try {
@@ -135,8 +149,12 @@ public class OpflowExecutor {
     }
     
     public AMQP.Exchange.DeclareOk defineExchange(final String exchangeName, final String exchangeType) {
+        return defineExchange(exchangeName, exchangeType, null);
+    }
+    
+    public AMQP.Exchange.DeclareOk defineExchange(final String exchangeName, final String exchangeType, final Map<String, Object> options) {
         try {
-            return declareExchange(exchangeName, exchangeType, true, false, null);
+            return declareExchange(exchangeName, exchangeType, true, false, options);
         } catch (IOException | TimeoutException ioe) {
             throw new OpflowOperationException(ioe);
         }
@@ -201,4 +219,22 @@ public class OpflowExecutor {
             throw new OpflowOperationException(exception);
         }
     }
+    
+    public void bindExchangeToExchange(final String sourceName, final String[] bindingKeys, final String destinationName) {
+        try {
+            engine.acquireChannel(new OpflowEngine.Operator() {
+                @Override
+                public Object handleEvent(Channel channel) throws IOException {
+                    channel.exchangeDeclarePassive(sourceName);
+                    channel.exchangeDeclarePassive(destinationName);
+                    for (String bindingKey : bindingKeys) {
+                        channel.exchangeBind(destinationName, sourceName, bindingKey);
+                    }
+                    return null;
+                }
+            });
+        } catch (IOException | TimeoutException exception) {
+            throw new OpflowOperationException(exception);
+        }
+    }
 }
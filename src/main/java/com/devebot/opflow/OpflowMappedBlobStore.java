@@ -0,0 +1,125 @@
+package com.devebot.opflow;
+
+import com.devebot.opflow.OpflowLogTracer.Level;
+import com.devebot.opflow.exception.OpflowBootstrapException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ *
+ * @author acegik
+ */
+public class OpflowMappedBlobStore implements OpflowBlobStore {
+    private final static Logger LOG = LoggerFactory.getLogger(OpflowMappedBlobStore.class);
+    private final static String FILE_EXTENSION = ".blob";
+    
+    public final static long RETENTION_DEFAULT = 3600000l;
+    
+    private final OpflowLogTracer logTracer;
+    private final Path directory;
+    private final long retention;
+    private final AtomicLong sweptTime = new AtomicLong(System.currentTimeMillis());
+    
+    public OpflowMappedBlobStore(String directory) throws OpflowBootstrapException {
+        this(directory, RETENTION_DEFAULT);
+    }
+    
+    public OpflowMappedBlobStore(String directory, long retention) throws OpflowBootstrapException {
+        if (directory == null || directory.isEmpty()) {
+            throw new OpflowBootstrapException("The blob store directory must not be empty");
+        }
+        this.directory = Paths.get(directory);
+        this.retention = retention;
+        this.logTracer = OpflowLogTracer.ROOT.branch("blobStoreDir", directory);
+        try {
+            Files.createDirectories(this.directory);
+        }
+        catch (IOException exception) {
+            throw new OpflowBootstrapException("Cannot create the blob store directory: " + directory, exception);
+        }
+    }
+    
+    public String getDirectory() {
+        return directory.toString();
+    }
+    
+    @Override
+    public String store(byte[] data) throws IOException {
+        sweep();
+        String reference = OpflowUUID.getUUID();
+        try (FileChannel channel = FileChannel.open(resolve(reference),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, data.length);
+            buffer.put(data);
+            // flush the mapping before the reference is published to the other processes
+            buffer.force();
+        }
+        catch (IOException | RuntimeException exception) {
+            remove(reference);
+            throw exception;
+        }
+        return reference;
+    }
+    
+    @Override
+    public ByteBuffer load(String reference) throws IOException {
+        try (FileChannel channel = FileChannel.open(resolve(reference), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+    
+    @Override
+    public void remove(String reference) {
+        try {
+            Files.deleteIfExists(resolve(reference));
+        }
+        catch (IOException | IllegalArgumentException exception) {
+            if (logTracer.ready(LOG, Level.WARN)) LOG.warn(logTracer
+                    .put("reference", reference)
+                    .put("exceptionClass", exception.getClass().getName())
+                    .text("BlobStore[${blobStoreDir}] - remove blob [${reference}] has failed")
+                    .stringify());
+        }
+    }
+    
+    private Path resolve(String reference) {
+        if (reference == null || reference.isEmpty() || reference.contains("/") || reference.contains("\\") || reference.contains("..")) {
+            throw new IllegalArgumentException("Invalid blob reference: " + reference);
+        }
+        return directory.resolve(reference + FILE_EXTENSION);
+    }
+    
+    private void sweep() {
+        if (retention <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long last = sweptTime.get();
+        if (now - last < retention || !sweptTime.compareAndSet(last, now)) {
+            return;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + FILE_EXTENSION)) {
+            for (Path file : stream) {
+                if (now - Files.getLastModifiedTime(file).toMillis() > retention) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        catch (IOException exception) {
+            if (logTracer.ready(LOG, Level.WARN)) LOG.warn(logTracer
+                    .put("exceptionClass", exception.getClass().getName())
+                    .text("BlobStore[${blobStoreDir}] - sweeping the expired blobs has failed")
+                    .stringify());
+        }
+    }
+}
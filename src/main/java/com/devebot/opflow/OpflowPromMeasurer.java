@@ -2,8 +2,11 @@ package com.devebot.opflow;
 
 import com.devebot.opflow.OpflowLogTracer.Level;
 import com.devebot.opflow.exception.OpflowOperationException;
+import com.devebot.opflow.supports.OpflowPromWriter;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,6 +26,12 @@ public abstract class OpflowPromMeasurer {
     
     public abstract void countRpcInvocation(String componentType, String eventName, String routineSignature, String status);
     
+    public void observeRpcLatency(String componentType, String eventName, String routineSignature, long nanos) {
+    }
+
+    public void writeGauges(OpflowPromWriter writer) {
+    }
+
     public abstract OpflowRpcInvocationCounter getRpcInvocationCounter(String componentType);
     
     public abstract Map<String, Object> resetRpcInvocationCounter();
@@ -74,8 +83,13 @@ public abstract class OpflowPromMeasurer {
     
     static class PipeMeasurer extends OpflowPromMeasurer {
 
+        private final static String PROM_COMPONENT_INSTANCES = "opflow_component_instances";
+        private final static String PROM_ENGINE_CONNECTIONS = "opflow_engine_connections";
+
         private OpflowPromMeasurer shadow = null;
         private final OpflowRpcInvocationCounter counter = new OpflowRpcInvocationCounter();
+        private final ConcurrentHashMap<String, LongAdder> componentInstances = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<String, ConcurrentHashMap<String, LongAdder>> engineConnections = new ConcurrentHashMap<>();
 
         public PipeMeasurer() {
         }
@@ -97,6 +111,7 @@ public abstract class OpflowPromMeasurer {
             if (shadow != null) {
                 shadow.updateComponentInstance(componentType, componentId, action);
             }
+            updateGauge(componentInstances.computeIfAbsent(componentType, (String key) -> new LongAdder()), action);
         }
 
         @Override
@@ -104,6 +119,39 @@ public abstract class OpflowPromMeasurer {
             if (shadow != null) {
                 shadow.updateEngineConnection(connectionOwner, connectionType, action);
             }
+            updateGauge(engineConnections
+                    .computeIfAbsent(connectionOwner, (String key) -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(connectionType, (String key) -> new LongAdder()), action);
+        }
+
+        private void updateGauge(LongAdder gauge, GaugeAction action) {
+            switch (action) {
+                case INC:
+                    gauge.increment();
+                    break;
+                case DEC:
+                    gauge.decrement();
+                    break;
+            }
+        }
+
+        @Override
+        public void writeGauges(OpflowPromWriter writer) {
+            writer.family(PROM_COMPONENT_INSTANCES, OpflowPromWriter.TYPE_GAUGE, "The living instances by component type");
+            for (Map.Entry<String, LongAdder> entry : componentInstances.entrySet()) {
+                writer.sample(PROM_COMPONENT_INSTANCES)
+                        .label("componentType", entry.getKey())
+                        .value(entry.getValue().sum());
+            }
+            writer.family(PROM_ENGINE_CONNECTIONS, OpflowPromWriter.TYPE_GAUGE, "The opened engine connections by owner and type");
+            for (Map.Entry<String, ConcurrentHashMap<String, LongAdder>> owner : engineConnections.entrySet()) {
+                for (Map.Entry<String, LongAdder> entry : owner.getValue().entrySet()) {
+                    writer.sample(PROM_ENGINE_CONNECTIONS)
+                            .label("connectionOwner", owner.getKey())
+                            .label("connectionType", entry.getKey())
+                            .value(entry.getValue().sum());
+                }
+            }
         }
 
         @Override
@@ -127,6 +175,15 @@ public abstract class OpflowPromMeasurer {
                             case OpflowConstant.METHOD_INVOCATION_STATUS_SEMAPHORE_TIMEOUT:
                                 counter.incSemaphoreTimeoutRpc();
                                 break;
+                            case OpflowConstant.METHOD_INVOCATION_STATUS_RATE_LIMITED:
+                                counter.incRateLimitedRpc();
+                                break;
+                            case OpflowConstant.METHOD_INVOCATION_STATUS_BULKHEAD_FULL:
+                                counter.incBulkheadFullRpc();
+                                break;
+                            case OpflowConstant.METHOD_INVOCATION_STATUS_SHED:
+                                counter.incShedRpc();
+                                break;
                             case OpflowConstant.METHOD_INVOCATION_STATUS_REJECTED:
                                 counter.incRejectedRpc();
                                 break;
@@ -179,6 +236,38 @@ public abstract class OpflowPromMeasurer {
                         break;
                 }
             }
+            if (OpflowConstant.COMP_SERVERLET.equals(componentType)) {
+                if (OpflowConstant.METHOD_INVOCATION_ROUTINE_CACHE.equals(eventName)) {
+                    switch (status) {
+                        case OpflowConstant.METHOD_INVOCATION_STATUS_HIT:
+                            counter.incRoutineCacheHit();
+                            break;
+                        case OpflowConstant.METHOD_INVOCATION_STATUS_MISS:
+                            counter.incRoutineCacheMiss();
+                            break;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void observeRpcLatency(String componentType, String eventName, String routineSignature, long nanos) {
+            if (shadow != null) {
+                shadow.observeRpcLatency(componentType, eventName, routineSignature, nanos);
+            }
+            if (OpflowConstant.COMP_COMMANDER.equals(componentType)) {
+                switch (eventName) {
+                    case OpflowConstant.METHOD_INVOCATION_NATIVE_WORKER:
+                        counter.recordDirectLatency(routineSignature, nanos);
+                        break;
+                    case OpflowConstant.METHOD_INVOCATION_REMOTE_AMQP_WORKER:
+                        counter.recordRemoteAMQPLatency(routineSignature, nanos);
+                        break;
+                    case OpflowConstant.METHOD_INVOCATION_REMOTE_HTTP_WORKER:
+                        counter.recordRemoteHTTPLatency(routineSignature, nanos);
+                        break;
+                }
+            }
         }
 
         @Override
@@ -0,0 +1,13 @@
+package com.devebot.opflow;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+public interface OpflowPubsubBatchListener {
+    /**
+     * Processes a batch of messages and returns the positions of the failed messages
+     * (null or empty if all of them have been processed successfully).
+     */
+    public Set<Integer> processMessages(List<OpflowEngine.Message> messages) throws IOException;
+}
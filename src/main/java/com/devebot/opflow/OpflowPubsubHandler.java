@@ -10,10 +10,25 @@ import com.rabbitmq.nostro.client.AMQP;
 import com.rabbitmq.nostro.client.BlockedListener;
 import com.rabbitmq.nostro.client.Channel;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,6 +38,8 @@ import org.slf4j.LoggerFactory;
  */
 public class OpflowPubsubHandler implements AutoCloseable {
     private final static Logger LOG = LoggerFactory.getLogger(OpflowPubsubHandler.class);
+    private final static int LANE_PREFETCH_DEFAULT = 16;
+    private final static long SHARD_DRAIN_POLLING = 10;
 
     private final String componentId;
     private final OpflowLogTracer logTracer;
@@ -38,7 +55,26 @@ public class OpflowPubsubHandler implements AutoCloseable {
     private int prefetchCount = 0;
     private int subscriberLimit = 0;
     private int redeliveredLimit = 0;
+    private long retryDelay = 0;
+    private long retryMaxDelay = 0;
+    private String[] retryQueueNames = null;
+    private long[] retryDelays = null;
+    private int laneCount = 0;
+    private String laneKey = null;
+    private ExecutorService[] lanes = null;
+    private final AtomicInteger laneCursor = new AtomicInteger(0);
     private OpflowPubsubListener listener;
+    private OpflowPubsubBatchListener batchListener;
+    private int batchSize = 0;
+    private long batchLinger = 0;
+    private int shardCount = 0;
+    private String shardKey = null;
+    private long shardRebalanceInterval = 0;
+    private String shardExchangeName = null;
+    private String[] shardQueueNames = null;
+    private final List<ShardGroup> shardGroups = new LinkedList<>();
+    private Timer timer;
+    private ScheduledExecutorService batchFlusher;
 
     private final List<OpflowEngine.ConsumerInfo> consumerInfos = new LinkedList<>();
     private final boolean autorun;
@@ -112,6 +148,58 @@ public class OpflowPubsubHandler implements AutoCloseable {
         redeliveredLimit = OpflowUtil.getIntegerField(kwargs, OpflowConstant.OPFLOW_PUBSUB_REDELIVERED_LIMIT, 0);
         if (redeliveredLimit < 0) redeliveredLimit = 0;
         
+        retryDelay = OpflowUtil.getLongField(kwargs, OpflowConstant.OPFLOW_PUBSUB_RETRY_DELAY, 0l);
+        if (retryDelay < 0) retryDelay = 0;
+        
+        retryMaxDelay = OpflowUtil.getLongField(kwargs, OpflowConstant.OPFLOW_PUBSUB_RETRY_MAX_DELAY, 60000l);
+        if (retryMaxDelay < retryDelay) retryMaxDelay = retryDelay;
+        
+        shardCount = OpflowUtil.getIntegerField(kwargs, OpflowConstant.OPFLOW_PUBSUB_SHARD_COUNT, 0);
+        if (shardCount < 0) shardCount = 0;
+        
+        shardKey = OpflowUtil.getStringField(kwargs, OpflowConstant.OPFLOW_PUBSUB_SHARD_KEY);
+        
+        shardRebalanceInterval = OpflowUtil.getLongField(kwargs, OpflowConstant.OPFLOW_PUBSUB_SHARD_REBALANCE_INTERVAL, 30000l);
+        
+        if (subscriberName != null && shardCount > 0) {
+            if (shardKey == null) {
+                throw new OpflowBootstrapException("shardKey should not be null when shardCount is greater than 0");
+            }
+            declareShards();
+        }
+        
+        if (subscriberName != null && retryDelay > 0 && redeliveredLimit > 0) {
+            declareRetryQueues();
+        }
+        
+        laneCount = OpflowUtil.getIntegerField(kwargs, OpflowConstant.OPFLOW_PUBSUB_LANE_COUNT, 0);
+        if (laneCount < 0) laneCount = 0;
+        
+        laneKey = OpflowUtil.getStringField(kwargs, OpflowConstant.OPFLOW_PUBSUB_LANE_KEY);
+        
+        // the lanes queue whatever the broker delivers, so that the deliveries must be bounded
+        if (laneCount > 0 && prefetchCount == 0) {
+            prefetchCount = laneCount * LANE_PREFETCH_DEFAULT;
+        }
+        
+        batchSize = OpflowUtil.getIntegerField(kwargs, OpflowConstant.OPFLOW_PUBSUB_BATCH_SIZE, 64);
+        if (batchSize < 1) batchSize = 1;
+        
+        batchLinger = OpflowUtil.getLongField(kwargs, OpflowConstant.OPFLOW_PUBSUB_BATCH_LINGER, 100l);
+        if (batchLinger < 0) batchLinger = 0;
+        
+        if (laneCount > 0) {
+            lanes = new ExecutorService[laneCount];
+            for (int i = 0; i < laneCount; i++) {
+                final String laneName = "Lane-" + OpflowUtil.extractClassName(OpflowPubsubHandler.class) + "-" + i;
+                lanes[i] = Executors.newSingleThreadExecutor((Runnable runnable) -> {
+                    Thread thread = new Thread(runnable, laneName);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
+        
         autorun = OpflowUtil.getBooleanField(kwargs, OpflowConstant.OPFLOW_COMMON_AUTORUN, Boolean.FALSE);
         
         if (autorun) {
@@ -125,6 +213,14 @@ public class OpflowPubsubHandler implements AutoCloseable {
                 .put("prefetchCount", prefetchCount)
                 .put("subscriberLimit", subscriberLimit)
                 .put("redeliveredLimit", redeliveredLimit)
+                .put("retryDelay", retryDelay)
+                .put("retryMaxDelay", retryMaxDelay)
+                .put("laneCount", laneCount)
+                .put("laneKey", laneKey)
+                .put("batchSize", batchSize)
+                .put("batchLinger", batchLinger)
+                .put("shardCount", shardCount)
+                .put("shardKey", shardKey)
                 .tags("PubsubHandler.new() parameters")
                 .text("PubsubHandler[${pubsubHandlerId}].new() parameters")
                 .stringify());
@@ -214,6 +310,13 @@ public class OpflowPubsubHandler implements AutoCloseable {
                 .text("Consumer[${consumerId}] - PubsubHandler[${pubsubHandlerId}].subscribe() is invoked")
                 .stringify());
         
+        if (batchListener != null) {
+            if (logSubscribe.ready(LOG, Level.INFO)) LOG.info(logSubscribe
+                    .text("Consumer[${consumerId}] - subscribe() failed: supports only single PubsubListener")
+                    .stringify());
+            throw new OpflowOperationException("PubsubHandler supports only single PubsubListener");
+        }
+        
         listener = (listener != null) ? listener : newListener;
         if (listener == null) {
             if (logSubscribe.ready(LOG, Level.INFO)) LOG.info(logSubscribe
@@ -227,7 +330,146 @@ public class OpflowPubsubHandler implements AutoCloseable {
             throw new OpflowOperationException("PubsubHandler supports only single PubsubListener");
         }
         
-        OpflowEngine.ConsumerInfo consumer = engine.consume(new OpflowEngine.Listener() {
+        if (shardCount > 0) {
+            ShardGroup group = new ShardGroup(logSubscribe);
+            shardGroups.add(group);
+            return group.start();
+        }
+        
+        OpflowEngine.ConsumerInfo consumer = engine.consume(createEngineListener(logSubscribe, subscriberName, null), OpflowObjectTree.buildMap(new OpflowObjectTree.Listener<Object>() {
+            @Override
+            public void transform(Map<String, Object> opts) {
+                opts.put(OpflowConstant.OPFLOW_PRODUCING_EXCHANGE_NAME, engine.getExchangeName());
+                opts.put(OpflowConstant.OPFLOW_PRODUCING_ROUTING_KEY, engine.getRoutingKey());
+                opts.put(OpflowConstant.OPFLOW_CONSUMING_CONSUMER_ID, _consumerId);
+                opts.put(OpflowConstant.OPFLOW_CONSUMING_AUTO_ACK, lanes == null);
+                opts.put(OpflowConstant.OPFLOW_CONSUMING_QUEUE_NAME, subscriberName);
+                opts.put(OpflowConstant.OPFLOW_CONSUMING_BINDING_KEYS, bindingKeys);
+                opts.put(OpflowConstant.OPFLOW_CONSUMING_PREFETCH_COUNT, prefetchCount);
+                opts.put(OpflowConstant.OPFLOW_CONSUMING_CONSUMER_LIMIT, subscriberLimit);
+            }
+        }).toMap());
+        consumerInfos.add(consumer);
+        if (logSubscribe.ready(LOG, Level.INFO)) LOG.info(logSubscribe
+                .text("Consumer[${consumerId}] - subscribe() has completed")
+                .stringify());
+        return consumer;
+    }
+    
+    private OpflowEngine.Listener createEngineListener(final OpflowLogTracer logSubscribe, final String requeueName, final ShardSlot slot) {
+        if (lanes != null || slot != null) {
+            return new OpflowEngine.DeferredListener() {
+                @Override
+                public boolean processMessage(
+                        final byte[] content,
+                        final AMQP.BasicProperties properties,
+                        String queueName,
+                        final Channel channel,
+                        String consumerTag,
+                        Map<String, String> extras,
+                        final OpflowEngine.Acknowledger acknowledger
+                ) throws IOException {
+                    if (slot != null) {
+                        slot.owned = true;
+                        slot.inflight.incrementAndGet();
+                        if (slot.draining) {
+                            // the shard is being released, the message is left for the next owner
+                            slot.inflight.decrementAndGet();
+                            slot.hold(acknowledger);
+                            return true;
+                        }
+                    }
+                    Runnable task = new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                handleMessage(content, properties, channel, logSubscribe, requeueName);
+                                acknowledger.ack(true);
+                            }
+                            catch (Exception exception) {
+                                if (logSubscribe.ready(LOG, Level.ERROR)) LOG.error(logSubscribe
+                                        .put("exceptionClass", exception.getClass().getName())
+                                        .put("exceptionMessage", exception.getMessage())
+                                        .text("Consumer[${consumerId}] - the lane has failed to settle the message, requeue it")
+                                        .stringify());
+                                try {
+                                    acknowledger.requeue();
+                                }
+                                catch (IOException ioe) {
+                                    if (logSubscribe.ready(LOG, Level.ERROR)) LOG.error(logSubscribe
+                                            .put("exceptionClass", ioe.getClass().getName())
+                                            .put("exceptionMessage", ioe.getMessage())
+                                            .text("Consumer[${consumerId}] - the message cannot be requeued")
+                                            .stringify());
+                                }
+                            }
+                            finally {
+                                if (slot != null) {
+                                    slot.inflight.decrementAndGet();
+                                }
+                            }
+                        }
+                    };
+                    if (lanes == null) {
+                        task.run();
+                        return true;
+                    }
+                    try {
+                        selectLane(properties.getHeaders()).execute(task);
+                    }
+                    catch (RejectedExecutionException exception) {
+                        if (slot != null) {
+                            slot.inflight.decrementAndGet();
+                        }
+                        acknowledger.requeue();
+                    }
+                    return true;
+                }
+            };
+        } else {
+            return new OpflowEngine.Listener() {
+                @Override
+                public boolean processMessage(
+                        byte[] content,
+                        AMQP.BasicProperties properties,
+                        String queueName,
+                        Channel channel,
+                        String consumerTag,
+                        Map<String, String> extras
+                ) throws IOException {
+                    handleMessage(content, properties, channel, logSubscribe, requeueName);
+                    return true;
+                }
+            };
+        }
+    }
+    
+    public OpflowEngine.ConsumerInfo subscribe(final OpflowPubsubBatchListener newListener) {
+        final String _consumerId = OpflowUUID.getBase64ID();
+        final OpflowLogTracer logSubscribe = logTracer.branch("consumerId", _consumerId);
+        if (logSubscribe.ready(LOG, Level.INFO)) LOG.info(logSubscribe
+                .put("batchSize", batchSize)
+                .put("batchLinger", batchLinger)
+                .text("Consumer[${consumerId}] - PubsubHandler[${pubsubHandlerId}].subscribe() is invoked in batch mode")
+                .stringify());
+        
+        if (newListener == null) {
+            throw new IllegalArgumentException("PubsubBatchListener should not be null");
+        }
+        if (shardCount > 0) {
+            throw new OpflowOperationException("PubsubBatchListener does not support the sharded subscription");
+        }
+        if (listener != null || (batchListener != null && batchListener != newListener)) {
+            if (logSubscribe.ready(LOG, Level.INFO)) LOG.info(logSubscribe
+                    .text("Consumer[${consumerId}] - subscribe() failed: supports only single PubsubListener")
+                    .stringify());
+            throw new OpflowOperationException("PubsubHandler supports only single PubsubListener");
+        }
+        batchListener = newListener;
+        
+        final BatchCollector collector = new BatchCollector(logSubscribe);
+        
+        OpflowEngine.ConsumerInfo consumer = engine.consume(new OpflowEngine.DeferredListener() {
             @Override
             public boolean processMessage(
                     byte[] content,
@@ -235,59 +477,10 @@ public class OpflowPubsubHandler implements AutoCloseable {
                     String queueName,
                     Channel channel,
                     String consumerTag,
-                    Map<String, String> extras
+                    Map<String, String> extras,
+                    OpflowEngine.Acknowledger acknowledger
             ) throws IOException {
-                Map<String, Object> headers = properties.getHeaders();
-                String routineId = OpflowUtil.getRoutineId(headers, false);
-                String routineTimestamp = OpflowUtil.getRoutineTimestamp(headers, false);
-                OpflowLogTracer reqTracer = null;
-                if (logSubscribe.ready(LOG, Level.INFO)) {
-                    reqTracer = logSubscribe.branch(OpflowConstant.REQUEST_TIME, routineTimestamp).branch(OpflowConstant.REQUEST_ID, routineId);
-                }
-                if (reqTracer != null && reqTracer.ready(LOG, Level.INFO)) LOG.info(reqTracer
-                        .text("Request[${requestId}][${requestTime}] - Consumer[${consumerId}].subscribe() receives a new request")
-                        .stringify());
-                try {
-                    listener.processMessage(new OpflowEngine.Message(content, headers));
-                    if (reqTracer != null && reqTracer.ready(LOG, Level.INFO)) LOG.info(reqTracer
-                            .text("Request[${requestId}][${requestTime}] - subscribe() request processing has completed")
-                            .stringify());
-                } catch (Exception exception) {
-                    int redeliveredCount = 0;
-                    if (headers.get("redeliveredCount") instanceof Integer) {
-                        redeliveredCount = (Integer) headers.get("redeliveredCount");
-                    }
-                    redeliveredCount += 1;
-                    headers.put("redeliveredCount", redeliveredCount);
-                    
-                    AMQP.BasicProperties.Builder propBuilder = copyBasicProperties(properties);
-                    AMQP.BasicProperties props = propBuilder.headers(headers).build();
-                    
-                    if (reqTracer != null && reqTracer.ready(LOG, Level.INFO)) LOG.info(reqTracer
-                            .put("redeliveredCount", redeliveredCount)
-                            .put("redeliveredLimit", redeliveredLimit)
-                            .text("Request[${requestId}][${requestTime}] - subscribe() recycling failed request")
-                            .stringify());
-                    
-                    if (redeliveredCount <= redeliveredLimit) {
-                        if (reqTracer != null && reqTracer.ready(LOG, Level.INFO)) LOG.info(reqTracer
-                                .text("Request[${requestId}][${requestTime}] - subscribe() requeue failed request")
-                                .stringify());
-                        sendToQueue(content, props, subscriberName, channel);
-                    } else {
-                        if (recyclebinName != null) {
-                            sendToQueue(content, props, recyclebinName, channel);
-                            if (reqTracer != null && reqTracer.ready(LOG, Level.INFO)) LOG.info(reqTracer
-                                    .put("recyclebinName", recyclebinName)
-                                    .text("Request[${requestId}][${requestTime}] - subscribe() enqueue failed request to recyclebin")
-                                    .stringify());
-                        } else {
-                            if (reqTracer != null && reqTracer.ready(LOG, Level.INFO)) LOG.info(reqTracer
-                                    .text("Request[${requestId}][${requestTime}] - subscribe() discard failed request (recyclebin not found)")
-                                    .stringify());
-                        }
-                    }
-                }
+                collector.add(new BatchItem(content, properties, channel, acknowledger));
                 return true;
             }
         }, OpflowObjectTree.buildMap(new OpflowObjectTree.Listener<Object>() {
@@ -296,11 +489,13 @@ public class OpflowPubsubHandler implements AutoCloseable {
                 opts.put(OpflowConstant.OPFLOW_PRODUCING_EXCHANGE_NAME, engine.getExchangeName());
                 opts.put(OpflowConstant.OPFLOW_PRODUCING_ROUTING_KEY, engine.getRoutingKey());
                 opts.put(OpflowConstant.OPFLOW_CONSUMING_CONSUMER_ID, _consumerId);
-                opts.put(OpflowConstant.OPFLOW_CONSUMING_AUTO_ACK, Boolean.TRUE);
+                opts.put(OpflowConstant.OPFLOW_CONSUMING_AUTO_ACK, Boolean.FALSE);
                 opts.put(OpflowConstant.OPFLOW_CONSUMING_QUEUE_NAME, subscriberName);
                 opts.put(OpflowConstant.OPFLOW_CONSUMING_BINDING_KEYS, bindingKeys);
-                opts.put(OpflowConstant.OPFLOW_CONSUMING_PREFETCH_COUNT, prefetchCount);
+                opts.put(OpflowConstant.OPFLOW_CONSUMING_PREFETCH_COUNT, Math.max(prefetchCount, batchSize));
                 opts.put(OpflowConstant.OPFLOW_CONSUMING_CONSUMER_LIMIT, subscriberLimit);
+                // the multiple-ack is only safe when the channel belongs to this consumer
+                opts.put("forceNewChannel", Boolean.TRUE);
             }
         }).toMap());
         consumerInfos.add(consumer);
@@ -310,6 +505,453 @@ public class OpflowPubsubHandler implements AutoCloseable {
         return consumer;
     }
     
+    private static class BatchItem {
+        private final byte[] content;
+        private final AMQP.BasicProperties properties;
+        private final Channel channel;
+        private final OpflowEngine.Acknowledger acknowledger;
+
+        BatchItem(byte[] content, AMQP.BasicProperties properties, Channel channel, OpflowEngine.Acknowledger acknowledger) {
+            this.content = content;
+            this.properties = properties;
+            this.channel = channel;
+            this.acknowledger = acknowledger;
+        }
+    }
+    
+    private class BatchCollector {
+        private final OpflowLogTracer logSubscribe;
+        private final Object flushLock = new Object();
+        private List<BatchItem> items;
+        private ScheduledFuture<?> lingerTask;
+        private final Runnable flushTask = new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        };
+
+        BatchCollector(OpflowLogTracer logSubscribe) {
+            this.logSubscribe = logSubscribe;
+            this.items = new ArrayList<>(batchSize);
+        }
+
+        void add(BatchItem item) {
+            try {
+                boolean full;
+                synchronized (this) {
+                    items.add(item);
+                    full = items.size() >= batchSize;
+                    if (!full && lingerTask == null) {
+                        lingerTask = assertBatchFlusher().schedule(flushTask, batchLinger, TimeUnit.MILLISECONDS);
+                    }
+                }
+                if (full) {
+                    assertBatchFlusher().execute(flushTask);
+                }
+            }
+            catch (RejectedExecutionException exception) {
+                // the handler has been closed, the pending messages go back to the queue
+                synchronized (flushLock) {
+                    requeue(drain());
+                }
+            }
+        }
+
+        private synchronized List<BatchItem> drain() {
+            if (lingerTask != null) {
+                lingerTask.cancel(false);
+                lingerTask = null;
+            }
+            List<BatchItem> batch = items;
+            items = new ArrayList<>(batchSize);
+            return batch;
+        }
+
+        void flush() {
+            // batches are drained and settled in the delivery order, so a multiple-ack never covers a pending batch
+            synchronized (flushLock) {
+                List<BatchItem> batch = drain();
+                if (batch.isEmpty()) return;
+                boolean[] settled = new boolean[batch.size()];
+                try {
+                    settle(batch, settled);
+                }
+                catch (Exception exception) {
+                    if (logSubscribe.ready(LOG, Level.ERROR)) LOG.error(logSubscribe
+                            .put("batchLength", batch.size())
+                            .put("exceptionClass", exception.getClass().getName())
+                            .put("exceptionMessage", exception.getMessage())
+                            .text("Consumer[${consumerId}] - the batch of ${batchLength} messages could not be settled, requeue the unsettled ones")
+                            .stringify());
+                    // the processed and the recycled messages are acked, only the remaining ones are delivered again
+                    for (int i = 0; i < batch.size(); i++) {
+                        try {
+                            if (settled[i]) {
+                                batch.get(i).acknowledger.ack(true);
+                            } else {
+                                batch.get(i).acknowledger.requeue();
+                            }
+                        }
+                        catch (IOException ioe) {}
+                    }
+                }
+            }
+        }
+
+        private void requeue(List<BatchItem> batch) {
+            for (BatchItem item : batch) {
+                try {
+                    item.acknowledger.requeue();
+                }
+                catch (IOException ioe) {}
+            }
+        }
+
+        private void settle(List<BatchItem> batch, boolean[] settled) throws IOException {
+            List<OpflowEngine.Message> messages = new ArrayList<>(batch.size());
+            for (BatchItem item : batch) {
+                messages.add(new OpflowEngine.Message(item.content, item.properties.getHeaders()));
+            }
+            Set<Integer> failures = null;
+            boolean crashed = false;
+            try {
+                failures = batchListener.processMessages(messages);
+                if (logSubscribe.ready(LOG, Level.INFO)) LOG.info(logSubscribe
+                        .put("batchLength", batch.size())
+                        .put("failedLength", (failures != null) ? failures.size() : 0)
+                        .text("Consumer[${consumerId}] - the batch of ${batchLength} messages has been processed, ${failedLength} failed")
+                        .stringify());
+            }
+            catch (Exception exception) {
+                crashed = true;
+                if (logSubscribe.ready(LOG, Level.INFO)) LOG.info(logSubscribe
+                        .put("batchLength", batch.size())
+                        .put("exceptionClass", exception.getClass().getName())
+                        .put("exceptionMessage", exception.getMessage())
+                        .text("Consumer[${consumerId}] - the batch of ${batchLength} messages has failed")
+                        .stringify());
+            }
+            boolean failed = crashed || (failures != null && !failures.isEmpty());
+            for (int i = 0; i < batch.size(); i++) {
+                settled[i] = !(crashed || (failed && failures.contains(i)));
+            }
+            if (failed) {
+                for (int i = 0; i < batch.size(); i++) {
+                    if (!settled[i]) {
+                        BatchItem item = batch.get(i);
+                        recycleMessage(item.content, item.properties, item.channel, createRequestTracer(item.properties.getHeaders(), logSubscribe), subscriberName);
+                        settled[i] = true;
+                    }
+                }
+            }
+            batch.get(batch.size() - 1).acknowledger.ackMultiple();
+        }
+    }
+    
+    private static class ShardSlot {
+        private final AtomicInteger inflight = new AtomicInteger(0);
+        private final Queue<OpflowEngine.Acknowledger> held = new ConcurrentLinkedQueue<>();
+        private volatile boolean owned = false;
+        private volatile boolean draining = false;
+        private volatile boolean released = false;
+
+        void hold(OpflowEngine.Acknowledger acknowledger) {
+            held.add(acknowledger);
+            // the draining may have been ended (or the shard released) meanwhile
+            if (released || !draining) {
+                requeueHeld();
+            }
+        }
+
+        void requeueHeld() {
+            OpflowEngine.Acknowledger acknowledger;
+            while ((acknowledger = held.poll()) != null) {
+                try {
+                    acknowledger.requeue();
+                }
+                catch (IOException ioe) {}
+            }
+        }
+
+        void release() {
+            draining = true;
+            released = true;
+            requeueHeld();
+        }
+    }
+    
+    private class ShardGroup {
+        private final OpflowLogTracer logSubscribe;
+        private final OpflowEngine.ConsumerInfo[] consumers = new OpflowEngine.ConsumerInfo[shardCount];
+        private final ShardSlot[] slots = new ShardSlot[shardCount];
+        private TimerTask rebalanceTask;
+
+        ShardGroup(OpflowLogTracer logSubscribe) {
+            this.logSubscribe = logSubscribe;
+        }
+
+        synchronized OpflowEngine.ConsumerInfo start() {
+            // the instances register on the shards in different orders, so the active consumers are spread out
+            int offset = ThreadLocalRandom.current().nextInt(shardCount);
+            for (int i = 0; i < shardCount; i++) {
+                int shard = (offset + i) % shardCount;
+                consumers[shard] = consumeShard(shard);
+            }
+            if (shardRebalanceInterval > 0) {
+                rebalanceTask = new TimerTask() {
+                    @Override
+                    public void run() {
+                        try {
+                            rebalance();
+                        }
+                        catch (Exception exception) {
+                            if (logSubscribe.ready(LOG, Level.ERROR)) LOG.error(logSubscribe
+                                    .put("exceptionClass", exception.getClass().getName())
+                                    .put("exceptionMessage", exception.getMessage())
+                                    .text("Consumer[${consumerId}] - rebalancing the shards has failed")
+                                    .stringify());
+                        }
+                    }
+                };
+                assertTimer().schedule(rebalanceTask, shardRebalanceInterval, shardRebalanceInterval);
+            }
+            if (logSubscribe.ready(LOG, Level.INFO)) LOG.info(logSubscribe
+                    .put("shardCount", shardCount)
+                    .text("Consumer[${consumerId}] - subscribe() has registered on ${shardCount} shards")
+                    .stringify());
+            return consumers[offset];
+        }
+
+        private OpflowEngine.ConsumerInfo consumeShard(final int shard) {
+            final String shardQueueName = shardQueueNames[shard];
+            final String shardConsumerId = OpflowUUID.getBase64ID();
+            slots[shard] = new ShardSlot();
+            return engine.consume(createEngineListener(logSubscribe, shardQueueName, slots[shard]), OpflowObjectTree.buildMap(new OpflowObjectTree.Listener<Object>() {
+                @Override
+                public void transform(Map<String, Object> opts) {
+                    opts.put(OpflowConstant.OPFLOW_CONSUMING_CONSUMER_ID, shardConsumerId);
+                    // the shards are acked manually, so that a released shard can give its pending messages back
+                    opts.put(OpflowConstant.OPFLOW_CONSUMING_AUTO_ACK, Boolean.FALSE);
+                    opts.put(OpflowConstant.OPFLOW_CONSUMING_QUEUE_NAME, shardQueueName);
+                    opts.put(OpflowConstant.OPFLOW_CONSUMING_AUTO_BINDING, Boolean.FALSE);
+                    opts.put(OpflowConstant.OPFLOW_CONSUMING_PREFETCH_COUNT, prefetchCount);
+                    opts.put("queueArguments", createShardArguments());
+                }
+            }).toMap());
+        }
+
+        synchronized void rebalance() {
+            int instances = 1;
+            for (String shardQueueName : shardQueueNames) {
+                instances = Math.max(instances, executor.countConsumers(shardQueueName));
+            }
+            int fairShare = (shardCount + instances - 1) / instances;
+            // a shard is owned since its first delivery, even when it is idle afterwards
+            List<Integer> actives = new ArrayList<>();
+            for (int i = 0; i < shardCount; i++) {
+                if (slots[i] != null && slots[i].owned) {
+                    actives.add(i);
+                }
+            }
+            if (logSubscribe.ready(LOG, Level.DEBUG)) LOG.debug(logSubscribe
+                    .put("instances", instances)
+                    .put("fairShare", fairShare)
+                    .put("activeShards", actives.size())
+                    .text("Consumer[${consumerId}] - is active on ${activeShards} shards, the fair share is ${fairShare} of ${instances} instances")
+                    .stringify());
+            // re-registering moves this consumer to the end of the single-active-consumer list,
+            // so the broker hands the shard over to a waiting instance
+            for (int k = 0; k < actives.size() - fairShare; k++) {
+                int shard = actives.get(k);
+                ShardSlot slot = slots[shard];
+                if (!drain(slot)) {
+                    // the shard is kept, the held messages are redelivered to this owner in their order
+                    slot.draining = false;
+                    slot.requeueHeld();
+                    if (logSubscribe.ready(LOG, Level.INFO)) LOG.info(logSubscribe
+                            .put("shardQueueName", shardQueueNames[shard])
+                            .put("inflight", slot.inflight.get())
+                            .text("Consumer[${consumerId}] - keeps the shard ${shardQueueName}, ${inflight} messages are still in flight")
+                            .stringify());
+                    continue;
+                }
+                engine.cancelConsumer(consumers[shard]);
+                slot.release();
+                consumers[shard] = consumeShard(shard);
+                if (logSubscribe.ready(LOG, Level.INFO)) LOG.info(logSubscribe
+                        .put("shardQueueName", shardQueueNames[shard])
+                        .text("Consumer[${consumerId}] - releases the shard ${shardQueueName}")
+                        .stringify());
+            }
+        }
+
+        private boolean drain(ShardSlot slot) {
+            // the new deliveries are held back, the handed out ones are settled before the shard is released
+            slot.draining = true;
+            long deadline = System.currentTimeMillis() + shardRebalanceInterval;
+            while (slot.inflight.get() > 0) {
+                if (System.currentTimeMillis() >= deadline) {
+                    return false;
+                }
+                try {
+                    Thread.sleep(SHARD_DRAIN_POLLING);
+                }
+                catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        synchronized void stop() {
+            if (rebalanceTask != null) {
+                rebalanceTask.cancel();
+                rebalanceTask = null;
+            }
+            for (int i = 0; i < shardCount; i++) {
+                if (consumers[i] != null) {
+                    engine.cancelConsumer(consumers[i]);
+                    consumers[i] = null;
+                }
+                if (slots[i] != null) {
+                    slots[i].release();
+                }
+            }
+        }
+    }
+    
+    private void declareShards() throws OpflowBootstrapException {
+        shardExchangeName = subscriberName + ".shards";
+        try {
+            executor.defineExchange(shardExchangeName, "x-consistent-hash", OpflowObjectTree.buildMap()
+                    .put("hash-header", shardKey)
+                    .toMap());
+        }
+        catch (OpflowOperationException exception) {
+            throw new OpflowBootstrapException("The sharded subscription requires the rabbitmq_consistent_hash_exchange plugin, " +
+                    "the exchange [" + shardExchangeName + "] cannot be declared", exception);
+        }
+        String pubsubExchangeName = engine.getExchangeName();
+        if (pubsubExchangeName != null) {
+            List<String> keys = new LinkedList<>();
+            if (engine.getRoutingKey() != null) {
+                keys.add(engine.getRoutingKey());
+            }
+            if (bindingKeys != null) {
+                keys.addAll(Arrays.asList(bindingKeys));
+            }
+            executor.bindExchangeToExchange(pubsubExchangeName, keys.toArray(new String[keys.size()]), shardExchangeName);
+        }
+        shardQueueNames = new String[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shardQueueNames[i] = subscriberName + ".shard." + i;
+            executor.assertQueue(shardQueueNames[i], null, null, null, createShardArguments());
+            // the binding key of a consistent-hash exchange is the weight of the queue
+            executor.bindExchange(shardExchangeName, "1", shardQueueNames[i]);
+        }
+    }
+    
+    private static Map<String, Object> createShardArguments() {
+        return OpflowObjectTree.buildMap()
+                .put("x-single-active-consumer", Boolean.TRUE)
+                .toMap();
+    }
+    
+    private synchronized Timer assertTimer() {
+        if (timer == null) {
+            timer = new Timer("Timer-" + OpflowUtil.extractClassName(OpflowPubsubHandler.class), true);
+        }
+        return timer;
+    }
+    
+    private synchronized ScheduledExecutorService assertBatchFlusher() {
+        // the batches are settled in the delivery order, away from the timer that rebalances the shards
+        if (batchFlusher == null) {
+            batchFlusher = Executors.newSingleThreadScheduledExecutor((Runnable runnable) -> {
+                Thread thread = new Thread(runnable, "Flusher-" + OpflowUtil.extractClassName(OpflowPubsubHandler.class));
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return batchFlusher;
+    }
+    
+    private OpflowLogTracer createRequestTracer(Map<String, Object> headers, OpflowLogTracer logSubscribe) {
+        if (!logSubscribe.ready(LOG, Level.INFO)) {
+            return null;
+        }
+        String routineId = OpflowUtil.getRoutineId(headers, false);
+        String routineTimestamp = OpflowUtil.getRoutineTimestamp(headers, false);
+        return logSubscribe.branch(OpflowConstant.REQUEST_TIME, routineTimestamp).branch(OpflowConstant.REQUEST_ID, routineId);
+    }
+    
+    private void handleMessage(byte[] content, AMQP.BasicProperties properties, Channel channel, OpflowLogTracer logSubscribe, String requeueName) {
+        Map<String, Object> headers = properties.getHeaders();
+        OpflowLogTracer reqTracer = createRequestTracer(headers, logSubscribe);
+        if (reqTracer != null && reqTracer.ready(LOG, Level.INFO)) LOG.info(reqTracer
+                .text("Request[${requestId}][${requestTime}] - Consumer[${consumerId}].subscribe() receives a new request")
+                .stringify());
+        try {
+            listener.processMessage(new OpflowEngine.Message(content, headers));
+            if (reqTracer != null && reqTracer.ready(LOG, Level.INFO)) LOG.info(reqTracer
+                    .text("Request[${requestId}][${requestTime}] - subscribe() request processing has completed")
+                    .stringify());
+        } catch (Exception exception) {
+            recycleMessage(content, properties, channel, reqTracer, requeueName);
+        }
+    }
+    
+    private void recycleMessage(byte[] content, AMQP.BasicProperties properties, Channel channel, OpflowLogTracer reqTracer, String requeueName) {
+        Map<String, Object> headers = properties.getHeaders();
+        int redeliveredCount = 0;
+        if (headers.get("redeliveredCount") instanceof Integer) {
+            redeliveredCount = (Integer) headers.get("redeliveredCount");
+        }
+        redeliveredCount += 1;
+        headers.put("redeliveredCount", redeliveredCount);
+        
+        AMQP.BasicProperties.Builder propBuilder = copyBasicProperties(properties);
+        AMQP.BasicProperties props = propBuilder.headers(headers).build();
+        
+        if (reqTracer != null && reqTracer.ready(LOG, Level.INFO)) LOG.info(reqTracer
+                .put("redeliveredCount", redeliveredCount)
+                .put("redeliveredLimit", redeliveredLimit)
+                .text("Request[${requestId}][${requestTime}] - subscribe() recycling failed request")
+                .stringify());
+        
+        if (redeliveredCount <= redeliveredLimit) {
+            if (retryQueueNames != null) {
+                int tier = Math.min(redeliveredCount, retryQueueNames.length) - 1;
+                long delay = jitter(retryDelays[tier]);
+                if (reqTracer != null && reqTracer.ready(LOG, Level.INFO)) LOG.info(reqTracer
+                        .put("retryQueueName", retryQueueNames[tier])
+                        .put("retryDelay", delay)
+                        .text("Request[${requestId}][${requestTime}] - subscribe() delay failed request in ${retryQueueName} for ${retryDelay}ms")
+                        .stringify());
+                sendToQueue(content, propBuilder.expiration(String.valueOf(delay)).build(), retryQueueNames[tier], channel);
+            } else {
+                if (reqTracer != null && reqTracer.ready(LOG, Level.INFO)) LOG.info(reqTracer
+                        .text("Request[${requestId}][${requestTime}] - subscribe() requeue failed request")
+                        .stringify());
+                sendToQueue(content, props, requeueName, channel);
+            }
+        } else {
+            if (recyclebinName != null) {
+                sendToQueue(content, props, recyclebinName, channel);
+                if (reqTracer != null && reqTracer.ready(LOG, Level.INFO)) LOG.info(reqTracer
+                        .put("recyclebinName", recyclebinName)
+                        .text("Request[${requestId}][${requestTime}] - subscribe() enqueue failed request to recyclebin")
+                        .stringify());
+            } else {
+                if (reqTracer != null && reqTracer.ready(LOG, Level.INFO)) LOG.info(reqTracer
+                        .text("Request[${requestId}][${requestTime}] - subscribe() discard failed request (recyclebin not found)")
+                        .stringify());
+            }
+        }
+    }
+    
     public final void serve() {
         if (restrictor != null) {
             restrictor.unblock();
@@ -326,12 +968,24 @@ public class OpflowPubsubHandler implements AutoCloseable {
                     .text("PubsubHandler[${pubsubHandlerId}][${instanceId}].close()")
                     .stringify());
             if (engine != null) {
+                synchronized (this) {
+                    if (timer != null) {
+                        timer.cancel();
+                        timer = null;
+                    }
+                }
+                for (ShardGroup group : shardGroups) {
+                    group.stop();
+                }
                 for(OpflowEngine.ConsumerInfo consumerInfo:consumerInfos) {
                     if (consumerInfo != null) {
                         engine.cancelConsumer(consumerInfo);
                     }
                 }
                 consumerInfos.clear();
+                shardGroups.clear();
+                shutdownBatchFlusher();
+                shutdownLanes();
                 engine.close();
             }
             if (logTracer.ready(LOG, Level.INFO)) LOG.info(logTracer
@@ -392,10 +1046,119 @@ public class OpflowPubsubHandler implements AutoCloseable {
     public int getRedeliveredLimit() {
         return redeliveredLimit;
     }
+
+    public long getRetryDelay() {
+        return retryDelay;
+    }
+
+    public long getRetryMaxDelay() {
+        return retryMaxDelay;
+    }
+    
+    private void declareRetryQueues() throws OpflowBootstrapException {
+        List<Long> delays = new LinkedList<>();
+        long delay = retryDelay;
+        while (delays.size() < redeliveredLimit) {
+            delays.add(delay);
+            if (delay >= retryMaxDelay) break;
+            delay = Math.min(delay * 2, retryMaxDelay);
+        }
+        retryQueueNames = new String[delays.size()];
+        retryDelays = new long[delays.size()];
+        int tier = 0;
+        for (Long tierDelay : delays) {
+            // the messages expire in the retry queue and are dead-lettered back to the subscriber queue
+            String queueName = subscriberName + ".retry." + tierDelay;
+            Map<String, Object> queueArgs = OpflowObjectTree.buildMap()
+                    .put("x-message-ttl", tierDelay)
+                    .toMap();
+            if (shardExchangeName != null) {
+                // the shard exchange hashes the shardKey header again, the message returns to its own shard
+                queueArgs.put("x-dead-letter-exchange", shardExchangeName);
+            } else {
+                queueArgs.put("x-dead-letter-exchange", "");
+                queueArgs.put("x-dead-letter-routing-key", subscriberName);
+            }
+            executor.assertQueue(queueName, null, null, null, queueArgs);
+            retryQueueNames[tier] = queueName;
+            retryDelays[tier] = tierDelay;
+            tier++;
+        }
+    }
+    
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public String getShardKey() {
+        return shardKey;
+    }
+    
+    public int getLaneCount() {
+        return laneCount;
+    }
+
+    public String getLaneKey() {
+        return laneKey;
+    }
+    
+    private ExecutorService selectLane(Map<String, Object> headers) {
+        Object key = (headers != null && laneKey != null) ? headers.get(laneKey) : null;
+        if (key == null) {
+            // no ordering is required, spread the messages over the lanes
+            return lanes[(laneCursor.getAndIncrement() & Integer.MAX_VALUE) % lanes.length];
+        }
+        return lanes[(key.toString().hashCode() & Integer.MAX_VALUE) % lanes.length];
+    }
+    
+    private void shutdownLanes() {
+        if (lanes == null) return;
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        for (ExecutorService lane : lanes) {
+            try {
+                if (!lane.awaitTermination(5, TimeUnit.SECONDS)) {
+                    lane.shutdownNow();
+                }
+            }
+            catch (InterruptedException exception) {
+                lane.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    private void shutdownBatchFlusher() {
+        ScheduledExecutorService flusher;
+        synchronized (this) {
+            flusher = batchFlusher;
+        }
+        if (flusher == null) return;
+        // the lingering batches are still flushed before the channels are closed
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(5, TimeUnit.SECONDS)) {
+                flusher.shutdownNow();
+            }
+        }
+        catch (InterruptedException exception) {
+            flusher.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static long jitter(long delay) {
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+    }
     
     private void sendToQueue(byte[] data, AMQP.BasicProperties replyProps, String queueName, Channel channel) {
         try {
-            channel.basicPublish("", queueName, replyProps, data);
+            // the lanes and the batches publish concurrently on the subscriber channel
+            synchronized (channel) {
+                channel.basicPublish("", queueName, replyProps, data);
+            }
         } catch (IOException exception) {
             throw new OpflowOperationException(exception);
         }
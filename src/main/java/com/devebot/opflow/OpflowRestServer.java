@@ -6,6 +6,7 @@ import com.devebot.opflow.exception.OpflowBootstrapException;
 import com.devebot.opflow.exception.OpflowOperationException;
 import com.devebot.opflow.supports.OpflowConverter;
 import com.devebot.opflow.supports.OpflowObjectTree;
+import com.devebot.opflow.supports.OpflowPromWriter;
 import com.devebot.opflow.supports.OpflowSystemInfo;
 import io.undertow.Undertow;
 import io.undertow.security.api.AuthenticationMechanism;
@@ -33,6 +34,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -56,6 +58,7 @@ public class OpflowRestServer implements AutoCloseable {
     private final Map<String, OpflowConnector> connectors;
     private final OpflowInfoCollector infoCollector;
     private final OpflowTaskSubmitter taskSubmitter;
+    private final OpflowPromMeasurer measurer;
     private final RoutingHandler defaultHandlers;
     private final String host;
     private final Integer port;
@@ -107,19 +110,23 @@ public class OpflowRestServer implements AutoCloseable {
         connectors = _connectors;
         infoCollector = _infoCollector;
         taskSubmitter = _taskSubmitter;
+        measurer = (OpflowPromMeasurer) OpflowUtil.getOptionField(kwargs, OpflowConstant.COMP_MEASURER, OpflowPromMeasurer.NULL);
         
         ExecHandler execHandler = new ExecHandler();
         
         InfoHandler infoHandler = new InfoHandler();
         TrafficHandler trafficHandler = new TrafficHandler();
         PingHandler pingHandler = new PingHandler();
+        MetricsHandler metricsHandler = new MetricsHandler();
         
         defaultHandlers = new RoutingHandler()
                 .get("/info", infoHandler)
                 .get("/exec/{action}", new BlockingHandler(execHandler))
+                .put("/exec/{action}", new BlockingHandler(execHandler))
                 .get("/traffic", trafficHandler)
                 .put("/traffic", new BlockingHandler(trafficHandler))
-                .get("/ping", pingHandler);
+                .get("/ping", pingHandler)
+                .get("/metrics", new BlockingHandler(metricsHandler));
     }
 
     public RoutingHandler getDefaultHandlers() {
@@ -368,6 +375,19 @@ public class OpflowRestServer implements AutoCloseable {
                             result = taskSubmitter.reset();
                             break;
 
+                        case "update-rate-limits":
+                            Map<String, Object> limits = null;
+                            if (exchange.getRequestMethod().equalToString("PUT")) {
+                                limits = OpflowJsonTool.toObjectMap(exchange.getInputStream());
+                            }
+                            if (limits == null) {
+                                exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "text/plain");
+                                exchange.setStatusCode(400).getResponseSender().send("The rate limits must be sent in the body of a PUT request, an empty object removes all of the rules");
+                                return;
+                            }
+                            result = taskSubmitter.updateRateLimits(limits);
+                            break;
+
                         case "activate-publisher":
                             boolean state_ = getQueryParam(exchange, "state", Boolean.class, true);
                             result = taskSubmitter.activateAllPublishers(state_, OpflowObjectTree.buildMap(false)
@@ -416,6 +436,9 @@ public class OpflowRestServer implements AutoCloseable {
                 }
                 exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "application/json");
                 exchange.getResponseSender().send(OpflowJsonTool.toString(result, getPrettyParam(exchange)));
+            } catch (IllegalArgumentException exception) {
+                exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "text/plain");
+                exchange.setStatusCode(400).getResponseSender().send(exception.getMessage());
             } catch (Exception exception) {
                 exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "text/plain");
                 exchange.setStatusCode(500).getResponseSender().send(exception.toString());
@@ -548,6 +571,66 @@ public class OpflowRestServer implements AutoCloseable {
         }
     }
 
+    class MetricsHandler implements HttpHandler {
+        private final OpflowPromWriter writer = new OpflowPromWriter();
+        private final long[] latencyBuffer = OpflowRpcInvocationCounter.createLatencyBuffer();
+
+        @Override
+        public void handleRequest(HttpServerExchange exchange) throws Exception {
+            // the writer and its buffer are reused by the scrapes, one at a time
+            synchronized (writer) {
+                // the samples are rendered completely before the response is committed
+                try {
+                    render();
+                } catch (Exception exception) {
+                    exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "text/plain");
+                    exchange.setStatusCode(500).getResponseSender().send(exception.toString());
+                    return;
+                }
+                exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, OpflowPromWriter.CONTENT_TYPE);
+                exchange.getResponseHeaders().put(Headers.CONTENT_LENGTH, writer.size());
+                writer.writeTo(exchange.getOutputStream());
+            }
+        }
+
+        private void render() {
+            writer.reset();
+            measurer.writeGauges(writer);
+            Map<OpflowRpcInvocationCounter, String> counters = collectCounters();
+            OpflowRpcInvocationCounter.writeInvocationFamily(writer);
+            for (Map.Entry<OpflowRpcInvocationCounter, String> entry : counters.entrySet()) {
+                entry.getKey().writeInvocations(writer, entry.getValue());
+            }
+            OpflowRpcInvocationCounter.writeLatencyFamily(writer);
+            for (Map.Entry<OpflowRpcInvocationCounter, String> entry : counters.entrySet()) {
+                entry.getKey().writeLatencies(writer, entry.getValue(), latencyBuffer);
+            }
+        }
+
+        private Map<OpflowRpcInvocationCounter, String> collectCounters() {
+            // a counter shared by several connectors is written once, without the connector label
+            Map<OpflowRpcInvocationCounter, String> counters = new IdentityHashMap<>();
+            for (Map.Entry<String, OpflowConnector> entry : connectors.entrySet()) {
+                OpflowRpcInvocationCounter counter = getCounter(entry.getValue());
+                if (counter != null) {
+                    if (counters.containsKey(counter)) {
+                        counters.put(counter, null);
+                    } else {
+                        counters.put(counter, entry.getKey());
+                    }
+                }
+            }
+            return counters;
+        }
+
+        private OpflowRpcInvocationCounter getCounter(OpflowConnector connector) {
+            if (connector == null || connector.getMeasurer() == null) {
+                return null;
+            }
+            return connector.getMeasurer().getRpcInvocationCounter(OpflowConstant.COMP_COMMANDER);
+        }
+    }
+
     private boolean getPrettyParam(HttpServerExchange exchange) {
         return getQueryParam(exchange, "pretty", Boolean.class, Boolean.FALSE);
     }
@@ -576,6 +659,7 @@ public class OpflowRestServer implements AutoCloseable {
                 return roles.contains("administrator") || roles.contains("monitoring");
             case "/info":
             case "/ping":
+            case "/metrics":
                 return roles.contains("administrator") || roles.contains("monitoring");
         }
         if (path.startsWith("/exec/")) {
@@ -35,10 +35,12 @@ public class OpflowRestrictable {
     
     public static class Runner extends OpflowRestrictable.Filter {
         protected final List<Filter> chain = new LinkedList<>();
+        private volatile Pipeline pipeline = null;
 
-        protected void append(Filter filter) {
+        protected synchronized void append(Filter filter) {
             if (filter != null) {
                 this.chain.add(0, filter);
+                this.pipeline = null;
             }
         }
 
@@ -50,17 +52,43 @@ public class OpflowRestrictable {
             }
         }
 
+        @Override
+        public synchronized void setParent(OpflowRestrictable.Filter parent) {
+            super.setParent(parent);
+            this.pipeline = null;
+        }
+
         @Override
         public <T> T filter(Action<T> action) throws Throwable {
-            Filter entrypoint = parent;
-            for (Filter node : chain) {
-                node.setParent(entrypoint);
-                entrypoint = node;
+            Pipeline current = pipeline;
+            if (current == null) {
+                current = compile();
             }
-            if (entrypoint == null) {
+            if (current.entrypoint == null) {
                 return null;
             }
-            return entrypoint.filter(action);
+            return current.entrypoint.filter(action);
+        }
+
+        private synchronized Pipeline compile() {
+            if (pipeline == null) {
+                // the nodes are linked once here, filter() only reads the frozen pipeline
+                Filter entrypoint = parent;
+                for (Filter node : chain) {
+                    node.setParent(entrypoint);
+                    entrypoint = node;
+                }
+                pipeline = new Pipeline(entrypoint);
+            }
+            return pipeline;
+        }
+    }
+
+    private static class Pipeline {
+        private final Filter entrypoint;
+
+        Pipeline(Filter entrypoint) {
+            this.entrypoint = entrypoint;
         }
     }
 }
@@ -1,23 +1,36 @@
 package com.devebot.opflow;
 
 import com.devebot.opflow.OpflowLogTracer.Level;
+import com.devebot.opflow.exception.OpflowBulkheadFullException;
 import com.devebot.opflow.exception.OpflowCancellationException;
+import com.devebot.opflow.exception.OpflowLoadSheddingException;
 import com.devebot.opflow.exception.OpflowPausingTimeoutException;
+import com.devebot.opflow.exception.OpflowRateLimitException;
+import com.devebot.opflow.exception.OpflowRequestTimeoutException;
 import com.devebot.opflow.exception.OpflowRestrictionException;
 import com.devebot.opflow.exception.OpflowServiceNotReadyException;
 import com.devebot.opflow.exception.OpflowSemaphoreTimeoutException;
 import com.devebot.opflow.supports.OpflowObjectTree;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.DoubleUnaryOperator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,6 +45,25 @@ public class OpflowRestrictor {
 
     public interface Action<T> extends OpflowRestrictable.Action<T> {}
 
+    public interface RoutineAction<T> extends Action<T> {
+        String getRoutineSignature();
+        default String getRoutineGroup() {
+            return null;
+        }
+        default String getConnectorName() {
+            return null;
+        }
+        default int getRoutinePriority() {
+            return 0;
+        }
+        default Long getRoutineDeadline() {
+            return null;
+        }
+        default boolean isTimedOut() {
+            return false;
+        }
+    }
+
     public static abstract class Filter extends OpflowRestrictable.Filter {
         protected OpflowPromMeasurer measurer = null;
         protected OpflowLogTracer logTracer = OpflowLogTracer.ROOT.copy();
@@ -80,94 +112,144 @@ public class OpflowRestrictor {
     }
 
     public static class Valve extends Filter {
-        private final ReentrantReadWriteLock valveLock;
+        private final LongAdder inflight = new LongAdder();
+        private final Object blockMonitor = new Object();
+        private volatile Thread blocker = null;
 
         public Valve() {
             this(null);
         }
         
         public Valve(Map<String, Object> options) {
-            this.valveLock = new ReentrantReadWriteLock();
         }
 
         public boolean isBlocked() {
-            return valveLock.isWriteLocked();
+            return blocker != null;
         }
 
         public void block() {
-            if(!valveLock.isWriteLockedByCurrentThread()) {
-                valveLock.writeLock().lock();
+            Thread current = Thread.currentThread();
+            if (blocker == current) {
+                return;
+            }
+            boolean interrupted = false;
+            synchronized (blockMonitor) {
+                while (blocker != null) {
+                    try {
+                        blockMonitor.wait();
+                    }
+                    catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                blocker = current;
+                // the gate is closed for the newcomers, wait for the in-flight actions to leave
+                while (inflight.sum() > 0) {
+                    try {
+                        blockMonitor.wait(10);
+                    }
+                    catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                current.interrupt();
             }
         }
 
         public void unblock() {
-            if(valveLock.isWriteLockedByCurrentThread()) {
-                valveLock.writeLock().unlock();
+            if (blocker == Thread.currentThread()) {
+                synchronized (blockMonitor) {
+                    blocker = null;
+                    blockMonitor.notifyAll();
+                }
             }
         }
 
         @Override
         public <T> T filter(OpflowRestrictable.Action<T> action) throws Throwable {
-            Lock rl = this.valveLock.readLock();
-            if (rl.tryLock()) {
+            inflight.increment();
+            Thread closer = blocker;
+            if (closer == null || closer == Thread.currentThread()) {
                 try {
                     return this.execute(action);
                 }
-                catch(OpflowCancellationException e) {
-                    if (measurer != null) {
-                        measurer.countRpcInvocation(OpflowConstant.COMP_COMMANDER, OpflowConstant.METHOD_INVOCATION_FLOW_RESTRICTOR, EMPTY, OpflowConstant.METHOD_INVOCATION_STATUS_CANCELLATION);
-                    }
-                    throw e;
-                }
-                catch(OpflowServiceNotReadyException e) {
-                    if (measurer != null) {
-                        measurer.countRpcInvocation(OpflowConstant.COMP_COMMANDER, OpflowConstant.METHOD_INVOCATION_FLOW_RESTRICTOR, EMPTY, OpflowConstant.METHOD_INVOCATION_STATUS_SERVICE_NOT_READY);
-                    }
-                    throw e;
-                }
-                catch(OpflowPausingTimeoutException e) {
-                    if (measurer != null) {
-                        measurer.countRpcInvocation(OpflowConstant.COMP_COMMANDER, OpflowConstant.METHOD_INVOCATION_FLOW_RESTRICTOR, EMPTY, OpflowConstant.METHOD_INVOCATION_STATUS_PAUSING_TIMEOUT);
-                    }
-                    throw e;
-                }
-                catch(OpflowSemaphoreTimeoutException e) {
-                    if (measurer != null) {
-                        measurer.countRpcInvocation(OpflowConstant.COMP_COMMANDER, OpflowConstant.METHOD_INVOCATION_FLOW_RESTRICTOR, EMPTY, OpflowConstant.METHOD_INVOCATION_STATUS_SEMAPHORE_TIMEOUT);
-                    }
-                    throw e;
-                }
                 catch(OpflowRestrictionException e) {
                     if (measurer != null) {
-                        measurer.countRpcInvocation(OpflowConstant.COMP_COMMANDER, OpflowConstant.METHOD_INVOCATION_FLOW_RESTRICTOR, EMPTY, OpflowConstant.METHOD_INVOCATION_STATUS_REJECTED);
+                        measurer.countRpcInvocation(OpflowConstant.COMP_COMMANDER, OpflowConstant.METHOD_INVOCATION_FLOW_RESTRICTOR, getRoutineSignature(action), getRestrictionStatus(e));
                     }
                     throw e;
                 }
                 finally {
-                    rl.unlock();
+                    leave();
                 }
             } else {
+                leave();
                 if (logTracer.ready(LOG, Level.WARN)) LOG.warn(logTracer
                         .text("Restrictor[${restrictorId}].filter() is not ready yet")
                         .stringify());
                 if (measurer != null) {
-                    measurer.countRpcInvocation(OpflowConstant.COMP_COMMANDER, OpflowConstant.METHOD_INVOCATION_FLOW_RESTRICTOR, EMPTY, OpflowConstant.METHOD_INVOCATION_STATUS_SERVICE_NOT_READY);
+                    measurer.countRpcInvocation(OpflowConstant.COMP_COMMANDER, OpflowConstant.METHOD_INVOCATION_FLOW_RESTRICTOR, getRoutineSignature(action), OpflowConstant.METHOD_INVOCATION_STATUS_SERVICE_NOT_READY);
                 }
                 throw new OpflowServiceNotReadyException("The valve restrictor is not ready yet");
             }
         }
+
+        private void leave() {
+            inflight.decrement();
+            if (blocker != null) {
+                synchronized (blockMonitor) {
+                    blockMonitor.notifyAll();
+                }
+            }
+        }
+    }
+
+    private static String getRoutineSignature(OpflowRestrictable.Action<?> action) {
+        if (action instanceof RoutineAction) {
+            String routineSignature = ((RoutineAction<?>) action).getRoutineSignature();
+            if (routineSignature != null) {
+                return routineSignature;
+            }
+        }
+        return EMPTY;
+    }
+
+    private static String getRestrictionStatus(OpflowRestrictionException e) {
+        if (e instanceof OpflowCancellationException) {
+            return OpflowConstant.METHOD_INVOCATION_STATUS_CANCELLATION;
+        }
+        if (e instanceof OpflowServiceNotReadyException) {
+            return OpflowConstant.METHOD_INVOCATION_STATUS_SERVICE_NOT_READY;
+        }
+        if (e instanceof OpflowPausingTimeoutException) {
+            return OpflowConstant.METHOD_INVOCATION_STATUS_PAUSING_TIMEOUT;
+        }
+        if (e instanceof OpflowSemaphoreTimeoutException) {
+            return OpflowConstant.METHOD_INVOCATION_STATUS_SEMAPHORE_TIMEOUT;
+        }
+        if (e instanceof OpflowRateLimitException) {
+            return OpflowConstant.METHOD_INVOCATION_STATUS_RATE_LIMITED;
+        }
+        if (e instanceof OpflowBulkheadFullException) {
+            return OpflowConstant.METHOD_INVOCATION_STATUS_BULKHEAD_FULL;
+        }
+        if (e instanceof OpflowLoadSheddingException) {
+            return OpflowConstant.METHOD_INVOCATION_STATUS_SHED;
+        }
+        return OpflowConstant.METHOD_INVOCATION_STATUS_REJECTED;
     }
 
     public static class Pause extends Filter implements AutoCloseable {
 
-        private final long PAUSE_SLEEPING_INTERVAL = 500;
         private final long PAUSE_TIMEOUT_DEFAULT = 0l;
 
-        private final ReentrantReadWriteLock pauseLock;
+        private final Object pauseMonitor = new Object();
         private boolean pauseEnabled = true;
         private long pauseTimeout = PAUSE_TIMEOUT_DEFAULT;
-        private PauseThread pauseThread;
-        private ExecutorService threadExecutor;
+        private volatile PauseState pauseState = null;
+        private ScheduledExecutorService pauseScheduler;
 
         public Pause() {
             this(null);
@@ -176,8 +258,6 @@ public class OpflowRestrictor {
         public Pause(Map<String, Object> options) {
             options = OpflowObjectTree.ensureNonNull(options);
 
-            pauseLock = new ReentrantReadWriteLock();
-
             if (options.get(OpflowConstant.OPFLOW_RESTRICT_PAUSE_ENABLED) instanceof Boolean) {
                 pauseEnabled = (Boolean) options.get(OpflowConstant.OPFLOW_RESTRICT_PAUSE_ENABLED);
             }
@@ -189,85 +269,18 @@ public class OpflowRestrictor {
             }
         }
         
-        private class PauseThread extends Thread {
-            private final ReentrantReadWriteLock rwlock;
-            private final String componentId;
-            private final OpflowLogTracer tracer;
-            private long duration = 0;
-            private long elapsed = 0;
-            private long count = 0;
-            private boolean running = true;
-
-            public String getComponentId() {
-                return componentId;
-            }
-
-            public long getDuration() {
-                return duration;
-            }
+        private static class PauseState {
+            private final String componentId = OpflowUUID.getBase64ID();
+            private final long duration;
+            private final long startTime = System.currentTimeMillis();
+            private ScheduledFuture<?> expiry;
 
-            public long getElapsed() {
-                return elapsed;
-            }
-
-            public boolean isLocked() {
-                return rwlock.isWriteLocked();
-            }
-
-            public void init(long duration) {
+            PauseState(long duration) {
                 this.duration = duration;
-                this.count = 0;
-                this.running = true;
-            }
-
-            public void terminate() {
-                running = false;
-            }
-
-            PauseThread(OpflowLogTracer logTracer, ReentrantReadWriteLock rwlock) {
-                this.rwlock = rwlock;
-                this.componentId = OpflowUUID.getBase64ID();
-                this.tracer = logTracer.copy();
-                if (tracer.ready(LOG, Level.TRACE)) LOG.trace(tracer
-                        .text("PauseThread[${restrictorId}] constructed")
-                        .stringify());
             }
 
-            @Override
-            public void run() {
-                if (duration <= 0) return;
-                if (rwlock.isWriteLocked()) return;
-                rwlock.writeLock().lock();
-                try {
-                    if(rwlock.isWriteLockedByCurrentThread()) {
-                        if (tracer.ready(LOG, Level.TRACE)) LOG.trace(tracer
-                                .put("duration", duration)
-                                .text("PauseThread[${restrictorId}].run() sleeping in ${duration} ms")
-                                .stringify());
-                        count = duration;
-                        while (running && count > 0) {
-                            Thread.sleep((count < PAUSE_SLEEPING_INTERVAL) ? count : PAUSE_SLEEPING_INTERVAL);
-                            count -= PAUSE_SLEEPING_INTERVAL;
-                            elapsed = duration - count;
-                        }
-                    }
-                }
-                catch (InterruptedException e) {
-                    if (tracer.ready(LOG, Level.TRACE)) LOG.trace(tracer
-                            .text("PauseThread[${restrictorId}].run() is interrupted")
-                            .stringify());
-                }
-                finally {
-                    if (tracer.ready(LOG, Level.TRACE)) LOG.trace(tracer
-                            .text("PauseThread[${restrictorId}].run() wake-up")
-                            .stringify());
-                    if(rwlock.isWriteLockedByCurrentThread()) {
-                        if (tracer.ready(LOG, Level.TRACE)) LOG.trace(tracer
-                                .text("PauseThread[${restrictorId}].run() done!")
-                                .stringify());
-                        rwlock.writeLock().unlock();
-                    }
-                }
+            long getElapsed() {
+                return Math.min(duration, System.currentTimeMillis() - startTime);
             }
         }
 
@@ -280,146 +293,794 @@ public class OpflowRestrictor {
         }
 
         public long getPauseDuration() {
-            if (pauseThread == null) {
-                return 0;
-            }
-            return pauseThread.getDuration();
+            PauseState state = pauseState;
+            return (state != null) ? state.duration : 0;
         }
 
         public long getPauseElapsed() {
-            if (pauseThread == null) {
-                return 0;
-            }
-            return pauseThread.getElapsed();
+            PauseState state = pauseState;
+            return (state != null) ? state.getElapsed() : 0;
         }
         
         public boolean isPaused() {
-            if (pauseThread == null) {
-                return false;
-            }
-            return pauseThread.isLocked();
+            return pauseState != null;
         }
 
         public synchronized Map<String, Object> pause(final long duration) {
-            if (pauseThread == null) {
-                pauseThread = new PauseThread(logTracer, pauseLock);
-            }
+            PauseState state = pauseState;
             Map<String, Object> result = OpflowObjectTree.buildMap()
-                    .put("threadId", pauseThread.getComponentId())
+                    .put("threadId", (state != null) ? state.componentId : null)
                     .put("status", "skipped")
                     .toMap();
-            if (!pauseThread.isLocked()) {
-                pauseThread.init(duration);
-                if (threadExecutor == null) {
-                    threadExecutor = Executors.newSingleThreadExecutor();
+            if (state == null && duration > 0) {
+                final PauseState created = new PauseState(duration);
+                if (pauseScheduler == null) {
+                    pauseScheduler = Executors.newSingleThreadScheduledExecutor((Runnable runnable) -> {
+                        Thread thread = new Thread(runnable, "Pause-" + OpflowUtil.extractClassName(OpflowRestrictor.class));
+                        thread.setDaemon(true);
+                        return thread;
+                    });
                 }
-                threadExecutor.execute(pauseThread);
+                pauseState = created;
+                created.expiry = pauseScheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        resume(created);
+                    }
+                }, duration, TimeUnit.MILLISECONDS);
+                if (logTracer.ready(LOG, Level.TRACE)) LOG.trace(logTracer
+                        .put("duration", duration)
+                        .text("Restrictor[${restrictorId}].pause() in ${duration} ms")
+                        .stringify());
+                result.put("threadId", created.componentId);
                 result.put("duration", duration);
-                result.put("status", pauseThread.isLocked() ? "locked" : "locking");
+                result.put("status", "locked");
             }
             return result;
         }
 
         public synchronized Map<String, Object> unpause() {
+            PauseState state = pauseState;
             Map<String, Object> result = OpflowObjectTree.buildMap()
-                    .put("threadId", pauseThread.getComponentId())
+                    .put("threadId", (state != null) ? state.componentId : null)
                     .toMap();
-            if (pauseThread == null) {
+            if (state == null) {
                 result.put("status", "free");
             } else {
-                pauseThread.terminate();
-                result.put("status", pauseThread.isLocked() ? "unlocking" : "unlocked");
+                if (state.expiry != null) {
+                    state.expiry.cancel(false);
+                }
+                resume(state);
+                result.put("status", "unlocked");
             }
             return result;
         }
 
+        private void resume(PauseState state) {
+            synchronized (pauseMonitor) {
+                if (pauseState == state) {
+                    pauseState = null;
+                    pauseMonitor.notifyAll();
+                    if (logTracer.ready(LOG, Level.TRACE)) LOG.trace(logTracer
+                            .text("Restrictor[${restrictorId}].resume() the pause has ended")
+                            .stringify());
+                }
+            }
+        }
+
+        private boolean await(long timeout) throws InterruptedException {
+            synchronized (pauseMonitor) {
+                if (timeout < 0) {
+                    while (pauseState != null) {
+                        pauseMonitor.wait();
+                    }
+                    return true;
+                }
+                long deadline = System.currentTimeMillis() + timeout;
+                while (pauseState != null) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    pauseMonitor.wait(remaining);
+                }
+                return true;
+            }
+        }
+
         @Override
         public <T> T filter(OpflowRestrictable.Action<T> action) throws Throwable {
-            if (!pauseEnabled) {
+            if (!pauseEnabled || pauseState == null) {
                 return this.execute(action);
             }
-            Lock rl = pauseLock.readLock();
-            if (pauseTimeout >= 0) {
+            if (logTracer.ready(LOG, Level.TRACE)) LOG.trace(logTracer
+                    .put("pauseTimeout", pauseTimeout)
+                    .text("Restrictor[${restrictorId}].filter() is paused, pauseTimeout: ${pauseTimeout} ms")
+                    .stringify());
+            try {
+                if (await(pauseTimeout)) {
+                    return this.execute(action);
+                }
+            }
+            catch (InterruptedException exception) {
                 if (logTracer.ready(LOG, Level.TRACE)) LOG.trace(logTracer
-                        .put("pauseTimeout", pauseTimeout)
-                        .text("Restrictor[${restrictorId}].filter() pauseTimeout: ${pauseTimeout} ms")
+                        .text("Restrictor[${restrictorId}].filter() waiting is interrupted")
                         .stringify());
-                try {
-                    if (rl.tryLock() || (pauseTimeout > 0 && rl.tryLock(pauseTimeout, TimeUnit.MILLISECONDS))) {
-                        try {
-                            if (logTracer.ready(LOG, Level.TRACE)) LOG.trace(logTracer
-                                    .text("Restrictor[${restrictorId}].filter() try")
-                                    .stringify());
-                            return this.execute(action);
-                        }
-                        finally {
-                            if (logTracer.ready(LOG, Level.TRACE)) LOG.trace(logTracer
-                                    .text("Restrictor[${restrictorId}].filter() finally")
-                                    .stringify());
-                            rl.unlock();
-                        }
-                    } else {
-                        if (logTracer.ready(LOG, Level.TRACE)) LOG.trace(logTracer
-                                .text("Restrictor[${restrictorId}].filter() tryLock() is timeout")
-                                .stringify());
-                        throw new OpflowPausingTimeoutException("tryLock() return false - the lock is not available");
+                throw new OpflowPausingTimeoutException("tryLock() is interrupted", exception);
+            }
+            if (logTracer.ready(LOG, Level.TRACE)) LOG.trace(logTracer
+                    .text("Restrictor[${restrictorId}].filter() waiting is timeout")
+                    .stringify());
+            throw new OpflowPausingTimeoutException("tryLock() return false - the lock is not available");
+        }
+        
+        @Override
+        public synchronized void close() {
+            PauseState state = pauseState;
+            if (state != null) {
+                resume(state);
+            }
+            if (pauseScheduler != null) {
+                if (logTracer.ready(LOG, Level.TRACE)) LOG.trace(logTracer
+                        .text("Restrictor[${restrictorId}].close() shutdown the pause scheduler")
+                        .stringify());
+                pauseScheduler.shutdownNow();
+                pauseScheduler = null;
+            }
+        }
+    }
+
+    public static class Rate extends Filter {
+        public final static String POLICY_REJECT = "reject";
+        public final static String POLICY_WAIT = "wait";
+        public final static String ANY_ROUTINE = "*";
+
+        private final long RATE_TIMEOUT_DEFAULT = 1000l;
+
+        private boolean rateEnabled = true;
+        private String ratePolicy = POLICY_REJECT;
+        private long rateTimeout = RATE_TIMEOUT_DEFAULT;
+        private volatile RateTable rateTable = new RateTable(null, false);
+
+        public Rate() {
+            this(null);
+        }
+
+        public Rate(Map<String, Object> options) {
+            options = OpflowObjectTree.ensureNonNull(options);
+
+            if (options.get(OpflowConstant.OPFLOW_RESTRICT_RATE_ENABLED) instanceof Boolean) {
+                rateEnabled = (Boolean) options.get(OpflowConstant.OPFLOW_RESTRICT_RATE_ENABLED);
+            }
+
+            if (POLICY_WAIT.equals(options.get(OpflowConstant.OPFLOW_RESTRICT_RATE_POLICY))) {
+                ratePolicy = POLICY_WAIT;
+            }
+
+            if (options.get(OpflowConstant.OPFLOW_RESTRICT_RATE_TIMEOUT) instanceof Long) {
+                rateTimeout = (Long) options.get(OpflowConstant.OPFLOW_RESTRICT_RATE_TIMEOUT);
+            } else if (options.get(OpflowConstant.OPFLOW_RESTRICT_RATE_TIMEOUT) instanceof Integer) {
+                rateTimeout = (Integer) options.get(OpflowConstant.OPFLOW_RESTRICT_RATE_TIMEOUT);
+            }
+
+            if (options.get(OpflowConstant.OPFLOW_RESTRICT_RATE_LIMITS) instanceof Map) {
+                rateTable = new RateTable((Map<String, Object>) options.get(OpflowConstant.OPFLOW_RESTRICT_RATE_LIMITS), false);
+            }
+        }
+
+        public boolean isRateEnabled() {
+            return rateEnabled;
+        }
+
+        public String getRatePolicy() {
+            return ratePolicy;
+        }
+
+        public long getRateTimeout() {
+            return rateTimeout;
+        }
+
+        public Map<String, Object> getRateLimits() {
+            return rateTable.toMap();
+        }
+
+        public Map<String, Object> updateRateLimits(Map<String, Object> limits) {
+            // an empty map removes the rules explicitly, a missing body must not do it by accident
+            if (limits == null) {
+                throw new IllegalArgumentException("The rate limits should not be null, an empty map removes all of the rules");
+            }
+            // the buckets of the previous rules are dropped together with the old table
+            RateTable updated = new RateTable(limits, true);
+            rateTable = updated;
+            if (logTracer.ready(LOG, Level.DEBUG)) LOG.debug(logTracer
+                    .put("routines", updated.rules.keySet())
+                    .text("Restrictor[${restrictorId}].updateRateLimits() applied the rules for ${routines}")
+                    .stringify());
+            return updated.toMap();
+        }
+
+        @Override
+        public <T> T filter(OpflowRestrictable.Action<T> action) throws Throwable {
+            if (!rateEnabled || !(action instanceof RoutineAction)) {
+                return this.execute(action);
+            }
+            RateTable table = rateTable;
+            if (table.rules.isEmpty()) {
+                return this.execute(action);
+            }
+            RoutineAction<T> routine = (RoutineAction<T>) action;
+            TokenBucket bucket = table.getBucket(routine.getRoutineSignature(), routine.getConnectorName());
+            if (bucket == null) {
+                return this.execute(action);
+            }
+            long maxWait = POLICY_WAIT.equals(ratePolicy) ? TimeUnit.MILLISECONDS.toNanos(rateTimeout) : 0;
+            long waitTime = bucket.reserve(maxWait);
+            if (waitTime < 0) {
+                if (logTracer.ready(LOG, Level.TRACE)) LOG.trace(logTracer
+                        .put("routineSignature", routine.getRoutineSignature())
+                        .text("Restrictor[${restrictorId}].filter() routine[${routineSignature}] is over the rate limit")
+                        .stringify());
+                throw new OpflowRateLimitException("The rate limit of the routine [" + routine.getRoutineSignature() + "] is exceeded");
+            }
+            if (waitTime > 0) {
+                long deadline = System.nanoTime() + waitTime;
+                do {
+                    LockSupport.parkNanos(this, waitTime);
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new OpflowRateLimitException("Waiting for the rate limit is interrupted");
                     }
+                    waitTime = deadline - System.nanoTime();
+                } while (waitTime > 0);
+            }
+            return this.execute(action);
+        }
+
+        private static class RateTable {
+            private final Map<String, RateRule> rules = new HashMap<>();
+            private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+            RateTable(Map<String, Object> limits, boolean strict) {
+                if (limits == null) {
+                    return;
                 }
-                catch (InterruptedException exception) {
-                    if (logTracer.ready(LOG, Level.TRACE)) LOG.trace(logTracer
-                            .text("Restrictor[${restrictorId}].filter() tryLock() is interrupted")
-                            .stringify());
-                    throw new OpflowPausingTimeoutException("tryLock() is interrupted", exception);
+                for (Map.Entry<String, Object> entry : limits.entrySet()) {
+                    RateRule rule = null;
+                    if (entry.getValue() instanceof Map) {
+                        rule = RateRule.parse((Map<String, Object>) entry.getValue());
+                    }
+                    if (rule != null) {
+                        rules.put(entry.getKey(), rule);
+                    } else if (strict) {
+                        throw new IllegalArgumentException("The rate limit of the routine [" + entry.getKey() + "] is invalid");
+                    }
                 }
-            } else {
-                if (logTracer.ready(LOG, Level.TRACE)) LOG.trace(logTracer
-                        .put("pauseTimeout", pauseTimeout)
-                        .text("Restrictor[${restrictorId}].filter() without pauseTimeout")
-                        .stringify());
-                rl.lock();
+            }
+
+            TokenBucket getBucket(String routineSignature, String connectorName) {
+                if (routineSignature == null) {
+                    return null;
+                }
+                String ruleName = routineSignature;
+                RateRule rule = rules.get(ruleName);
+                if (rule == null) {
+                    ruleName = ANY_ROUTINE;
+                    rule = rules.get(ruleName);
+                    if (rule == null) {
+                        return null;
+                    }
+                }
+                String bucketKey = routineSignature;
+                if (rule.perConnector && connectorName != null) {
+                    bucketKey = connectorName + "/" + routineSignature;
+                }
+                TokenBucket bucket = buckets.get(bucketKey);
+                if (bucket == null) {
+                    final RateRule matched = rule;
+                    bucket = buckets.computeIfAbsent(bucketKey, (String key) -> new TokenBucket(matched.burst, matched.refillPerSecond));
+                }
+                return bucket;
+            }
+
+            Map<String, Object> toMap() {
+                Map<String, Object> result = OpflowObjectTree.buildMap().toMap();
+                for (Map.Entry<String, RateRule> entry : rules.entrySet()) {
+                    RateRule rule = entry.getValue();
+                    result.put(entry.getKey(), OpflowObjectTree.buildMap()
+                            .put(OpflowConstant.OPFLOW_RESTRICT_RATE_BURST, rule.burst)
+                            .put(OpflowConstant.OPFLOW_RESTRICT_RATE_REFILL, rule.refillPerSecond)
+                            .put(OpflowConstant.OPFLOW_RESTRICT_RATE_PER_CONNECTOR, rule.perConnector)
+                            .toMap());
+                }
+                return result;
+            }
+        }
+
+        private static class RateRule {
+            private final int burst;
+            private final double refillPerSecond;
+            private final boolean perConnector;
+
+            RateRule(int burst, double refillPerSecond, boolean perConnector) {
+                this.burst = burst;
+                this.refillPerSecond = refillPerSecond;
+                this.perConnector = perConnector;
+            }
+
+            static RateRule parse(Map<String, Object> opts) {
+                Object refill = opts.get(OpflowConstant.OPFLOW_RESTRICT_RATE_REFILL);
+                if (!(refill instanceof Number) || ((Number) refill).doubleValue() <= 0) {
+                    return null;
+                }
+                double refillPerSecond = ((Number) refill).doubleValue();
+                int burst = (int) Math.max(1, Math.ceil(refillPerSecond));
+                if (opts.get(OpflowConstant.OPFLOW_RESTRICT_RATE_BURST) instanceof Number) {
+                    burst = Math.max(1, ((Number) opts.get(OpflowConstant.OPFLOW_RESTRICT_RATE_BURST)).intValue());
+                }
+                boolean perConnector = Boolean.TRUE.equals(opts.get(OpflowConstant.OPFLOW_RESTRICT_RATE_PER_CONNECTOR));
+                return new RateRule(burst, refillPerSecond, perConnector);
+            }
+        }
+
+        /*
+         * A token bucket kept as a single "theoretical arrival time" (GCRA): each call
+         * pushes the arrival time one emission interval forward, and the call conforms
+         * while the arrival time stays within burst intervals of now.
+         */
+        private static class TokenBucket {
+            private final static long MAX_SPAN = Long.MAX_VALUE >> 2;
+
+            private final long interval;
+            private final long capacity;
+            private final AtomicLong arrivalTime;
+
+            TokenBucket(int burst, double refillPerSecond) {
+                // the spans are saturated, so that the arrival time arithmetic never overflows
+                this.interval = Math.max(1, Math.min(MAX_SPAN, (long) (1000000000d / refillPerSecond)));
+                this.capacity = saturatedMultiply(interval, burst);
+                this.arrivalTime = new AtomicLong(System.nanoTime());
+            }
+
+            long reserve(long maxWait) {
+                long now = System.nanoTime();
+                while (true) {
+                    long current = arrivalTime.get();
+                    long next = Math.max(current, now) + interval;
+                    long waitTime = next - now - capacity;
+                    if (waitTime > maxWait) {
+                        return -1;
+                    }
+                    if (arrivalTime.compareAndSet(current, next)) {
+                        return Math.max(0, waitTime);
+                    }
+                }
+            }
+
+            private static long saturatedMultiply(long interval, int burst) {
                 try {
-                    return this.execute(action);
+                    return Math.min(MAX_SPAN, Math.multiplyExact(interval, (long) burst));
                 }
-                finally {
-                    rl.unlock();
+                catch (ArithmeticException exception) {
+                    return MAX_SPAN;
                 }
             }
         }
-        
+    }
+
+    public static class Bulkhead extends Filter {
+        public final static String ANY_ROUTINE = "*";
+
+        private final long BULKHEAD_TIMEOUT_DEFAULT = 0l;
+
+        private boolean bulkheadEnabled = true;
+        private long bulkheadTimeout = BULKHEAD_TIMEOUT_DEFAULT;
+        private final Map<String, Compartment> compartments = new HashMap<>();
+        private final Compartment.Template fallback;
+        private final ConcurrentHashMap<String, Compartment> routineCompartments = new ConcurrentHashMap<>();
+
+        public Bulkhead() {
+            this(null);
+        }
+
+        public Bulkhead(Map<String, Object> options) {
+            options = OpflowObjectTree.ensureNonNull(options);
+
+            if (options.get(OpflowConstant.OPFLOW_RESTRICT_BULKHEAD_ENABLED) instanceof Boolean) {
+                bulkheadEnabled = (Boolean) options.get(OpflowConstant.OPFLOW_RESTRICT_BULKHEAD_ENABLED);
+            }
+
+            if (options.get(OpflowConstant.OPFLOW_RESTRICT_BULKHEAD_TIMEOUT) instanceof Long) {
+                bulkheadTimeout = (Long) options.get(OpflowConstant.OPFLOW_RESTRICT_BULKHEAD_TIMEOUT);
+            } else if (options.get(OpflowConstant.OPFLOW_RESTRICT_BULKHEAD_TIMEOUT) instanceof Integer) {
+                bulkheadTimeout = (Integer) options.get(OpflowConstant.OPFLOW_RESTRICT_BULKHEAD_TIMEOUT);
+            }
+
+            Compartment.Template anyTemplate = null;
+            if (options.get(OpflowConstant.OPFLOW_RESTRICT_BULKHEADS) instanceof Map) {
+                Map<String, Object> bulkheads = (Map<String, Object>) options.get(OpflowConstant.OPFLOW_RESTRICT_BULKHEADS);
+                for (Map.Entry<String, Object> entry : bulkheads.entrySet()) {
+                    if (!(entry.getValue() instanceof Map)) {
+                        continue;
+                    }
+                    Compartment.Template template = Compartment.Template.parse((Map<String, Object>) entry.getValue(), bulkheadTimeout);
+                    if (template == null) {
+                        continue;
+                    }
+                    if (ANY_ROUTINE.equals(entry.getKey())) {
+                        anyTemplate = template;
+                    } else {
+                        compartments.put(entry.getKey(), template.create(entry.getKey()));
+                    }
+                }
+            }
+            fallback = anyTemplate;
+        }
+
+        public boolean isBulkheadEnabled() {
+            return bulkheadEnabled;
+        }
+
+        public long getBulkheadTimeout() {
+            return bulkheadTimeout;
+        }
+
+        public Map<String, Object> getBulkheads() {
+            Map<String, Object> result = OpflowObjectTree.buildMap().toMap();
+            for (Map.Entry<String, Compartment> entry : compartments.entrySet()) {
+                result.put(entry.getKey(), entry.getValue().toMap());
+            }
+            for (Map.Entry<String, Compartment> entry : routineCompartments.entrySet()) {
+                result.put(entry.getKey(), entry.getValue().toMap());
+            }
+            return result;
+        }
+
         @Override
-        public synchronized void close() {
-            if (threadExecutor != null) {
+        public <T> T filter(OpflowRestrictable.Action<T> action) throws Throwable {
+            if (!bulkheadEnabled || !(action instanceof RoutineAction)) {
+                return this.execute(action);
+            }
+            RoutineAction<T> routine = (RoutineAction<T>) action;
+            Compartment compartment = lookup(routine.getRoutineGroup(), routine.getRoutineSignature());
+            if (compartment == null) {
+                return this.execute(action);
+            }
+            boolean acquired;
+            try {
+                acquired = compartment.acquire();
+            }
+            catch (InterruptedException exception) {
+                compartment.rejected.increment();
+                throw new OpflowBulkheadFullException("bulkhead.acquire() is interrupted", exception);
+            }
+            if (!acquired) {
+                compartment.rejected.increment();
                 if (logTracer.ready(LOG, Level.TRACE)) LOG.trace(logTracer
-                        .text("Restrictor[${restrictorId}].close() disable new tasks from being submitted")
+                        .put("bulkheadName", compartment.name)
+                        .put("routineSignature", routine.getRoutineSignature())
+                        .text("Restrictor[${restrictorId}].filter() bulkhead[${bulkheadName}] is full, routine[${routineSignature}] is rejected")
                         .stringify());
-                threadExecutor.shutdown();
-                try {
-                    if (logTracer.ready(LOG, Level.TRACE)) LOG.trace(logTracer
-                            .text("Restrictor[${restrictorId}].close() wait a while for existing tasks to terminate")
-                            .stringify());
-                    if (!threadExecutor.awaitTermination(60, TimeUnit.SECONDS)) {
-                        if (logTracer.ready(LOG, Level.TRACE)) LOG.trace(logTracer
-                                .text("Restrictor[${restrictorId}].close() cancel currently executing tasks")
-                                .stringify());
-                        threadExecutor.shutdownNow();
-                        if (logTracer.ready(LOG, Level.TRACE)) LOG.trace(logTracer
-                                .text("Restrictor[${restrictorId}].close() wait a while for tasks to respond to being cancelled")
-                                .stringify());
-                        if (!threadExecutor.awaitTermination(60, TimeUnit.SECONDS)) {
-                            if (logTracer.ready(LOG, Level.TRACE)) LOG.trace(logTracer
-                                    .text("Restrictor[${restrictorId}].close() threadExecutor did not terminate")
-                                    .stringify());
+                throw new OpflowBulkheadFullException("The bulkhead [" + compartment.name + "] has no permits available");
+            }
+            try {
+                return this.execute(action);
+            }
+            finally {
+                compartment.semaphore.release();
+            }
+        }
+
+        private Compartment lookup(String routineGroup, String routineSignature) {
+            Compartment compartment = null;
+            if (routineGroup != null) {
+                compartment = compartments.get(routineGroup);
+            }
+            if (compartment == null && routineSignature != null) {
+                compartment = compartments.get(routineSignature);
+                if (compartment == null && fallback != null) {
+                    // each routine without an explicit bulkhead gets its own pool from the "*" template
+                    compartment = routineCompartments.get(routineSignature);
+                    if (compartment == null) {
+                        compartment = routineCompartments.computeIfAbsent(routineSignature, fallback::create);
+                    }
+                }
+            }
+            return compartment;
+        }
+
+        private static class Compartment {
+            private final String name;
+            private final int permits;
+            private final long timeout;
+            private final Semaphore semaphore;
+            private final LongAdder rejected = new LongAdder();
+
+            Compartment(String name, int permits, long timeout) {
+                this.name = name;
+                this.permits = permits;
+                this.timeout = timeout;
+                this.semaphore = new Semaphore(permits);
+            }
+
+            boolean acquire() throws InterruptedException {
+                if (timeout > 0) {
+                    return semaphore.tryAcquire(timeout, TimeUnit.MILLISECONDS);
+                }
+                if (timeout == 0) {
+                    return semaphore.tryAcquire();
+                }
+                semaphore.acquire();
+                return true;
+            }
+
+            Map<String, Object> toMap() {
+                return OpflowObjectTree.buildMap()
+                        .put(OpflowConstant.OPFLOW_RESTRICT_BULKHEAD_PERMITS, permits)
+                        .put(OpflowConstant.OPFLOW_RESTRICT_BULKHEAD_USED_PERMITS, permits - semaphore.availablePermits())
+                        .put(OpflowConstant.OPFLOW_RESTRICT_BULKHEAD_WAIT_TIMEOUT, timeout)
+                        .put(OpflowConstant.OPFLOW_RESTRICT_BULKHEAD_REJECTED, rejected.sum())
+                        .toMap();
+            }
+
+            private static class Template {
+                private final int permits;
+                private final long timeout;
+
+                Template(int permits, long timeout) {
+                    this.permits = permits;
+                    this.timeout = timeout;
+                }
+
+                Compartment create(String name) {
+                    return new Compartment(name, permits, timeout);
+                }
+
+                static Template parse(Map<String, Object> opts, long defaultTimeout) {
+                    if (!(opts.get(OpflowConstant.OPFLOW_RESTRICT_BULKHEAD_PERMITS) instanceof Number)) {
+                        return null;
+                    }
+                    int permits = ((Number) opts.get(OpflowConstant.OPFLOW_RESTRICT_BULKHEAD_PERMITS)).intValue();
+                    if (permits <= 0) {
+                        return null;
+                    }
+                    long timeout = defaultTimeout;
+                    if (opts.get(OpflowConstant.OPFLOW_RESTRICT_BULKHEAD_WAIT_TIMEOUT) instanceof Number) {
+                        timeout = ((Number) opts.get(OpflowConstant.OPFLOW_RESTRICT_BULKHEAD_WAIT_TIMEOUT)).longValue();
+                    }
+                    return new Template(permits, timeout);
+                }
+            }
+        }
+    }
+
+    public static class Shedding extends Filter {
+        private final static int WAITING = 0;
+        private final static int GRANTED = 1;
+        private final static int SHED = 2;
+
+        private final int SHEDDING_LIMIT_DEFAULT = 100;
+        private final int SHEDDING_QUEUE_SIZE_DEFAULT = 32;
+        private final long SHEDDING_TIMEOUT_DEFAULT = 1000l;
+
+        private boolean sheddingEnabled = false;
+        private int sheddingLimit = SHEDDING_LIMIT_DEFAULT;
+        private int sheddingQueueSize = SHEDDING_QUEUE_SIZE_DEFAULT;
+        private long sheddingTimeout = SHEDDING_TIMEOUT_DEFAULT;
+        private final Map<String, Integer> sheddingPriorities = new HashMap<>();
+
+        private final Object sheddingLock = new Object();
+        private final PriorityQueue<Waiter> waiters = new PriorityQueue<>();
+        private final LongAdder shedTotal = new LongAdder();
+        private int inflight = 0;
+        private long sequence = 0;
+        private volatile long serviceTime = 0;
+
+        public Shedding() {
+            this(null);
+        }
+
+        public Shedding(Map<String, Object> options) {
+            options = OpflowObjectTree.ensureNonNull(options);
+
+            if (options.get(OpflowConstant.OPFLOW_RESTRICT_SHEDDING_ENABLED) instanceof Boolean) {
+                sheddingEnabled = (Boolean) options.get(OpflowConstant.OPFLOW_RESTRICT_SHEDDING_ENABLED);
+            }
+
+            if (options.get(OpflowConstant.OPFLOW_RESTRICT_SHEDDING_LIMIT) instanceof Integer) {
+                sheddingLimit = Math.max(1, (Integer) options.get(OpflowConstant.OPFLOW_RESTRICT_SHEDDING_LIMIT));
+            }
+
+            if (options.get(OpflowConstant.OPFLOW_RESTRICT_SHEDDING_QUEUE_SIZE) instanceof Integer) {
+                sheddingQueueSize = Math.max(0, (Integer) options.get(OpflowConstant.OPFLOW_RESTRICT_SHEDDING_QUEUE_SIZE));
+            }
+
+            if (options.get(OpflowConstant.OPFLOW_RESTRICT_SHEDDING_TIMEOUT) instanceof Long) {
+                sheddingTimeout = (Long) options.get(OpflowConstant.OPFLOW_RESTRICT_SHEDDING_TIMEOUT);
+            } else if (options.get(OpflowConstant.OPFLOW_RESTRICT_SHEDDING_TIMEOUT) instanceof Integer) {
+                sheddingTimeout = (Integer) options.get(OpflowConstant.OPFLOW_RESTRICT_SHEDDING_TIMEOUT);
+            }
+
+            if (options.get(OpflowConstant.OPFLOW_RESTRICT_SHEDDING_PRIORITIES) instanceof Map) {
+                Map<String, Object> priorities = (Map<String, Object>) options.get(OpflowConstant.OPFLOW_RESTRICT_SHEDDING_PRIORITIES);
+                for (Map.Entry<String, Object> entry : priorities.entrySet()) {
+                    if (entry.getValue() instanceof Number) {
+                        sheddingPriorities.put(entry.getKey(), ((Number) entry.getValue()).intValue());
+                    }
+                }
+            }
+        }
+
+        public boolean isSheddingEnabled() {
+            return sheddingEnabled;
+        }
+
+        public int getSheddingLimit() {
+            return sheddingLimit;
+        }
+
+        public long getSheddingTimeout() {
+            return sheddingTimeout;
+        }
+
+        public int getSheddingInflight() {
+            synchronized (sheddingLock) {
+                return inflight;
+            }
+        }
+
+        public int getSheddingQueued() {
+            synchronized (sheddingLock) {
+                return waiters.size();
+            }
+        }
+
+        public long getSheddingTotal() {
+            return shedTotal.sum();
+        }
+
+        public long getServiceTime() {
+            return TimeUnit.NANOSECONDS.toMicros(serviceTime);
+        }
+
+        @Override
+        public <T> T filter(OpflowRestrictable.Action<T> action) throws Throwable {
+            if (!sheddingEnabled) {
+                return this.execute(action);
+            }
+            int priority = 0;
+            Long deadline = null;
+            if (action instanceof RoutineAction) {
+                RoutineAction<T> routine = (RoutineAction<T>) action;
+                Integer configured = sheddingPriorities.get(routine.getRoutineSignature());
+                priority = (configured != null) ? configured : routine.getRoutinePriority();
+                deadline = routine.getRoutineDeadline();
+            }
+            admit(priority, deadline);
+            long startTime = System.nanoTime();
+            try {
+                return this.execute(action);
+            }
+            finally {
+                release(System.nanoTime() - startTime);
+            }
+        }
+
+        private void admit(int priority, Long deadline) throws OpflowLoadSheddingException {
+            long now = System.currentTimeMillis();
+            if (deadline != null && deadline <= now) {
+                throw shed("The deadline of the request has already passed");
+            }
+            Waiter waiter;
+            synchronized (sheddingLock) {
+                if (inflight < sheddingLimit && waiters.isEmpty()) {
+                    inflight++;
+                    return;
+                }
+                // overloaded: a call that would miss its deadline even if it ran now is shed first
+                if (deadline != null && deadline - now < TimeUnit.NANOSECONDS.toMillis(serviceTime)) {
+                    throw shed("The request cannot meet its deadline");
+                }
+                waiter = new Waiter(priority, deadline, sequence++);
+                if (waiters.size() >= sheddingQueueSize) {
+                    Waiter weakest = null;
+                    for (Waiter item : waiters) {
+                        if (weakest == null || item.compareTo(weakest) > 0) {
+                            weakest = item;
                         }
                     }
-                } catch (InterruptedException ie) {
-                    if (logTracer.ready(LOG, Level.TRACE)) LOG.trace(logTracer
-                            .text("Restrictor[${restrictorId}].close() (re-)cancel if current thread also interrupted")
-                            .stringify());
-                    threadExecutor.shutdownNow();
+                    if (weakest == null || waiter.compareTo(weakest) >= 0) {
+                        throw shed("The request is shed by the overloaded restrictor");
+                    }
+                    waiters.remove(weakest);
+                    weakest.wakeup(SHED);
                 }
-                finally {
-                    threadExecutor = null;
+                waiters.add(waiter);
+            }
+            long waitUntil = now + sheddingTimeout;
+            if (deadline != null) {
+                waitUntil = Math.min(waitUntil, deadline);
+            }
+            while (waiter.state == WAITING) {
+                long remaining = waitUntil - System.currentTimeMillis();
+                if (remaining <= 0 || Thread.currentThread().isInterrupted()) {
+                    synchronized (sheddingLock) {
+                        if (waiter.state == WAITING) {
+                            waiters.remove(waiter);
+                            waiter.state = SHED;
+                        }
+                    }
+                    break;
                 }
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(remaining));
+            }
+            if (waiter.state != GRANTED) {
+                throw shed("The request is shed while waiting for a permit");
+            }
+        }
+
+        private void release(long elapsed) {
+            synchronized (sheddingLock) {
+                serviceTime = (serviceTime == 0) ? elapsed : (serviceTime * 7 + elapsed) / 8;
+                long now = System.currentTimeMillis();
+                Waiter next;
+                while ((next = waiters.poll()) != null) {
+                    if (next.deadline != null && next.deadline <= now) {
+                        next.wakeup(SHED);
+                        continue;
+                    }
+                    // the permit is handed over to the waiter, inflight stays unchanged
+                    next.wakeup(GRANTED);
+                    return;
+                }
+                inflight--;
+            }
+        }
+
+        private OpflowLoadSheddingException shed(String message) {
+            shedTotal.increment();
+            if (logTracer.ready(LOG, Level.TRACE)) LOG.trace(logTracer
+                    .put("message", message)
+                    .text("Restrictor[${restrictorId}].filter() ${message}")
+                    .stringify());
+            return new OpflowLoadSheddingException(message);
+        }
+
+        private static class Waiter implements Comparable<Waiter> {
+            private final int priority;
+            private final Long deadline;
+            private final long sequence;
+            private final Thread thread = Thread.currentThread();
+            private volatile int state = WAITING;
+
+            Waiter(int priority, Long deadline, long sequence) {
+                this.priority = priority;
+                this.deadline = deadline;
+                this.sequence = sequence;
+            }
+
+            void wakeup(int state) {
+                this.state = state;
+                LockSupport.unpark(thread);
+            }
+
+            @Override
+            public int compareTo(Waiter other) {
+                // the higher priority goes first, then the earlier deadline, then the arrival order
+                if (priority != other.priority) {
+                    return (priority > other.priority) ? -1 : 1;
+                }
+                if (deadline != null || other.deadline != null) {
+                    if (deadline == null) {
+                        return 1;
+                    }
+                    if (other.deadline == null) {
+                        return -1;
+                    }
+                    int result = Long.compare(deadline, other.deadline);
+                    if (result != 0) {
+                        return result;
+                    }
+                }
+                return Long.compare(sequence, other.sequence);
             }
         }
     }
@@ -429,10 +1090,14 @@ public class OpflowRestrictor {
         private final int SEMAPHORE_LIMIT_DEFAULT = 1000;
         private final long SEMAPHORE_TIMEOUT_DEFAULT = 0l;
 
+        private final int ADAPTIVE_MIN_LIMIT_DEFAULT = 4;
+        private final int ADAPTIVE_INITIAL_LIMIT_DEFAULT = 20;
+
         private boolean semaphoreEnabled = false;
         private long semaphoreTimeout = SEMAPHORE_TIMEOUT_DEFAULT;
         private final int semaphoreLimit;
         private final Semaphore semaphore;
+        private final GradientLimiter adaptiveLimiter;
         
         public Limit(Map<String, Object> options) {
             options = OpflowObjectTree.ensureNonNull(options);
@@ -455,13 +1120,32 @@ public class OpflowRestrictor {
             }
 
             this.semaphore = new Semaphore(this.semaphoreLimit);
+
+            if (Boolean.TRUE.equals(options.get(OpflowConstant.OPFLOW_RESTRICT_ADAPTIVE_ENABLED))) {
+                int minLimit = ADAPTIVE_MIN_LIMIT_DEFAULT;
+                if (options.get(OpflowConstant.OPFLOW_RESTRICT_ADAPTIVE_MIN_LIMIT) instanceof Integer) {
+                    minLimit = Math.max(1, (Integer) options.get(OpflowConstant.OPFLOW_RESTRICT_ADAPTIVE_MIN_LIMIT));
+                }
+                int initialLimit = ADAPTIVE_INITIAL_LIMIT_DEFAULT;
+                if (options.get(OpflowConstant.OPFLOW_RESTRICT_ADAPTIVE_INITIAL_LIMIT) instanceof Integer) {
+                    initialLimit = (Integer) options.get(OpflowConstant.OPFLOW_RESTRICT_ADAPTIVE_INITIAL_LIMIT);
+                }
+                minLimit = Math.min(minLimit, semaphoreLimit);
+                initialLimit = Math.max(minLimit, Math.min(initialLimit, semaphoreLimit));
+                this.adaptiveLimiter = new GradientLimiter(minLimit, semaphoreLimit, initialLimit);
+            } else {
+                this.adaptiveLimiter = null;
+            }
         }
 
         public int getSemaphoreLimit() {
-            return semaphoreLimit;
+            return (adaptiveLimiter != null) ? adaptiveLimiter.getLimit() : semaphoreLimit;
         }
 
         public int getSemaphorePermits() {
+            if (adaptiveLimiter != null) {
+                return Math.max(0, adaptiveLimiter.getLimit() - adaptiveLimiter.getInflight());
+            }
             return semaphore.availablePermits();
         }
 
@@ -473,11 +1157,30 @@ public class OpflowRestrictor {
             return semaphoreTimeout;
         }
 
+        public boolean isAdaptiveEnabled() {
+            return adaptiveLimiter != null;
+        }
+
+        public int getAdaptiveLimit() {
+            return (adaptiveLimiter != null) ? adaptiveLimiter.getLimit() : semaphoreLimit;
+        }
+
+        public int getAdaptiveInflight() {
+            return (adaptiveLimiter != null) ? adaptiveLimiter.getInflight() : semaphoreLimit - semaphore.availablePermits();
+        }
+
+        public long getAdaptiveRtt() {
+            return (adaptiveLimiter != null) ? adaptiveLimiter.getRtt() : 0;
+        }
+
         @Override
         public <T> T filter(OpflowRestrictable.Action<T> action) throws Throwable {
             if (!semaphoreEnabled) {
                 return action.process();
             }
+            if (adaptiveLimiter != null) {
+                return filterAdaptively(action);
+            }
             try {
                 if (semaphoreTimeout > 0) {
                     if (semaphore.tryAcquire(semaphoreTimeout, TimeUnit.MILLISECONDS)) {
@@ -504,6 +1207,167 @@ public class OpflowRestrictor {
                 throw new OpflowSemaphoreTimeoutException("semaphore.acquire() is interrupted", exception);
             }
         }
+
+        private <T> T filterAdaptively(OpflowRestrictable.Action<T> action) throws Throwable {
+            try {
+                if (!adaptiveLimiter.acquire(semaphoreTimeout)) {
+                    throw new OpflowSemaphoreTimeoutException("There are no permits available");
+                }
+            }
+            catch (InterruptedException exception) {
+                throw new OpflowSemaphoreTimeoutException("adaptiveLimiter.acquire() is interrupted", exception);
+            }
+            long startTime = System.nanoTime();
+            boolean dropped = false;
+            try {
+                return action.process();
+            }
+            catch (OpflowRequestTimeoutException exception) {
+                dropped = true;
+                throw exception;
+            }
+            finally {
+                // the remote timeouts are rescued by the native worker, so the action reports them itself
+                if (action instanceof RoutineAction && ((RoutineAction<?>) action).isTimedOut()) {
+                    dropped = true;
+                }
+                adaptiveLimiter.release(System.nanoTime() - startTime, dropped);
+            }
+        }
+    }
+
+    /*
+     * A gradient based concurrency limit: the ratio between the long-term and the
+     * short-term round-trip time shrinks the limit when the latency inflates, and the
+     * sqrt(limit) headroom lets it grow while the latency is flat. Timeouts cut the
+     * limit multiplicatively.
+     */
+    private static class GradientLimiter {
+        private final static double TOLERANCE = 1.5;
+        private final static double SMOOTHING = 0.2;
+        private final static double LONG_RTT_WEIGHT = 0.01;
+        private final static double BACKOFF_RATIO = 0.9;
+
+        /*
+         * The permits are taken with a CAS on the inflight counter, the blocked callers
+         * park in a queue and every release wakes the head of the queue only; a waiter
+         * that leaves while permits are still free passes the wakeup on.
+         */
+        private final int minLimit;
+        private final int maxLimit;
+        private final AtomicLong estimatedLimit;
+        private final AtomicLong longRtt = new AtomicLong(Double.doubleToLongBits(0));
+        private final AtomicInteger inflight = new AtomicInteger(0);
+        private final ConcurrentLinkedQueue<Thread> waiters = new ConcurrentLinkedQueue<>();
+
+        GradientLimiter(int minLimit, int maxLimit, int initialLimit) {
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.estimatedLimit = new AtomicLong(Double.doubleToLongBits(initialLimit));
+        }
+
+        int getLimit() {
+            return (int) Double.longBitsToDouble(estimatedLimit.get());
+        }
+
+        int getInflight() {
+            return inflight.get();
+        }
+
+        long getRtt() {
+            return (long) (Double.longBitsToDouble(longRtt.get()) / 1000);
+        }
+
+        boolean acquire(long timeout) throws InterruptedException {
+            if (tryAcquire()) {
+                return true;
+            }
+            long deadline = (timeout > 0) ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout) : 0;
+            Thread current = Thread.currentThread();
+            waiters.add(current);
+            try {
+                while (!tryAcquire()) {
+                    if (timeout > 0) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            return false;
+                        }
+                        LockSupport.parkNanos(this, remaining);
+                    } else {
+                        LockSupport.park(this);
+                    }
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+                return true;
+            }
+            finally {
+                waiters.remove(current);
+                if (inflight.get() < getLimit()) {
+                    signal();
+                }
+            }
+        }
+
+        void release(long rtt, boolean dropped) {
+            int sampledInflight = inflight.getAndDecrement();
+            if (dropped) {
+                updateLimit((double limit) -> limit * BACKOFF_RATIO);
+            } else {
+                final double baseline = updateLongRtt(rtt);
+                // an application limited load carries no information about the capacity
+                if (sampledInflight >= Double.longBitsToDouble(estimatedLimit.get()) / 2) {
+                    final double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * baseline / Math.max(rtt, 1)));
+                    updateLimit((double limit) -> limit * (1 - SMOOTHING) + (limit * gradient + Math.sqrt(limit)) * SMOOTHING);
+                }
+            }
+            signal();
+        }
+
+        private boolean tryAcquire() {
+            while (true) {
+                int current = inflight.get();
+                if (current >= getLimit()) {
+                    return false;
+                }
+                if (inflight.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void signal() {
+            Thread waiter = waiters.peek();
+            if (waiter != null) {
+                LockSupport.unpark(waiter);
+            }
+        }
+
+        private double updateLongRtt(long rtt) {
+            while (true) {
+                long bits = longRtt.get();
+                double current = Double.longBitsToDouble(bits);
+                double next = (current == 0) ? rtt : current * (1 - LONG_RTT_WEIGHT) + rtt * LONG_RTT_WEIGHT;
+                // let the baseline recover quickly when the latency falls back
+                if (next > rtt * 2) {
+                    next = next * 0.95;
+                }
+                if (longRtt.compareAndSet(bits, Double.doubleToLongBits(next))) {
+                    return next;
+                }
+            }
+        }
+
+        private void updateLimit(DoubleUnaryOperator operator) {
+            while (true) {
+                long bits = estimatedLimit.get();
+                double next = Math.max(minLimit, Math.min(maxLimit, operator.applyAsDouble(Double.longBitsToDouble(bits))));
+                if (estimatedLimit.compareAndSet(bits, Double.doubleToLongBits(next))) {
+                    return;
+                }
+            }
+        }
     }
     
     public static class Cache extends Filter {
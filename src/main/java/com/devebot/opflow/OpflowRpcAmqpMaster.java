@@ -4,7 +4,9 @@ import com.devebot.opflow.OpflowLogTracer.Level;
 import com.devebot.opflow.exception.OpflowBootstrapException;
 import com.devebot.opflow.exception.OpflowNonOperatingException;
 import com.devebot.opflow.exception.OpflowOperationException;
+import com.devebot.opflow.exception.OpflowRequestTimeoutException;
 import com.devebot.opflow.exception.OpflowRestrictionException;
+import com.devebot.opflow.supports.OpflowCompressor;
 import com.devebot.opflow.supports.OpflowConcurrentMap;
 import com.devebot.opflow.supports.OpflowObjectTree;
 import com.rabbitmq.nostro.client.AMQP;
@@ -60,6 +62,8 @@ public class OpflowRpcAmqpMaster implements AutoCloseable {
     private final int monitorInterval;
     private final long monitorTimeout;
     
+    private final boolean progressCoalesced;
+    
     private final boolean autorun;
     
     public OpflowRpcAmqpMaster(Map<String, Object> kwargs) throws OpflowBootstrapException {
@@ -88,6 +92,15 @@ public class OpflowRpcAmqpMaster implements AutoCloseable {
         brokerParams.put(OpflowConstant.OPFLOW_PRODUCING_EXCHANGE_DURABLE, kwargs.get(OpflowConstant.OPFLOW_DISPATCH_EXCHANGE_DURABLE));
         brokerParams.put(OpflowConstant.OPFLOW_PRODUCING_ROUTING_KEY, kwargs.get(OpflowConstant.OPFLOW_DISPATCH_ROUTING_KEY));
         
+        // Claim-check section
+        OpflowBlobStore blobStore = (OpflowBlobStore) OpflowUtil.getOptionField(kwargs, OpflowConstant.COMP_BLOB_STORE, null);
+        if (blobStore == null && OpflowUtil.getBooleanField(kwargs, OpflowConstant.OPFLOW_CLAIM_CHECK_ENABLED, Boolean.FALSE)) {
+            blobStore = new OpflowMappedBlobStore(OpflowUtil.getStringField(kwargs, OpflowConstant.OPFLOW_CLAIM_CHECK_DIRECTORY),
+                    OpflowUtil.getLongField(kwargs, OpflowConstant.OPFLOW_CLAIM_CHECK_RETENTION, OpflowMappedBlobStore.RETENTION_DEFAULT));
+        }
+        brokerParams.put(OpflowConstant.COMP_BLOB_STORE, blobStore);
+        brokerParams.put(OpflowConstant.OPFLOW_CLAIM_CHECK_THRESHOLD, kwargs.get(OpflowConstant.OPFLOW_CLAIM_CHECK_THRESHOLD));
+        
         engine = new OpflowEngine(brokerParams);
         executor = new OpflowExecutor(engine);
         
@@ -153,6 +166,9 @@ public class OpflowRpcAmqpMaster implements AutoCloseable {
         monitorInterval = OpflowUtil.getIntegerField(kwargs, OpflowConstant.OPFLOW_RPC_MONITOR_INTERVAL, 14000); // can run 2-3 times in 30s
         monitorTimeout = OpflowUtil.getLongField(kwargs, OpflowConstant.OPFLOW_RPC_MONITOR_TIMEOUT, 0l);
         
+        // Progress section
+        progressCoalesced = OpflowUtil.getBooleanField(kwargs, OpflowConstant.OPFLOW_PROGRESS_COALESCED, Boolean.FALSE);
+        
         // Autorun section
         autorun = OpflowUtil.getBooleanField(kwargs, OpflowConstant.OPFLOW_COMMON_AUTORUN, Boolean.FALSE);
         
@@ -191,21 +207,22 @@ public class OpflowRpcAmqpMaster implements AutoCloseable {
         if (callbackConsumer == null) {
             synchronized (callbackConsumerLock) {
                 if (callbackConsumer == null) {
-                    callbackConsumer = createCallbackConsumer(isTransient);
+                    callbackConsumer = createCallbackConsumer(isTransient, false);
                 }
             }
         }
         return callbackConsumer;
     }
     
-    private OpflowEngine.ConsumerInfo createCallbackConsumer(final boolean isTransient) {
+    private OpflowEngine.ConsumerInfo createCallbackConsumer(final boolean isTransient, final boolean isStreamed) {
         final String _consumerId = OpflowUUID.getBase64ID();
         final OpflowLogTracer logSession = logTracer.branch("consumerId", _consumerId);
         if (logSession.ready(LOG, Level.INFO)) LOG.info(logSession
                 .put("isTransient", isTransient)
-                .text("initCallbackConsumer() is invoked (isTransient: ${isTransient})")
+                .put("isStreamed", isStreamed)
+                .text("initCallbackConsumer() is invoked (isTransient: ${isTransient}, isStreamed: ${isStreamed})")
                 .stringify());
-        return engine.consume(new OpflowEngine.Listener() {
+        return engine.consume(new OpflowEngine.DeferredListener() {
             @Override
             public boolean processMessage(
                     byte[] content,
@@ -213,7 +230,8 @@ public class OpflowRpcAmqpMaster implements AutoCloseable {
                     String queueName,
                     Channel channel,
                     String consumerTag,
-                    Map<String, String> extras
+                    Map<String, String> extras,
+                    OpflowEngine.Acknowledger acknowledger
             ) throws IOException {
                 String taskId = properties.getCorrelationId();
                 Map<String, Object> headers = properties.getHeaders();
@@ -248,12 +266,14 @@ public class OpflowRpcAmqpMaster implements AutoCloseable {
                         .put("correlationId", taskId)
                         .text("Request[${requestId}][${requestTime}][x-rpc-master-callback-skipped] - task[${correlationId}] not found, skipped")
                         .stringify());
+                    acknowledger.ack(true);
                 } else {
                     if (reqTracer != null && reqTracer.ready(LOG, Level.DEBUG)) LOG.debug(reqTracer
                         .put("correlationId", taskId)
                         .text("Request[${requestId}][${requestTime}][x-rpc-master-callback-finished] - push message to task[${correlationId}] and return")
                         .stringify());
-                    task.push(new OpflowEngine.Message(content, headers));
+                    // a chunk of the streamed result is acknowledged when the reader takes it
+                    task.push(new OpflowEngine.Message(content, headers, properties.getContentEncoding()), acknowledger);
                 }
                 
                 // collect the information of the workers
@@ -275,7 +295,14 @@ public class OpflowRpcAmqpMaster implements AutoCloseable {
                     opts.put(OpflowConstant.OPFLOW_CONSUMING_CONSUMER_LIMIT, CONSUMER_MAX);
                 }
                 opts.put(OpflowConstant.OPFLOW_CONSUMING_AUTO_BINDING, Boolean.FALSE);
-                opts.put(OpflowConstant.OPFLOW_CONSUMING_PREFETCH_COUNT, responsePrefetchCount);
+                if (isStreamed) {
+                    // the unacked chunks throttle this stream only, the basicQos needs its own channel
+                    opts.put("forceNewChannel", Boolean.TRUE);
+                    opts.put(OpflowConstant.OPFLOW_CONSUMING_AUTO_ACK, Boolean.FALSE);
+                    opts.put(OpflowConstant.OPFLOW_CONSUMING_PREFETCH_COUNT, OpflowRpcAmqpRequest.CHUNK_PREFETCH_LIMIT);
+                } else {
+                    opts.put(OpflowConstant.OPFLOW_CONSUMING_PREFETCH_COUNT, responsePrefetchCount);
+                }
             }
         }).toMap());
     }
@@ -383,14 +410,28 @@ public class OpflowRpcAmqpMaster implements AutoCloseable {
             params.setRoutineTTL(_expiration + TIMEOUT_DELAY);
         }
         
+        // a nested call must not outlive the deadline of the request that it belongs to
+        Long _remaining = OpflowRpcDeadline.remaining(params.getRoutineDeadline());
+        if (_remaining != null) {
+            if (_remaining <= 0) {
+                throw new OpflowRequestTimeoutException("The deadline of the request has already passed");
+            }
+            if (_expiration <= 0 || _expiration + TIMEOUT_DELAY > _remaining) {
+                _expiration = Math.max(_remaining - TIMEOUT_DELAY, 1);
+                params.setRoutineTTL(_remaining);
+            }
+        }
+        
         final OpflowLogTracer reqTracer = logTracer.branch(OpflowConstant.REQUEST_TIME, params.getRoutineTimestamp())
                 .branch(OpflowConstant.REQUEST_ID, params.getRoutineId(), params);
         
         assertCallbackMonitor();
         
+        final boolean isStreamed = Boolean.TRUE.equals(params.getStreamEnabled());
+        final boolean isTransient = isStreamed || params.getCallbackTransient();
         final OpflowEngine.ConsumerInfo consumerInfo;
-        if (params.getCallbackTransient()) {
-            consumerInfo = createCallbackConsumer(true);
+        if (isTransient) {
+            consumerInfo = createCallbackConsumer(true, isStreamed);
         } else {
             consumerInfo = assertCallbackConsumer(false);
         }
@@ -411,7 +452,7 @@ public class OpflowRpcAmqpMaster implements AutoCloseable {
                 eventLock.lock();
                 try {
                     tasks.remove(taskId);
-                    if (params.getCallbackTransient()) {
+                    if (isTransient) {
                         engine.cancelConsumer(consumerInfo);
                     }
                     if (tasks.isEmpty()) {
@@ -438,7 +479,7 @@ public class OpflowRpcAmqpMaster implements AutoCloseable {
                     eventLock.unlock();
                 }
             }
-        });
+        }, progressCoalesced);
         tasks.put(taskId, task);
         
         Map<String, Object> headers = new HashMap<>();
@@ -447,6 +488,10 @@ public class OpflowRpcAmqpMaster implements AutoCloseable {
         OpflowUtil.setRoutineSignature(headers, task.getRoutineSignature());
         OpflowUtil.setRoutineScope(headers, params.getRoutineScope());
         OpflowUtil.setRoutineTags(headers, params.getRoutineTags());
+        if (_expiration > 0) {
+            OpflowUtil.setRoutineDeadline(headers, System.currentTimeMillis() + params.getRoutineTTL());
+        }
+        headers.put(OpflowConstant.OPFLOW_REQ_HEADER_ACCEPT_ENCODING, OpflowCompressor.ACCEPT_ENCODINGS);
 
         if (responsePrefetchCount > 1) {
             OpflowUtil.setProgressEnabled(headers, Boolean.FALSE);
@@ -1,16 +1,24 @@
 package com.devebot.opflow;
 
 import com.devebot.opflow.OpflowLogTracer.Level;
+import com.devebot.opflow.supports.OpflowCompressor;
 import com.devebot.opflow.supports.OpflowJsonTool;
+import com.devebot.opflow.supports.OpflowObjectTree;
 import com.devebot.opflow.exception.OpflowJsonTransformationException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,9 +35,14 @@ public class OpflowRpcAmqpRequest implements Iterator, OpflowTimeout.Timeoutable
     private final String routineSignature;
     private final long timeout;
     private final OpflowTimeout.Listener completeListener;
+    private final boolean progressCoalesced;
     private long timestamp;
 
     public OpflowRpcAmqpRequest(final OpflowRpcParameter params, final OpflowTimeout.Listener completeListener) {
+        this(params, completeListener, false);
+    }
+    
+    public OpflowRpcAmqpRequest(final OpflowRpcParameter params, final OpflowTimeout.Listener completeListener, boolean progressCoalesced) {
         this.routineId = params.getRoutineId();
         this.routineSignature = params.getRoutineSignature();
         this.routineTimestamp = params.getRoutineTimestamp();
@@ -44,6 +57,7 @@ public class OpflowRpcAmqpRequest implements Iterator, OpflowTimeout.Timeoutable
                 .branch(OpflowConstant.REQUEST_ID, this.routineId, params);
         
         this.completeListener = completeListener;
+        this.progressCoalesced = progressCoalesced;
         
         checkTimestamp();
     }
@@ -80,13 +94,26 @@ public class OpflowRpcAmqpRequest implements Iterator, OpflowTimeout.Timeoutable
         this.push(OpflowEngine.Message.ERROR);
     }
     
+    private final static OpflowEngine.Message PROGRESS_SLOT = new OpflowEngine.Message(null, null);
+    public final static int CHUNK_PREFETCH_LIMIT = 64;
     private final BlockingQueue<OpflowEngine.Message> list = new LinkedBlockingQueue<>();
+    // the ACK of a chunk is held until the reader takes it, the prefetch limit of the
+    // dedicated stream consumer then keeps the rest of the payload in the broker
+    private final Map<OpflowEngine.Message, OpflowEngine.Acknowledger> heldChunks = new ConcurrentHashMap<>();
+    private final AtomicReference<OpflowEngine.Message> latestProgress = new AtomicReference<>();
     private OpflowEngine.Message current = null;
     
     @Override
     public boolean hasNext() {
         try {
-            this.current = list.take();
+            do {
+                this.current = list.take();
+                if (this.current == PROGRESS_SLOT) {
+                    this.current = latestProgress.getAndSet(null);
+                } else if (this.current != null) {
+                    releaseChunk(heldChunks.remove(this.current));
+                }
+            } while (this.current == null);
             if (this.current == OpflowEngine.Message.EMPTY) return false;
             if (this.current == OpflowEngine.Message.ERROR) return false;
             return true;
@@ -103,7 +130,25 @@ public class OpflowRpcAmqpRequest implements Iterator, OpflowTimeout.Timeoutable
     }
     
     public void push(OpflowEngine.Message message) {
-        list.add(message);
+        push(message, null);
+    }
+    
+    public void push(OpflowEngine.Message message, OpflowEngine.Acknowledger acknowledger) {
+        if (acknowledger != null) {
+            if ("chunk".equals(getStatus(message))) {
+                heldChunks.put(message, acknowledger);
+            } else {
+                releaseChunk(acknowledger);
+            }
+        }
+        if (progressCoalesced && "progress".equals(getStatus(message))) {
+            // a queued progress entry is superseded by the newer one, only a single slot is kept in the list
+            if (latestProgress.getAndSet(message) == null) {
+                list.add(PROGRESS_SLOT);
+            }
+        } else {
+            list.add(message);
+        }
         checkTimestamp();
         if(isDone(message)) {
             OpflowLogTracer pushTrail = null;
@@ -123,6 +168,20 @@ public class OpflowRpcAmqpRequest implements Iterator, OpflowTimeout.Timeoutable
         }
     }
     
+    private void releaseChunk(OpflowEngine.Acknowledger acknowledger) {
+        if (acknowledger == null) return;
+        try {
+            acknowledger.ack(true);
+        } catch (IOException | RuntimeException e) {
+            // the stream consumer is already cancelled, the chunk has been delivered anyway
+            if (reqTracer.ready(LOG, Level.DEBUG)) LOG.debug(reqTracer.copy()
+                    .put("exceptionClass", e.getClass().getName())
+                    .put("exceptionMessage", e.getMessage())
+                    .text("Request[${requestId}][${requestTime}][x-rpc-request-chunk-ack-failed] - ACK of the chunk has failed: ${exceptionMessage}")
+                    .stringify());
+        }
+    }
+    
     public List<OpflowEngine.Message> iterateResult() {
         List<OpflowEngine.Message> buff = new LinkedList<>();
         while(this.hasNext()) buff.add(this.next());
@@ -144,6 +203,7 @@ public class OpflowRpcAmqpRequest implements Iterator, OpflowTimeout.Timeoutable
         boolean completed = false;
         byte[] value = null;
         List<OpflowRpcAmqpResult.Step> steps = new LinkedList<>();
+        TreeMap<Long, byte[]> chunks = null;
         while(this.hasNext()) {
             OpflowEngine.Message msg = this.next();
             String status = getStatus(msg);
@@ -162,15 +222,33 @@ public class OpflowRpcAmqpRequest implements Iterator, OpflowTimeout.Timeoutable
                             steps.add(new OpflowRpcAmqpResult.Step());
                         }
                     }   break;
+                case "chunk":
+                    if (chunks == null) {
+                        chunks = new TreeMap<>();
+                    }
+                    chunks.put(getChunkSequence(msg, chunks.size()), OpflowCompressor.decode(msg.getContentEncoding(), msg.getBody()));
+                    break;
                 case "failed":
                     consumerTag = getMessageField(msg, CONST.AMQP_HEADER_CONSUMER_TAG);
                     failed = true;
-                    error = msg.getBody();
+                    error = OpflowCompressor.decode(msg.getContentEncoding(), msg.getBody());
                     break;
                 case "completed":
                     consumerTag = getMessageField(msg, CONST.AMQP_HEADER_CONSUMER_TAG);
+                    value = OpflowCompressor.decode(msg.getContentEncoding(), msg.getBody());
+                    String missing = checkChunks(chunks, getChunkTotal(msg, 0));
+                    if (missing != null) {
+                        failed = true;
+                        error = OpflowUtil.getBytes(OpflowObjectTree.buildMap(false)
+                                .put("message", missing)
+                                .toString());
+                        value = null;
+                        break;
+                    }
                     completed = true;
-                    value = msg.getBody();
+                    if (chunks != null) {
+                        value = joinChunks(chunks, value);
+                    }
                     break;
                 default:
                     break;
@@ -183,6 +261,129 @@ public class OpflowRpcAmqpRequest implements Iterator, OpflowTimeout.Timeoutable
         return new OpflowRpcAmqpResult(routineSignature, routineId, consumerTag, steps, failed, error, completed, value);
     }
     
+    public InputStream openStream() {
+        return new ChunkStream();
+    }
+    
+    private class ChunkStream extends InputStream {
+        private final TreeMap<Long, byte[]> pending = new TreeMap<>();
+        private long sequence = 0;
+        private long chunkTotal = 0;
+        private boolean finished = false;
+        private byte[] buffer = null;
+        private int offset = 0;
+        
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int count = read(single, 0, 1);
+            return (count < 0) ? -1 : (single[0] & 0xFF);
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            while (buffer == null || offset >= buffer.length) {
+                if (!fill()) return -1;
+            }
+            int count = Math.min(len, buffer.length - offset);
+            System.arraycopy(buffer, offset, b, off, count);
+            offset += count;
+            return count;
+        }
+        
+        @Override
+        public int available() {
+            return (buffer == null) ? 0 : buffer.length - offset;
+        }
+        
+        private boolean fill() throws IOException {
+            while (true) {
+                byte[] chunk = pending.remove(sequence);
+                if (chunk != null) {
+                    sequence++;
+                    buffer = chunk;
+                    offset = 0;
+                    return true;
+                }
+                if (finished) {
+                    // the trailing chunks may be lost as well, they are counted against the chunk total
+                    if (!pending.isEmpty() || sequence < chunkTotal) {
+                        throw new IOException("Request[" + routineId + "] - the chunk #" + sequence + " of " + chunkTotal + " is missing");
+                    }
+                    buffer = null;
+                    return false;
+                }
+                if (!hasNext()) {
+                    finished = true;
+                    throw new IOException("Request[" + routineId + "] - the stream is timeout or interrupted");
+                }
+                OpflowEngine.Message msg = next();
+                String status = getStatus(msg);
+                if (status == null) continue;
+                switch (status) {
+                    case "chunk":
+                        pending.put(getChunkSequence(msg, sequence + pending.size()), OpflowCompressor.decode(msg.getContentEncoding(), msg.getBody()));
+                        break;
+                    case "completed":
+                        finished = true;
+                        chunkTotal = getChunkTotal(msg, 0);
+                        byte[] tail = OpflowCompressor.decode(msg.getContentEncoding(), msg.getBody());
+                        if (tail != null && tail.length > 0) {
+                            pending.put(chunkTotal, tail);
+                        }
+                        break;
+                    case "failed":
+                        finished = true;
+                        byte[] error = OpflowCompressor.decode(msg.getContentEncoding(), msg.getBody());
+                        throw new IOException(error != null ? OpflowUtil.getString(error) : "Request[" + routineId + "] has failed");
+                    default:
+                        break;
+                }
+            }
+        }
+    }
+    
+    private String checkChunks(TreeMap<Long, byte[]> chunks, long chunkTotal) {
+        int received = (chunks == null) ? 0 : chunks.size();
+        boolean contiguous = (chunks == null) || chunks.isEmpty() || (chunks.firstKey() == 0 && chunks.lastKey() == received - 1);
+        if (received == chunkTotal && contiguous) {
+            return null;
+        }
+        return "Request[" + routineId + "] - " + received + " of " + chunkTotal + " chunks are received";
+    }
+    
+    private static byte[] joinChunks(TreeMap<Long, byte[]> chunks, byte[] tail) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        for (byte[] chunk : chunks.values()) {
+            if (chunk != null) output.write(chunk, 0, chunk.length);
+        }
+        if (tail != null) output.write(tail, 0, tail.length);
+        return output.toByteArray();
+    }
+    
+    private static long getChunkSequence(OpflowEngine.Message message, long defaultValue) {
+        return getLongField(message, OpflowConstant.OPFLOW_RES_HEADER_CHUNK_SEQUENCE, defaultValue);
+    }
+    
+    private static long getChunkTotal(OpflowEngine.Message message, long defaultValue) {
+        return getLongField(message, OpflowConstant.OPFLOW_RES_HEADER_CHUNK_TOTAL, defaultValue);
+    }
+    
+    private static long getLongField(OpflowEngine.Message message, String fieldName, long defaultValue) {
+        if (message == null || message.getHeaders() == null) return defaultValue;
+        Object val = message.getHeaders().get(fieldName);
+        if (val instanceof Number) {
+            return ((Number) val).longValue();
+        }
+        if (val != null) {
+            try {
+                return Long.parseLong(val.toString());
+            } catch (NumberFormatException nfe) {}
+        }
+        return defaultValue;
+    }
+    
     private static final List<String> STATUS = Arrays.asList(new String[] { "failed", "completed" });
     
     private boolean isDone(OpflowEngine.Message message) {
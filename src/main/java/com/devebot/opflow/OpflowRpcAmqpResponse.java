@@ -3,12 +3,21 @@ package com.devebot.opflow;
 import com.rabbitmq.nostro.client.AMQP;
 import com.rabbitmq.nostro.client.Channel;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.devebot.opflow.OpflowLogTracer.Level;
 import com.devebot.opflow.exception.OpflowOperationException;
+import com.devebot.opflow.supports.OpflowCompressor;
+import com.devebot.opflow.supports.OpflowJsonTool;
+import com.devebot.opflow.supports.OpflowObjectTree;
 
 /**
  *
@@ -17,6 +26,16 @@ import com.devebot.opflow.exception.OpflowOperationException;
 public class OpflowRpcAmqpResponse {
     private final static OpflowConstant CONST = OpflowConstant.CURRENT();
     private final static Logger LOG = LoggerFactory.getLogger(OpflowRpcAmqpResponse.class);
+    private final static int CHUNK_SIZE = 64 * 1024;
+    // the progress bodies without data are encoded once, for the percents from -1 to 100
+    private final static byte[][] PROGRESS_BODIES = new byte[102][];
+    private final static byte[] PROGRESS_DATA_FIELD = OpflowUtil.getBytes(", \"data\": ");
+    static {
+        for (int percent = -1; percent <= 100; percent++) {
+            PROGRESS_BODIES[percent + 1] = OpflowUtil.getBytes("{ \"percent\": " + percent + " }");
+        }
+    }
+    private static ScheduledExecutorService progressScheduler;
     private final OpflowLogTracer logTracer;
     private final String componentId;
     private final Channel channel;
@@ -29,6 +48,20 @@ public class OpflowRpcAmqpResponse {
     private final String routineSignature;
     private final Boolean progressEnabled;
     private final String httpAddress;
+    private final String acceptEncoding;
+    private final OpflowCompressor compressor;
+    private final long progressInterval;
+    private AMQP.BasicProperties progressProperties;
+    private ScheduledFuture<?> progressFlusher;
+    private boolean progressFinished = false;
+    private long progressTime = 0;
+    private int progressPercent = Integer.MIN_VALUE;
+    private boolean progressPending = false;
+    private int pendingPercent;
+    private String pendingData;
+    private long chunkCount = 0;
+    private OpflowEngine.Acknowledger acknowledger = OpflowEngine.Acknowledger.IMMEDIATE;
+    private volatile boolean ackDeferred = false;
     
     public OpflowRpcAmqpResponse(Channel channel, AMQP.BasicProperties properties,
             String componentId,
@@ -39,6 +72,37 @@ public class OpflowRpcAmqpResponse {
             String routineScope,
             String routineSignature,
             String httpAddress
+    ) {
+        this(channel, properties, componentId, consumerTag, replyQueueName,
+                routineId, routineTimestamp, routineScope, routineSignature, httpAddress, null);
+    }
+    
+    public OpflowRpcAmqpResponse(Channel channel, AMQP.BasicProperties properties,
+            String componentId,
+            String consumerTag,
+            String replyQueueName,
+            String routineId,
+            String routineTimestamp,
+            String routineScope,
+            String routineSignature,
+            String httpAddress,
+            OpflowCompressor compressor
+    ) {
+        this(channel, properties, componentId, consumerTag, replyQueueName,
+                routineId, routineTimestamp, routineScope, routineSignature, httpAddress, compressor, 0);
+    }
+    
+    public OpflowRpcAmqpResponse(Channel channel, AMQP.BasicProperties properties,
+            String componentId,
+            String consumerTag,
+            String replyQueueName,
+            String routineId,
+            String routineTimestamp,
+            String routineScope,
+            String routineSignature,
+            String httpAddress,
+            OpflowCompressor compressor,
+            long progressInterval
     ) {
         final Map<String, Object> headers = properties.getHeaders();
         
@@ -52,6 +116,8 @@ public class OpflowRpcAmqpResponse {
         this.routineScope = routineScope;
         this.routineSignature = routineSignature;
         this.httpAddress = httpAddress;
+        this.compressor = compressor;
+        this.progressInterval = progressInterval;
         
         logTracer = OpflowLogTracer.ROOT.branch(OpflowConstant.REQUEST_TIME, this.routineTimestamp)
                 .branch(OpflowConstant.REQUEST_ID, this.routineId, new OpflowUtil.OmitInternalOplogs(this.routineScope));
@@ -64,10 +130,14 @@ public class OpflowRpcAmqpResponse {
         
         this.progressEnabled = OpflowUtil.getProgressEnabled(headers);
         
+        Object accepted = headers.get(OpflowConstant.OPFLOW_REQ_HEADER_ACCEPT_ENCODING);
+        this.acceptEncoding = (accepted != null) ? accepted.toString() : null;
+        
         if (logTracer.ready(LOG, Level.TRACE)) LOG.trace(logTracer
                 .put("consumerTag", this.consumerTag)
                 .put("replyTo", this.replyQueueName)
                 .put("progressEnabled", this.progressEnabled)
+                .put("progressInterval", this.progressInterval)
                 .text("Request[${requestId}][${requestTime}][x-rpc-response-created] - RpcResponse is created")
                 .stringify());
     }
@@ -99,6 +169,30 @@ public class OpflowRpcAmqpResponse {
     public String getRoutineSignature() {
         return routineSignature;
     }
+    
+    void setAcknowledger(OpflowEngine.Acknowledger acknowledger) {
+        this.acknowledger = (acknowledger != null) ? acknowledger : OpflowEngine.Acknowledger.IMMEDIATE;
+    }
+    
+    public boolean isAckDeferred() {
+        return ackDeferred;
+    }
+    
+    /**
+     * Keeps the request message unacknowledged after the listener has returned,
+     * the listener must invoke settleAck() once the response has been emitted.
+     */
+    public void deferAck() {
+        ackDeferred = true;
+    }
+    
+    public void settleAck(boolean success) {
+        try {
+            acknowledger.ack(success);
+        } catch (IOException exception) {
+            throw new OpflowOperationException(exception);
+        }
+    }
 
     public void emitStarted() {
         emitStarted("{}");
@@ -125,28 +219,162 @@ public class OpflowRpcAmqpResponse {
         emitProgress(completed, total, null);
     }
     
-    public void emitProgress(int completed, int total, String jsonData) {
+    public synchronized void emitProgress(int completed, int total, String jsonData) {
         if (progressEnabled != null && Boolean.FALSE.equals(progressEnabled)) return;
+        if (progressFinished) return;
         int percent = -1;
         if (total > 0 && completed >= 0 && completed <= total) {
             percent = (total == 100) ? completed : Math.round((completed * 100) / total);
         }
-        String result;
+        if (progressInterval > 0) {
+            if (jsonData == null && percent == progressPercent) {
+                progressPending = false;
+                return;
+            }
+            long now = System.currentTimeMillis();
+            long waiting = progressInterval - (now - progressTime);
+            if (waiting > 0) {
+                // keep only the latest state, it is sent at the end of the interval unless a later call sends it first
+                progressPending = true;
+                pendingPercent = percent;
+                pendingData = jsonData;
+                if (progressFlusher == null) {
+                    progressFlusher = getProgressScheduler().schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            flushProgressOnTime();
+                        }
+                    }, waiting, TimeUnit.MILLISECONDS);
+                }
+                return;
+            }
+            progressTime = now;
+        }
+        publishProgress(percent, jsonData);
+    }
+    
+    private synchronized void flushProgressOnTime() {
+        progressFlusher = null;
+        if (progressPending && !progressFinished) {
+            try {
+                progressTime = System.currentTimeMillis();
+                publishProgress(pendingPercent, pendingData);
+            } catch (RuntimeException exception) {
+                if (logTracer.ready(LOG, Level.ERROR)) LOG.error(logTracer
+                        .put("exceptionClass", exception.getClass().getName())
+                        .put("exceptionMessage", exception.getMessage())
+                        .text("Request[${requestId}][${requestTime}] - the trailing progress cannot be emitted")
+                        .stringify());
+            }
+        }
+    }
+    
+    private synchronized void flushProgress() {
+        if (progressPending) {
+            publishProgress(pendingPercent, pendingData);
+        }
+        finishProgress();
+    }
+    
+    private synchronized void finishProgress() {
+        progressFinished = true;
+        progressPending = false;
+        pendingData = null;
+        if (progressFlusher != null) {
+            progressFlusher.cancel(false);
+            progressFlusher = null;
+        }
+    }
+    
+    private static synchronized ScheduledExecutorService getProgressScheduler() {
+        // the trailing progress updates of all of the responses share a single timer thread
+        if (progressScheduler == null) {
+            progressScheduler = Executors.newSingleThreadScheduledExecutor((Runnable runnable) -> {
+                Thread thread = new Thread(runnable, "Timer-" + OpflowUtil.extractClassName(OpflowRpcAmqpResponse.class));
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return progressScheduler;
+    }
+    
+    private void publishProgress(int percent, String jsonData) {
+        progressPending = false;
+        pendingData = null;
+        progressPercent = percent;
+        byte[] result = encodeProgress(percent, jsonData);
+        if (logTracer.ready(LOG, Level.TRACE)) LOG.trace(logTracer
+                .put("percent", percent)
+                .put("bodyLength", result.length)
+                .text("Request[${requestId}][${requestTime}][x-rpc-response-emit-progress] - emitProgress()")
+                .stringify());
+        if (progressProperties == null) {
+            progressProperties = createProperties(properties, createHeaders("progress")).build();
+        }
+        basicPublish(result, progressProperties);
+    }
+    
+    private static byte[] encodeProgress(int percent, String jsonData) {
+        if (percent < -1 || percent > 100) {
+            percent = -1;
+        }
+        byte[] body = PROGRESS_BODIES[percent + 1];
         if (jsonData == null) {
-            result = "{ \"percent\": " + percent + " }";
-            if (logTracer.ready(LOG, Level.TRACE)) LOG.trace(logTracer
-                    .put("body", result)
-                    .put("bodyLength", result.length())
-                    .text("Request[${requestId}][${requestTime}][x-rpc-response-emit-progress] - emitProgress()")
-                    .stringify());
-        } else {
-            result = "{ \"percent\": " + percent + ", \"data\": " + jsonData + "}";
-            if (logTracer.ready(LOG, Level.TRACE)) LOG.trace(logTracer
-                    .put("bodyLength", result.length())
-                    .text("Request[${requestId}][${requestTime}][x-rpc-response-emit-progress] - emitProgress()")
-                    .stringify());
+            return body;
         }
-        basicPublish(OpflowUtil.getBytes(result), createProperties(properties, createHeaders("progress")).build());
+        // { "percent": N, "data": <jsonData> }
+        byte[] data = OpflowUtil.getBytes(jsonData);
+        int head = body.length - 2;
+        byte[] result = new byte[head + PROGRESS_DATA_FIELD.length + data.length + 2];
+        System.arraycopy(body, 0, result, 0, head);
+        System.arraycopy(PROGRESS_DATA_FIELD, 0, result, head, PROGRESS_DATA_FIELD.length);
+        System.arraycopy(data, 0, result, head + PROGRESS_DATA_FIELD.length, data.length);
+        System.arraycopy(body, head, result, result.length - 2, 2);
+        return result;
+    }
+    
+    public void emitChunk(byte[] chunk) {
+        if (chunk == null || chunk.length == 0) return;
+        Map<String, Object> headers = createHeaders("chunk");
+        headers.put(OpflowConstant.OPFLOW_RES_HEADER_CHUNK_SEQUENCE, chunkCount);
+        basicPublish(chunk, createProperties(properties, headers).build());
+        if (logTracer.ready(LOG, Level.TRACE)) LOG.trace(logTracer
+                .put("chunkSequence", chunkCount)
+                .put("bodyLength", chunk.length)
+                .text("Request[${requestId}][${requestTime}][x-rpc-response-emit-chunk] - emitChunk() #${chunkSequence}")
+                .stringify());
+        chunkCount++;
+    }
+    
+    public void emitStream(InputStream stream) throws IOException {
+        emitStream(stream, CHUNK_SIZE);
+    }
+    
+    public void emitStream(InputStream stream, int chunkSize) throws IOException {
+        if (chunkSize <= 0) chunkSize = CHUNK_SIZE;
+        byte[] buffer = new byte[chunkSize];
+        try {
+            while (true) {
+                int length = 0;
+                int count;
+                while (length < chunkSize && (count = stream.read(buffer, length, chunkSize - length)) >= 0) {
+                    length += count;
+                }
+                if (length == 0) break;
+                emitChunk(Arrays.copyOf(buffer, length));
+                if (length < chunkSize) break;
+            }
+        } catch (IOException exception) {
+            // the master is notified at once, instead of waiting for the timeout
+            emitFailed(OpflowObjectTree.buildMap(false)
+                    .put("exceptionClass", exception.getClass().getName())
+                    .put("exceptionPayload", OpflowJsonTool.toString(exception))
+                    .put("type", exception.getClass().getName())
+                    .put("message", exception.getMessage())
+                    .toString());
+            throw exception;
+        }
+        emitCompleted(new byte[0]);
     }
     
     public void emitFailed(String error) {
@@ -155,9 +383,17 @@ public class OpflowRpcAmqpResponse {
     
     public void emitFailed(byte[] error) {
         if (error == null) error = new byte[0];
-        basicPublish(error, createProperties(properties, createHeaders("failed", true)).build());
+        finishProgress();
+        String encoding = null;
+        byte[] packed = compress(error);
+        if (packed != error) {
+            error = packed;
+            encoding = compressor.getEncoding();
+        }
+        basicPublish(error, createProperties(properties, createHeaders("failed", true), encoding).build());
         if (logTracer.ready(LOG, Level.DEBUG)) LOG.trace(logTracer
                 .put("bodyLength", error.length)
+                .put("contentEncoding", encoding)
                 .text("Request[${requestId}][${requestTime}][x-rpc-response-emit-failed] - emitFailed()")
                 .stringify());
     }
@@ -168,14 +404,37 @@ public class OpflowRpcAmqpResponse {
 
     public void emitCompleted(byte[] result) {
         if (result == null) result = new byte[0];
-        basicPublish(result, createProperties(properties, createHeaders("completed", true)).build());
+        flushProgress();
+        String encoding = null;
+        byte[] packed = compress(result);
+        if (packed != result) {
+            result = packed;
+            encoding = compressor.getEncoding();
+        }
+        basicPublish(result, createProperties(properties, createHeaders("completed", true), encoding).build());
         if (logTracer.ready(LOG, Level.DEBUG)) LOG.trace(logTracer
                 .put("bodyLength", result.length)
+                .put("contentEncoding", encoding)
                 .text("Request[${requestId}][${requestTime}][x-rpc-response-emit-completed] - emitCompleted()")
                 .stringify());
     }
 
+    private byte[] compress(byte[] data) {
+        if (compressor == null || !compressor.isApplicable(data, acceptEncoding)) {
+            return data;
+        }
+        byte[] packed = compressor.compress(data);
+        if (packed.length >= data.length) {
+            return data;
+        }
+        return packed;
+    }
+    
     private AMQP.BasicProperties.Builder createProperties(AMQP.BasicProperties properties, Map<String, Object> headers) {
+        return createProperties(properties, headers, null);
+    }
+    
+    private AMQP.BasicProperties.Builder createProperties(AMQP.BasicProperties properties, Map<String, Object> headers, String contentEncoding) {
         String expiration = properties.getExpiration();
         if (expiration == null) {
             expiration = "1000";
@@ -187,6 +446,9 @@ public class OpflowRpcAmqpResponse {
         if (properties.getAppId() != null) {
             builder.appId(properties.getAppId());
         }
+        if (contentEncoding != null) {
+            builder.contentEncoding(contentEncoding);
+        }
         return builder;
     }
     
@@ -215,13 +477,19 @@ public class OpflowRpcAmqpResponse {
             if (httpAddress != null) {
                 headers.put(OpflowConstant.OPFLOW_RES_HEADER_HTTP_ADDRESS, httpAddress);
             }
+            if (chunkCount > 0) {
+                headers.put(OpflowConstant.OPFLOW_RES_HEADER_CHUNK_TOTAL, chunkCount);
+            }
         }
         return headers;
     }
     
     private void basicPublish(byte[] data, AMQP.BasicProperties replyProps) {
         try {
-            channel.basicPublish("", replyQueueName, replyProps, data);
+            // the pooled routines reply concurrently on the consumer channel
+            synchronized (channel) {
+                channel.basicPublish("", replyQueueName, replyProps, data);
+            }
         } catch (IOException exception) {
             throw new OpflowOperationException(exception);
         }
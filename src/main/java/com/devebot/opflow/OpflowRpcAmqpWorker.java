@@ -2,16 +2,32 @@ package com.devebot.opflow;
 
 import com.devebot.opflow.OpflowLogTracer.Level;
 import com.devebot.opflow.exception.OpflowBootstrapException;
+import com.devebot.opflow.exception.OpflowWorkerOverloadException;
 import com.devebot.opflow.supports.OpflowCollectionUtil;
+import com.devebot.opflow.supports.OpflowCompressor;
+import com.devebot.opflow.supports.OpflowJsonTool;
 import com.devebot.opflow.supports.OpflowObjectTree;
 import com.rabbitmq.nostro.client.AMQP;
 import com.rabbitmq.nostro.client.Channel;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,6 +58,41 @@ public class OpflowRpcAmqpWorker implements AutoCloseable {
     
     private final String responseQueueName;
     
+    private final OpflowCompressor compressor;
+    private final OpflowBlobStore blobStore;
+    
+    public final static String REJECT_ACTION_REQUEUE = "requeue";
+    public final static String REJECT_ACTION_REJECT = "reject";
+    
+    private final static int DEFAULT_ROUTINE_POOL_SIZE = 4;
+    private final static int DEFAULT_ROUTINE_QUEUE_LIMIT = 64;
+    
+    private final boolean routinePoolEnabled;
+    private final int routinePoolSize;
+    private final Map<String, Integer> routinePoolSizes;
+    private final int routineQueueLimit;
+    private final String routineRejectAction;
+    private final ConcurrentMap<String, ThreadPoolExecutor> routinePools = new ConcurrentHashMap<>();
+    
+    private final boolean autoscaleEnabled;
+    private final long autoscaleInterval;
+    private final int autoscaleMinConsumers;
+    private final int autoscaleMaxConsumers;
+    private final int autoscaleMinPrefetch;
+    private final int autoscaleMaxPrefetch;
+    private final long autoscaleBufferTime;
+    private final AtomicLong busyNanos = new AtomicLong(0);
+    private final AtomicLong processedCount = new AtomicLong(0);
+    private final LinkedList<OpflowEngine.ConsumerInfo> extraConsumers = new LinkedList<>();
+    private final LinkedList<OpflowEngine.ConsumerInfo> retiredConsumers = new LinkedList<>();
+    private final ConcurrentMap<Channel, AtomicInteger> inflightCounts = new ConcurrentHashMap<>();
+    private OpflowEngine.Listener engineListener;
+    private volatile int prefetchCount;
+    private long lastSampleTime;
+    private Timer autoscaleTimer;
+    
+    private final long progressInterval;
+    
     private String httpAddress = null;
     
     public OpflowRpcAmqpWorker(Map<String, Object> kwargs) throws OpflowBootstrapException {
@@ -68,6 +119,14 @@ public class OpflowRpcAmqpWorker implements AutoCloseable {
         brokerParams.put(OpflowConstant.OPFLOW_PRODUCING_EXCHANGE_TYPE, kwargs.get(OpflowConstant.OPFLOW_OUTGOING_EXCHANGE_TYPE));
         brokerParams.put(OpflowConstant.OPFLOW_PRODUCING_EXCHANGE_DURABLE, kwargs.get(OpflowConstant.OPFLOW_OUTGOING_EXCHANGE_DURABLE));
         brokerParams.put(OpflowConstant.OPFLOW_PRODUCING_ROUTING_KEY, kwargs.get(OpflowConstant.OPFLOW_OUTGOING_ROUTING_KEY));
+        
+        // Claim-check section
+        OpflowBlobStore blobStore = (OpflowBlobStore) OpflowUtil.getOptionField(kwargs, OpflowConstant.COMP_BLOB_STORE, null);
+        if (blobStore == null && OpflowUtil.getBooleanField(kwargs, OpflowConstant.OPFLOW_CLAIM_CHECK_ENABLED, Boolean.FALSE)) {
+            blobStore = new OpflowMappedBlobStore(OpflowUtil.getStringField(kwargs, OpflowConstant.OPFLOW_CLAIM_CHECK_DIRECTORY),
+                    OpflowUtil.getLongField(kwargs, OpflowConstant.OPFLOW_CLAIM_CHECK_RETENTION, OpflowMappedBlobStore.RETENTION_DEFAULT));
+        }
+        this.blobStore = blobStore;
 
         // Use for autoBinding
         dispatchExchangeName = OpflowUtil.getStringField(kwargs, OpflowConstant.OPFLOW_DISPATCH_EXCHANGE_NAME);
@@ -103,6 +162,77 @@ public class OpflowRpcAmqpWorker implements AutoCloseable {
             executor.assertQueue(responseQueueName);
         }
         
+        // Compression section
+        if (OpflowUtil.getBooleanField(kwargs, OpflowConstant.OPFLOW_COMPRESSION_ENABLED, Boolean.TRUE)) {
+            try {
+                compressor = new OpflowCompressor(OpflowUtil.getStringField(kwargs, OpflowConstant.OPFLOW_COMPRESSION_ENCODING),
+                        OpflowUtil.getIntegerField(kwargs, OpflowConstant.OPFLOW_COMPRESSION_THRESHOLD, null));
+            }
+            catch (IllegalArgumentException exception) {
+                throw new OpflowBootstrapException(exception.getMessage());
+            }
+        } else {
+            compressor = null;
+        }
+        
+        // Routine pool section
+        routinePoolEnabled = OpflowUtil.getBooleanField(kwargs, OpflowConstant.OPFLOW_ROUTINE_POOL_ENABLED, Boolean.FALSE);
+        routinePoolSize = OpflowUtil.getIntegerField(kwargs, OpflowConstant.OPFLOW_ROUTINE_POOL_SIZE, DEFAULT_ROUTINE_POOL_SIZE);
+        routineQueueLimit = OpflowUtil.getIntegerField(kwargs, OpflowConstant.OPFLOW_ROUTINE_QUEUE_LIMIT, DEFAULT_ROUTINE_QUEUE_LIMIT);
+        String rejectAction = OpflowUtil.getStringField(kwargs, OpflowConstant.OPFLOW_ROUTINE_REJECT_ACTION);
+        if (rejectAction == null) {
+            rejectAction = REJECT_ACTION_REQUEUE;
+        }
+        if (!REJECT_ACTION_REQUEUE.equals(rejectAction) && !REJECT_ACTION_REJECT.equals(rejectAction)) {
+            throw new OpflowBootstrapException("routineRejectAction must be either '" + REJECT_ACTION_REQUEUE + "' or '" + REJECT_ACTION_REJECT + "'");
+        }
+        routineRejectAction = rejectAction;
+        if (routinePoolEnabled && (routinePoolSize <= 0 || routineQueueLimit <= 0)) {
+            throw new OpflowBootstrapException("routinePoolSize and routineQueueLimit must be positive");
+        }
+        routinePoolSizes = extractRoutinePoolSizes(kwargs.get(OpflowConstant.OPFLOW_ROUTINE_POOL_SIZES));
+        
+        // a full pool requeues the message, so that the broker must not deliver more than
+        // the largest pool can hold, otherwise the requeued messages come back right away
+        int routineCapacity = routineQueueLimit + routinePoolSize;
+        for (Integer groupSize : routinePoolSizes.values()) {
+            routineCapacity = Math.max(routineCapacity, routineQueueLimit + groupSize);
+        }
+        
+        // Progress section
+        progressInterval = OpflowUtil.getLongField(kwargs, OpflowConstant.OPFLOW_PROGRESS_INTERVAL, 0l);
+        
+        // Autoscale section
+        autoscaleEnabled = OpflowUtil.getBooleanField(kwargs, OpflowConstant.OPFLOW_AUTOSCALE_ENABLED, Boolean.FALSE);
+        autoscaleInterval = OpflowUtil.getLongField(kwargs, OpflowConstant.OPFLOW_AUTOSCALE_INTERVAL, 5000l);
+        autoscaleMinConsumers = OpflowUtil.getIntegerField(kwargs, OpflowConstant.OPFLOW_AUTOSCALE_MIN_CONSUMERS, 1);
+        autoscaleMaxConsumers = OpflowUtil.getIntegerField(kwargs, OpflowConstant.OPFLOW_AUTOSCALE_MAX_CONSUMERS, 8);
+        autoscaleMinPrefetch = OpflowUtil.getIntegerField(kwargs, OpflowConstant.OPFLOW_AUTOSCALE_MIN_PREFETCH, 1);
+        int maxPrefetch = OpflowUtil.getIntegerField(kwargs, OpflowConstant.OPFLOW_AUTOSCALE_MAX_PREFETCH, 256);
+        if (routinePoolEnabled) {
+            maxPrefetch = Math.min(maxPrefetch, Math.max(routineCapacity, autoscaleMinPrefetch));
+        }
+        autoscaleMaxPrefetch = maxPrefetch;
+        autoscaleBufferTime = OpflowUtil.getLongField(kwargs, OpflowConstant.OPFLOW_AUTOSCALE_BUFFER_TIME, 500l);
+        if (autoscaleEnabled) {
+            if (autoscaleInterval <= 0 || autoscaleBufferTime <= 0) {
+                throw new OpflowBootstrapException("autoscaleInterval and autoscaleBufferTime must be positive");
+            }
+            if (autoscaleMinConsumers < 1 || autoscaleMaxConsumers < autoscaleMinConsumers) {
+                throw new OpflowBootstrapException("autoscaleMinConsumers/autoscaleMaxConsumers must satisfy 1 <= min <= max");
+            }
+            if (autoscaleMinPrefetch < 1 || autoscaleMaxPrefetch < autoscaleMinPrefetch) {
+                throw new OpflowBootstrapException("autoscaleMinPrefetch/autoscaleMaxPrefetch must satisfy 1 <= min <= max");
+            }
+            int initialPrefetch = (incomingPrefetchCount != null) ? incomingPrefetchCount : autoscaleMinPrefetch;
+            prefetchCount = Math.min(Math.max(initialPrefetch, autoscaleMinPrefetch), autoscaleMaxPrefetch);
+        } else if (routinePoolEnabled) {
+            boolean configured = incomingPrefetchCount != null && incomingPrefetchCount > 0;
+            prefetchCount = configured ? Math.min(incomingPrefetchCount, routineCapacity) : routineCapacity;
+        } else {
+            prefetchCount = (incomingPrefetchCount != null) ? incomingPrefetchCount : 0;
+        }
+        
         if (logTracer.ready(LOG, Level.INFO)) LOG.info(logTracer
                 .put("queueName", incomingQueueName)
                 .tags("RpcAmqpWorker.new() parameters")
@@ -161,66 +291,91 @@ public class OpflowRpcAmqpWorker implements AutoCloseable {
             middlewares.add(new Middleware(checker, listener));
         }
         if (consumerInfo != null) return consumerInfo;
-        consumerInfo = engine.consume(new OpflowEngine.Listener() {
-            @Override
-            public boolean processMessage(
-                    byte[] body,
-                    AMQP.BasicProperties properties,
-                    String queueName,
-                    Channel channel,
-                    String consumerTag,
-                    Map<String, String> extras
-            ) throws IOException {
-                Map<String, Object> headers = properties.getHeaders();
-                OpflowEngine.Message request = new OpflowEngine.Message(body, headers);
-                
-                if (extras == null) {
-                    extras = new HashMap<>();
-                }
-                
-                String routineId = extras.get(CONST.AMQP_HEADER_ROUTINE_ID);
-                String routineTimestamp = extras.get(CONST.AMQP_HEADER_ROUTINE_TIMESTAMP);
-                String routineScope = extras.get(CONST.AMQP_HEADER_ROUTINE_SCOPE);
-                
-                if (routineId == null) routineId = OpflowUtil.getRoutineId(headers);
-                if (routineTimestamp == null) routineTimestamp = OpflowUtil.getRoutineTimestamp(headers);
-                if (routineScope == null) routineScope = OpflowUtil.getRoutineScope(headers);
-                
-                String routineSignature = OpflowUtil.getRoutineSignature(headers, false);
-                
-                OpflowRpcAmqpResponse response = new OpflowRpcAmqpResponse(channel, properties, componentId, consumerTag, queueName,
-                        routineId, routineTimestamp, routineScope, routineSignature, httpAddress);
-                
-                OpflowLogTracer reqTracer = null;
-                if (logProcess.ready(LOG, Level.INFO)) {
-                    reqTracer = logProcess.branch(OpflowConstant.REQUEST_TIME, routineTimestamp)
-                            .branch(OpflowConstant.REQUEST_ID, routineId, new OpflowUtil.OmitInternalOplogs(routineScope));
-                }
-                
-                if (reqTracer != null && reqTracer.ready(LOG, Level.INFO)) LOG.info(reqTracer
-                        .put("routineSignature", routineSignature)
-                        .text("Request[${requestId}][${requestTime}][x-rpc-worker-request-received] - Consumer[${consumerId}] receives a new RPC [${routineSignature}]")
-                        .stringify());
-                int count = 0;
-                for(Middleware middleware : middlewares) {
-                    if (middleware.getChecker().match(routineSignature)) {
-                        count++;
-                        measurer.countRpcInvocation(OpflowConstant.COMP_RPC_AMQP_WORKER, OpflowConstant.METHOD_INVOCATION_REMOTE_AMQP_WORKER, routineSignature, "process");
-                        Boolean nextAction = middleware.getListener().processMessage(request, response);
-                        if (nextAction == null || nextAction == Listener.DONE) break;
+        if (routinePoolEnabled) {
+            engineListener = new OpflowEngine.DeferredListener() {
+                @Override
+                public boolean processMessage(
+                        final byte[] body,
+                        final AMQP.BasicProperties properties,
+                        final String queueName,
+                        final Channel channel,
+                        final String consumerTag,
+                        final Map<String, String> extras,
+                        final OpflowEngine.Acknowledger delivery
+                ) throws IOException {
+                    final String routineSignature = OpflowUtil.getRoutineSignature(properties.getHeaders(), false);
+                    if (!isMatched(routineSignature)) {
+                        return false;
                     }
+                    final OpflowEngine.Acknowledger acknowledger = track(channel, delivery);
+                    try {
+                        assertRoutinePool(routineSignature).execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                try {
+                                    dispatch(logProcess, body, properties, queueName, channel, consumerTag, extras, acknowledger);
+                                } catch (Exception ex) {
+                                    if (logProcess.ready(LOG, Level.ERROR)) LOG.error(logProcess
+                                            .put("routineSignature", routineSignature)
+                                            .put("exceptionClass", ex.getClass().getName())
+                                            .put("exceptionMessage", ex.getMessage())
+                                            .text("Consumer[${consumerId}] - routine[${routineSignature}] has been failed")
+                                            .stringify());
+                                }
+                            }
+                        });
+                    } catch (RejectedExecutionException ex) {
+                        measurer.countRpcInvocation(OpflowConstant.COMP_RPC_AMQP_WORKER, OpflowConstant.METHOD_INVOCATION_REMOTE_AMQP_WORKER, routineSignature, "rejected");
+                        if (logProcess.ready(LOG, Level.WARN)) LOG.warn(logProcess
+                                .put("routineSignature", routineSignature)
+                                .put("routineQueueLimit", routineQueueLimit)
+                                .put("routineRejectAction", routineRejectAction)
+                                .text("Consumer[${consumerId}] - routine[${routineSignature}] queue is full (${routineQueueLimit}), ${routineRejectAction} the message")
+                                .stringify());
+                        if (REJECT_ACTION_REJECT.equals(routineRejectAction)) {
+                            reject(body, properties, queueName, channel, consumerTag, extras, routineSignature);
+                            acknowledger.ack(true);
+                        } else {
+                            acknowledger.requeue();
+                        }
+                    }
+                    return true;
                 }
-                if (reqTracer != null && reqTracer.ready(LOG, Level.INFO)) LOG.info(reqTracer
-                        .text("Request[${requestId}][${requestTime}][x-rpc-worker-request-finished] - RPC request processing has completed")
-                        .stringify());
-                return count > 0;
-            }
-        }, OpflowObjectTree.buildMap(new OpflowObjectTree.Listener<Object>() {
+            };
+        } else {
+            engineListener = new OpflowEngine.DeferredListener() {
+                @Override
+                public boolean processMessage(
+                        byte[] body,
+                        AMQP.BasicProperties properties,
+                        String queueName,
+                        Channel channel,
+                        String consumerTag,
+                        Map<String, String> extras,
+                        OpflowEngine.Acknowledger acknowledger
+                ) throws IOException {
+                    return dispatch(logProcess, body, properties, queueName, channel, consumerTag, extras, track(channel, acknowledger));
+                }
+            };
+        }
+        // the autoscaler adjusts the prefetch of the channel, so that it must not be shared
+        consumerInfo = consumeIncoming(_consumerId, autoscaleEnabled);
+        if (autoscaleEnabled) {
+            startAutoscaler();
+        }
+        if (logProcess.ready(LOG, Level.INFO)) LOG.info(logProcess
+                .text("Consumer[${consumerId}] - process() has completed")
+                .stringify());
+        return consumerInfo;
+    }
+    
+    private OpflowEngine.ConsumerInfo consumeIncoming(final String consumerId, final boolean privateChannel) {
+        return engine.consume(engineListener, OpflowObjectTree.buildMap(new OpflowObjectTree.Listener<Object>() {
             @Override
             public void transform(Map<String, Object> opts) {
                 opts.put(OpflowConstant.OPFLOW_PRODUCING_EXCHANGE_NAME, dispatchExchangeName);
                 opts.put(OpflowConstant.OPFLOW_PRODUCING_ROUTING_KEY, dispatchRoutingKey);
-                opts.put(OpflowConstant.OPFLOW_CONSUMING_CONSUMER_ID, _consumerId);
+                opts.put(OpflowConstant.OPFLOW_CONSUMING_CONSUMER_ID, consumerId);
                 opts.put(OpflowConstant.OPFLOW_CONSUMING_QUEUE_NAME, incomingQueueName);
                 opts.put(OpflowConstant.OPFLOW_CONSUMING_QUEUE_AUTO_DELETE, incomingQueueAutoDelete);
                 opts.put(OpflowConstant.OPFLOW_CONSUMING_QUEUE_DURABLE, incomingQueueDurable);
@@ -228,13 +383,400 @@ public class OpflowRpcAmqpWorker implements AutoCloseable {
                 opts.put(OpflowConstant.OPFLOW_CONSUMING_BINDING_KEYS, incomingBindingKeys);
                 opts.put(OpflowConstant.OPFLOW_CONSUMING_REPLY_TO, responseQueueName);
                 opts.put(OpflowConstant.OPFLOW_CONSUMING_AUTO_BINDING, Boolean.TRUE);
-                opts.put(OpflowConstant.OPFLOW_CONSUMING_PREFETCH_COUNT, incomingPrefetchCount);
+                if (autoscaleEnabled) {
+                    // the prefetch limit is only honored with manual acknowledgements,
+                    // and it is applied per channel so that it can be adjusted at runtime
+                    opts.put(OpflowConstant.OPFLOW_CONSUMING_PREFETCH_COUNT, prefetchCount);
+                    opts.put(OpflowConstant.OPFLOW_CONSUMING_PREFETCH_GLOBAL, Boolean.TRUE);
+                    opts.put(OpflowConstant.OPFLOW_CONSUMING_AUTO_ACK, Boolean.FALSE);
+                } else if (routinePoolEnabled) {
+                    opts.put(OpflowConstant.OPFLOW_CONSUMING_PREFETCH_COUNT, prefetchCount);
+                } else {
+                    opts.put(OpflowConstant.OPFLOW_CONSUMING_PREFETCH_COUNT, incomingPrefetchCount);
+                }
+                if (privateChannel) {
+                    opts.put("forceNewChannel", Boolean.TRUE);
+                }
+                if (routinePoolEnabled) {
+                    opts.put(OpflowConstant.OPFLOW_CONSUMING_AUTO_ACK, Boolean.FALSE);
+                }
             }
         }).toMap());
-        if (logProcess.ready(LOG, Level.INFO)) LOG.info(logProcess
-                .text("Consumer[${consumerId}] - process() has completed")
+    }
+    
+    private synchronized void startAutoscaler() {
+        if (autoscaleTimer != null) {
+            return;
+        }
+        lastSampleTime = System.nanoTime();
+        autoscaleTimer = new Timer("Timer-" + OpflowUtil.extractClassName(OpflowRpcAmqpWorker.class), true);
+        autoscaleTimer.scheduleAtFixedRate(new TimerTask() {
+            @Override
+            public void run() {
+                try {
+                    autoscale();
+                } catch (Exception ex) {
+                    if (logTracer.ready(LOG, Level.ERROR)) LOG.error(logTracer
+                            .put("exceptionClass", ex.getClass().getName())
+                            .put("exceptionMessage", ex.getMessage())
+                            .text("amqpWorker[${amqpWorkerId}] - autoscale() has failed")
+                            .stringify());
+                }
+            }
+        }, autoscaleInterval, autoscaleInterval);
+    }
+    
+    private OpflowEngine.Acknowledger track(Channel channel, final OpflowEngine.Acknowledger acknowledger) {
+        final AtomicInteger inflight = inflightCounts.computeIfAbsent(channel, (Channel key) -> new AtomicInteger(0));
+        inflight.incrementAndGet();
+        final AtomicBoolean settled = new AtomicBoolean(false);
+        return new OpflowEngine.Acknowledger() {
+            @Override
+            public void ack(boolean success) throws IOException {
+                try {
+                    acknowledger.ack(success);
+                } finally {
+                    release();
+                }
+            }
+
+            @Override
+            public void ackMultiple() throws IOException {
+                try {
+                    acknowledger.ackMultiple();
+                } finally {
+                    release();
+                }
+            }
+
+            @Override
+            public void requeue() throws IOException {
+                try {
+                    acknowledger.requeue();
+                } finally {
+                    release();
+                }
+            }
+            
+            private void release() {
+                if (settled.compareAndSet(false, true)) {
+                    inflight.decrementAndGet();
+                }
+            }
+        };
+    }
+    
+    private int countInflight(Channel channel) {
+        AtomicInteger inflight = inflightCounts.get(channel);
+        return (inflight != null) ? inflight.get() : 0;
+    }
+    
+    private void applyPrefetch(Channel channel) throws IOException {
+        synchronized (channel) {
+            channel.basicQos(prefetchCount, true);
+        }
+    }
+    
+    private synchronized void autoscale() throws IOException {
+        if (consumerInfo == null || autoscaleTimer == null) {
+            return;
+        }
+        
+        // a cancelled consumer keeps its channel until the deliveries in flight have been settled
+        Iterator<OpflowEngine.ConsumerInfo> retired = retiredConsumers.iterator();
+        while (retired.hasNext()) {
+            OpflowEngine.ConsumerInfo info = retired.next();
+            if (countInflight(info.getChannel()) == 0) {
+                retired.remove();
+                closeChannel(info);
+            }
+        }
+        
+        // the depth is read on a short-lived channel, a failure must not close the consuming channel
+        int queueDepth = executor.countQueue(incomingQueueName);
+        
+        long now = System.nanoTime();
+        long elapsed = now - lastSampleTime;
+        lastSampleTime = now;
+        long busy = busyNanos.getAndSet(0);
+        long processed = processedCount.getAndSet(0);
+        
+        int consumerCount = 1 + extraConsumers.size();
+        // the busy time is summed over the routine pool threads, so that it may exceed the elapsed time
+        double utilization = (elapsed > 0) ? Math.min(((double) busy) / ((double) elapsed * consumerCount), 1d) : 0;
+        double latency = (processed > 0) ? ((double) busy) / processed / 1000000d : 0;
+        
+        // keep roughly autoscaleBufferTime milliseconds of work in flight for each consumer
+        if (latency > 0) {
+            int expected = (int) Math.min(Math.ceil(autoscaleBufferTime / latency), autoscaleMaxPrefetch);
+            expected = Math.max(expected, autoscaleMinPrefetch);
+            if (expected != prefetchCount) {
+                prefetchCount = expected;
+                applyPrefetch(consumerInfo.getChannel());
+                for (OpflowEngine.ConsumerInfo extra : extraConsumers) {
+                    applyPrefetch(extra.getChannel());
+                }
+            }
+        }
+        
+        if (queueDepth > consumerCount * prefetchCount && utilization >= 0.75 && consumerCount < autoscaleMaxConsumers) {
+            extraConsumers.add(consumeIncoming(OpflowUUID.getBase64ID(), true));
+        } else if (queueDepth == 0 && utilization < 0.25 && consumerCount > autoscaleMinConsumers && !extraConsumers.isEmpty()) {
+            OpflowEngine.ConsumerInfo extra = extraConsumers.removeLast();
+            synchronized (extra.getChannel()) {
+                extra.getChannel().basicCancel(extra.getConsumerTag());
+            }
+            retiredConsumers.add(extra);
+        }
+        
+        if (logTracer.ready(LOG, Level.DEBUG)) LOG.debug(logTracer
+                .put("queueDepth", queueDepth)
+                .put("utilization", utilization)
+                .put("latency", latency)
+                .put("consumerCount", 1 + extraConsumers.size())
+                .put("prefetchCount", prefetchCount)
+                .text("amqpWorker[${amqpWorkerId}] - autoscale() queueDepth: ${queueDepth}, utilization: ${utilization}, latency: ${latency}ms"
+                        + " => consumers: ${consumerCount}, prefetch: ${prefetchCount}")
                 .stringify());
-        return consumerInfo;
+    }
+    
+    private synchronized void stopAutoscaler() {
+        if (autoscaleTimer != null) {
+            autoscaleTimer.cancel();
+            autoscaleTimer.purge();
+            autoscaleTimer = null;
+        }
+        while (!extraConsumers.isEmpty()) {
+            engine.cancelConsumer(extraConsumers.removeFirst());
+        }
+        while (!retiredConsumers.isEmpty()) {
+            closeChannel(retiredConsumers.removeFirst());
+        }
+    }
+    
+    private void closeChannel(OpflowEngine.ConsumerInfo info) {
+        inflightCounts.remove(info.getChannel());
+        try {
+            if (info.getChannel() != null && info.getChannel().isOpen()) {
+                info.getChannel().close();
+            }
+        } catch (IOException | TimeoutException ex) {
+            if (logTracer.ready(LOG, Level.ERROR)) LOG.error(logTracer
+                    .put("consumerId", info.getConsumerId())
+                    .put("exceptionClass", ex.getClass().getName())
+                    .put("exceptionMessage", ex.getMessage())
+                    .text("amqpWorker[${amqpWorkerId}] - the channel of Consumer[${consumerId}] cannot be closed")
+                    .stringify());
+        }
+    }
+    
+    public int getConsumerCount() {
+        return (consumerInfo != null) ? 1 + extraConsumers.size() : 0;
+    }
+    
+    public int getPrefetchCount() {
+        return prefetchCount;
+    }
+    
+    private boolean isMatched(String routineSignature) {
+        for(Middleware middleware : middlewares) {
+            if (middleware.getChecker().match(routineSignature)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private boolean dispatch(
+            OpflowLogTracer logProcess,
+            byte[] body,
+            AMQP.BasicProperties properties,
+            String queueName,
+            Channel channel,
+            String consumerTag,
+            Map<String, String> extras,
+            OpflowEngine.Acknowledger acknowledger
+    ) throws IOException {
+        Map<String, Object> headers = properties.getHeaders();
+        OpflowEngine.Message request = new OpflowEngine.Message(body, headers);
+        
+        String routineSignature = OpflowUtil.getRoutineSignature(headers, false);
+        
+        OpflowRpcAmqpResponse response = createResponse(properties, queueName, channel, consumerTag, extras, routineSignature);
+        response.setAcknowledger(acknowledger);
+        
+        // a listener that hands the request over (e.g. to a batch) defers the ACK until it has replied
+        boolean success = false;
+        try {
+            boolean captured = dispatch(logProcess, request, response, routineSignature);
+            success = true;
+            return captured;
+        } finally {
+            if (!success || !response.isAckDeferred()) {
+                acknowledger.ack(success);
+            }
+        }
+    }
+    
+    private boolean dispatch(
+            OpflowLogTracer logProcess,
+            OpflowEngine.Message request,
+            OpflowRpcAmqpResponse response,
+            String routineSignature
+    ) throws IOException {
+        Map<String, Object> headers = request.getHeaders();
+        
+        OpflowLogTracer reqTracer = null;
+        if (logProcess.ready(LOG, Level.INFO)) {
+            reqTracer = logProcess.branch(OpflowConstant.REQUEST_TIME, response.getRoutineTimestamp())
+                    .branch(OpflowConstant.REQUEST_ID, response.getRoutineId(), new OpflowUtil.OmitInternalOplogs(response.getRoutineScope()));
+        }
+        
+        if (reqTracer != null && reqTracer.ready(LOG, Level.INFO)) LOG.info(reqTracer
+                .put("routineSignature", routineSignature)
+                .text("Request[${requestId}][${requestTime}][x-rpc-worker-request-received] - Consumer[${consumerId}] receives a new RPC [${routineSignature}]")
+                .stringify());
+        
+        Long routineDeadline = OpflowUtil.getRoutineDeadline(headers);
+        if (OpflowRpcDeadline.isExpired(routineDeadline)) {
+            measurer.countRpcInvocation(OpflowConstant.COMP_RPC_AMQP_WORKER, OpflowConstant.METHOD_INVOCATION_REMOTE_AMQP_WORKER, routineSignature, "expired");
+            if (reqTracer != null && reqTracer.ready(LOG, Level.INFO)) LOG.info(reqTracer
+                    .put("routineDeadline", routineDeadline)
+                    .text("Request[${requestId}][${requestTime}][x-rpc-worker-request-expired] - the deadline [${routineDeadline}] has passed, the RPC is dropped")
+                    .stringify());
+            return true;
+        }
+        
+        int count = 0;
+        long startTime = System.nanoTime();
+        Long previousDeadline = OpflowRpcDeadline.enter(routineDeadline);
+        try {
+            for(Middleware middleware : middlewares) {
+                if (middleware.getChecker().match(routineSignature)) {
+                    count++;
+                    measurer.countRpcInvocation(OpflowConstant.COMP_RPC_AMQP_WORKER, OpflowConstant.METHOD_INVOCATION_REMOTE_AMQP_WORKER, routineSignature, "process");
+                    Boolean nextAction = middleware.getListener().processMessage(request, response);
+                    if (nextAction == null || nextAction == Listener.DONE) break;
+                }
+            }
+        } finally {
+            OpflowRpcDeadline.leave(previousDeadline);
+            busyNanos.addAndGet(System.nanoTime() - startTime);
+            processedCount.incrementAndGet();
+        }
+        if (reqTracer != null && reqTracer.ready(LOG, Level.INFO)) LOG.info(reqTracer
+                .text("Request[${requestId}][${requestTime}][x-rpc-worker-request-finished] - RPC request processing has completed")
+                .stringify());
+        return count > 0;
+    }
+    
+    private void reject(
+            byte[] body,
+            AMQP.BasicProperties properties,
+            String queueName,
+            Channel channel,
+            String consumerTag,
+            Map<String, String> extras,
+            String routineSignature
+    ) {
+        OpflowWorkerOverloadException error = new OpflowWorkerOverloadException("The worker queue of routine [" + routineSignature + "] is full");
+        createResponse(properties, queueName, channel, consumerTag, extras, routineSignature).emitFailed(OpflowObjectTree.buildMap(false)
+                .put("exceptionClass", error.getClass().getName())
+                .put("exceptionPayload", OpflowJsonTool.toString(error))
+                .put("type", error.getClass().getName())
+                .put("message", error.getMessage())
+                .toString());
+    }
+    
+    private OpflowRpcAmqpResponse createResponse(
+            AMQP.BasicProperties properties,
+            String queueName,
+            Channel channel,
+            String consumerTag,
+            Map<String, String> extras,
+            String routineSignature
+    ) {
+        Map<String, Object> headers = properties.getHeaders();
+        
+        if (extras == null) {
+            extras = new HashMap<>();
+        }
+        
+        String routineId = extras.get(CONST.AMQP_HEADER_ROUTINE_ID);
+        String routineTimestamp = extras.get(CONST.AMQP_HEADER_ROUTINE_TIMESTAMP);
+        String routineScope = extras.get(CONST.AMQP_HEADER_ROUTINE_SCOPE);
+        
+        if (routineId == null) routineId = OpflowUtil.getRoutineId(headers);
+        if (routineTimestamp == null) routineTimestamp = OpflowUtil.getRoutineTimestamp(headers);
+        if (routineScope == null) routineScope = OpflowUtil.getRoutineScope(headers);
+        
+        return new OpflowRpcAmqpResponse(channel, properties, componentId, consumerTag, queueName,
+                routineId, routineTimestamp, routineScope, routineSignature, httpAddress, compressor, progressInterval);
+    }
+    
+    private ThreadPoolExecutor assertRoutinePool(final String routineSignature) {
+        ThreadPoolExecutor pool = routinePools.get(routineSignature);
+        if (pool != null) {
+            return pool;
+        }
+        return routinePools.computeIfAbsent(routineSignature, (String key) -> {
+            final AtomicInteger threadIndex = new AtomicInteger(0);
+            final int poolSize = routinePoolSizes.getOrDefault(key, routinePoolSize);
+            ThreadPoolExecutor created = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(routineQueueLimit), (Runnable runnable) -> {
+                        Thread thread = new Thread(runnable, "Pool-" + OpflowRpcAmqpWorker.class.getSimpleName() + "-" + key + "-" + threadIndex.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            created.allowCoreThreadTimeOut(true);
+            if (logTracer.ready(LOG, Level.INFO)) LOG.info(logTracer
+                    .put("routineSignature", key)
+                    .put("routinePoolSize", poolSize)
+                    .put("routineQueueLimit", routineQueueLimit)
+                    .text("amqpWorker[${amqpWorkerId}] - create the pool of routine[${routineSignature}] (size: ${routinePoolSize}, queueLimit: ${routineQueueLimit})")
+                    .stringify());
+            return created;
+        });
+    }
+    
+    private static Map<String, Integer> extractRoutinePoolSizes(Object value) throws OpflowBootstrapException {
+        Map<String, Integer> sizes = new HashMap<>();
+        if (value == null) {
+            return sizes;
+        }
+        if (!(value instanceof Map)) {
+            throw new OpflowBootstrapException("routinePoolSizes must be a map of the routineSignatures to the pool sizes");
+        }
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+            Integer size = null;
+            if (entry.getValue() instanceof Number) {
+                size = ((Number) entry.getValue()).intValue();
+            } else if (entry.getValue() instanceof String) {
+                try {
+                    size = Integer.parseInt(((String) entry.getValue()).trim());
+                } catch (NumberFormatException ex) {}
+            }
+            if (size == null || size <= 0) {
+                throw new OpflowBootstrapException("routinePoolSizes[" + entry.getKey() + "] must be a positive integer");
+            }
+            sizes.put(String.valueOf(entry.getKey()), size);
+        }
+        return sizes;
+    }
+    
+    public Map<String, Object> getRoutinePoolInfo() {
+        Map<String, Object> info = new HashMap<>();
+        for (Map.Entry<String, ThreadPoolExecutor> entry : routinePools.entrySet()) {
+            ThreadPoolExecutor pool = entry.getValue();
+            info.put(entry.getKey(), OpflowObjectTree.buildMap()
+                    .put("poolSize", pool.getMaximumPoolSize())
+                    .put("activeCount", pool.getActiveCount())
+                    .put("queueSize", pool.getQueue().size())
+                    .put("queueLimit", routineQueueLimit)
+                    .put("completedTaskCount", pool.getCompletedTaskCount())
+                    .toMap());
+        }
+        return info;
     }
     
     public class State extends OpflowEngine.State {
@@ -253,8 +795,25 @@ public class OpflowRpcAmqpWorker implements AutoCloseable {
         if (logTracer.ready(LOG, Level.INFO)) LOG.info(logTracer
                 .text("amqpWorker[${amqpWorkerId}][${instanceId}].close()")
                 .stringify());
+        stopAutoscaler();
         if (engine != null) {
             engine.cancelConsumer(consumerInfo);
+        }
+        for (ThreadPoolExecutor pool : routinePools.values()) {
+            pool.shutdown();
+        }
+        for (ThreadPoolExecutor pool : routinePools.values()) {
+            try {
+                if (!pool.awaitTermination(5, TimeUnit.SECONDS)) {
+                    pool.shutdownNow();
+                }
+            } catch (InterruptedException ex) {
+                pool.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        routinePools.clear();
+        if (engine != null) {
             engine.close();
         }
         if (logTracer.ready(LOG, Level.INFO)) LOG.info(logTracer
@@ -269,6 +828,10 @@ public class OpflowRpcAmqpWorker implements AutoCloseable {
     public OpflowExecutor getExecutor() {
         return executor;
     }
+    
+    public OpflowBlobStore getBlobStore() {
+        return blobStore;
+    }
 
     public String getComponentId() {
         return componentId;
@@ -0,0 +1,54 @@
+package com.devebot.opflow;
+
+/**
+ *
+ * @author acegik
+ */
+public class OpflowRpcDeadline {
+    private final static ThreadLocal<Long> CURRENT = new ThreadLocal<>();
+    
+    public static Long current() {
+        return CURRENT.get();
+    }
+    
+    public static Long enter(Long deadline) {
+        Long previous = CURRENT.get();
+        if (deadline != null) {
+            CURRENT.set((previous != null) ? Math.min(previous, deadline) : deadline);
+        }
+        return previous;
+    }
+    
+    public static void leave(Long previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+    
+    public static Long remaining(Long deadline) {
+        if (deadline == null) {
+            return null;
+        }
+        return deadline - System.currentTimeMillis();
+    }
+    
+    public static boolean isExpired(Long deadline) {
+        return deadline != null && System.currentTimeMillis() >= deadline;
+    }
+    
+    public static Long parse(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        try {
+            return Long.parseLong(value.toString().trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
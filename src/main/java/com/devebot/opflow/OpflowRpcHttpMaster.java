@@ -4,7 +4,9 @@ import com.devebot.opflow.OpflowLogTracer.Level;
 import com.devebot.opflow.exception.OpflowBootstrapException;
 import com.devebot.opflow.exception.OpflowNonOperatingException;
 import com.devebot.opflow.exception.OpflowOperationException;
+import com.devebot.opflow.exception.OpflowRequestTimeoutException;
 import com.devebot.opflow.exception.OpflowRestrictionException;
+import com.devebot.opflow.supports.OpflowCompressor;
 import com.devebot.opflow.supports.OpflowObjectTree;
 import com.devebot.opflow.supports.OpflowStringUtil;
 import java.io.IOException;
@@ -142,13 +144,31 @@ public class OpflowRpcHttpMaster implements AutoCloseable {
                     .stringify());
         }
         
+        // the call budget is narrowed by the routineTTL and by the deadline of the enclosing request
+        long budget = callTimeout;
+        if (params.getRoutineTTL() != null && params.getRoutineTTL() > 0) {
+            budget = Math.min(budget, params.getRoutineTTL());
+        }
+        Long remaining = OpflowRpcDeadline.remaining(params.getRoutineDeadline());
+        if (remaining != null) {
+            if (remaining <= 0) {
+                return Session.asTimeout(params, new OpflowRequestTimeoutException("The deadline of the request has already passed"));
+            }
+            budget = Math.min(budget, remaining);
+        }
+        
         OkHttpClient client = assertHttpClient();
         
         Request.Builder reqBuilder = new Request.Builder()
             .header(OpflowConstant.OPFLOW_REQ_HEADER_PROTO_VERSION, CONST.OPFLOW_PROTOCOL_VERSION)
             .header(OpflowConstant.HTTP_HEADER_ROUTINE_ID, params.getRoutineId())
             .header(OpflowConstant.HTTP_HEADER_ROUTINE_TIMESTAMP, params.getRoutineTimestamp())
-            .header(OpflowConstant.HTTP_HEADER_ROUTINE_SIGNATURE, params.getRoutineSignature());
+            .header(OpflowConstant.HTTP_HEADER_ROUTINE_SIGNATURE, params.getRoutineSignature())
+            .header("Accept-Encoding", OpflowCompressor.ACCEPT_ENCODINGS);
+        
+        if (budget > 0) {
+            reqBuilder = reqBuilder.header(OpflowConstant.HTTP_HEADER_ROUTINE_DEADLINE, String.valueOf(System.currentTimeMillis() + budget));
+        }
         
         if (params.getRoutineScope() != null) {
             reqBuilder = reqBuilder.header(OpflowConstant.HTTP_HEADER_ROUTINE_SCOPE, params.getRoutineScope());
@@ -158,7 +178,9 @@ public class OpflowRpcHttpMaster implements AutoCloseable {
             reqBuilder = reqBuilder.header(OpflowConstant.HTTP_HEADER_ROUTINE_TAGS, OpflowStringUtil.joinWithComma(params.getRoutineTags()));
         }
         
-        String url = extractUrl(location);
+        OpflowRpcRoutingInfo routingInfo = extractRoutingInfo(location);
+        
+        String url = extractUrl(routingInfo);
         
         if (url == null) {
             return Session.asBroken(params);
@@ -175,15 +197,21 @@ public class OpflowRpcHttpMaster implements AutoCloseable {
         
         Call call = client.newCall(request);
         
+        if (budget > 0 && budget < callTimeout) {
+            call.timeout().timeout(budget, TimeUnit.MILLISECONDS);
+        }
+        
         Session session = null;
         
+        long startTime = System.currentTimeMillis();
+        
         try {
             Response response = call.execute();
             if (testException) {
                 throw new IOException(reqTracer.text("Request[${requestId}][${requestTime}] - throw a testing exception").stringify());
             }
             if (response.isSuccessful()) {
-                session = Session.asOk(params, response.body().string());
+                session = Session.asOk(params, extractBody(response));
                 if (reqTracer != null && reqTracer.ready(LOG, Level.DEBUG)) {
                     LOG.debug(reqTracer
                             .put("protocol", response.protocol().toString())
@@ -192,7 +220,7 @@ public class OpflowRpcHttpMaster implements AutoCloseable {
                             .stringify());
                 }
             } else {
-                session = Session.asFailed(params, response.body().string());
+                session = Session.asFailed(params, extractBody(response));
                 if (reqTracer != null && reqTracer.ready(LOG, Level.DEBUG)) {
                     LOG.debug(reqTracer
                             .put("protocol", response.protocol().toString())
@@ -233,17 +261,25 @@ public class OpflowRpcHttpMaster implements AutoCloseable {
             }
         }
         
+        if (rpcObserver != null && routingInfo != null) {
+            rpcObserver.recordOutcome(OpflowConstant.Protocol.HTTP, routingInfo.getComponentId(),
+                    session.isOk() || session.isFailed(), System.currentTimeMillis() - startTime);
+        }
+        
         return session;
     }
     
-    private String extractUrl(OpflowRpcRoutingInfo routingInfo) {
-        String url = null;
-        
+    private OpflowRpcRoutingInfo extractRoutingInfo(OpflowRpcRoutingInfo routingInfo) {
         if (routingInfo == null) {
             if (rpcObserver != null) {
                 routingInfo = rpcObserver.getRoutingInfo(OpflowConstant.Protocol.HTTP);
             }
         }
+        return routingInfo;
+    }
+    
+    private String extractUrl(OpflowRpcRoutingInfo routingInfo) {
+        String url = null;
         
         if (routingInfo != null) {
             url = routingInfo.getAddress();
@@ -261,6 +297,19 @@ public class OpflowRpcHttpMaster implements AutoCloseable {
         return url;
     }
     
+    private String extractBody(Response response) throws IOException {
+        String contentEncoding = response.header("Content-Encoding");
+        if (contentEncoding == null) {
+            return response.body().string();
+        }
+        try {
+            return OpflowUtil.getString(OpflowCompressor.decode(contentEncoding, response.body().bytes()));
+        }
+        catch (OpflowOperationException exception) {
+            throw new IOException(exception);
+        }
+    }
+    
     private Map<String, Object> extractHeaders(Response response) {
         Map<String, Object> options = new HashMap<>();
         options.put(OpflowConstant.OPFLOW_RES_HEADER_SERVERLET_ID, response.header(OpflowConstant.OPFLOW_RES_HEADER_SERVERLET_ID));
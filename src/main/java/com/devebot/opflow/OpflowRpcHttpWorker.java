@@ -2,6 +2,8 @@ package com.devebot.opflow;
 
 import com.devebot.opflow.OpflowLogTracer.Level;
 import com.devebot.opflow.exception.OpflowBootstrapException;
+import com.devebot.opflow.exception.OpflowRequestTimeoutException;
+import com.devebot.opflow.supports.OpflowCompressor;
 import com.devebot.opflow.supports.OpflowJsonTool;
 import com.devebot.opflow.supports.OpflowObjectTree;
 import com.devebot.opflow.supports.OpflowStringUtil;
@@ -14,6 +16,7 @@ import io.undertow.server.handlers.GracefulShutdownHandler;
 import io.undertow.util.HeaderMap;
 import io.undertow.util.Headers;
 import io.undertow.util.HttpString;
+import java.nio.ByteBuffer;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -39,6 +42,7 @@ public class OpflowRpcHttpWorker {
     private final String hostname;
     private final Integer port;
     private final long shutdownTimeout;
+    private final OpflowCompressor compressor;
     private final Thread shutdownHook;
     private Undertow server;
     private GracefulShutdownHandler shutdownHandler;
@@ -68,6 +72,18 @@ public class OpflowRpcHttpWorker {
         
         shutdownTimeout = OpflowUtil.getLongField(kwargs, OpflowConstant.OPFLOW_COMMON_SHUTDOWN_TIMEOUT, 1000l);
         
+        if (OpflowUtil.getBooleanField(kwargs, OpflowConstant.OPFLOW_COMPRESSION_ENABLED, Boolean.TRUE)) {
+            try {
+                compressor = new OpflowCompressor(OpflowUtil.getStringField(kwargs, OpflowConstant.OPFLOW_COMPRESSION_ENCODING),
+                        OpflowUtil.getIntegerField(kwargs, OpflowConstant.OPFLOW_COMPRESSION_THRESHOLD, null));
+            }
+            catch (IllegalArgumentException exception) {
+                throw new OpflowBootstrapException(exception.getMessage());
+            }
+        } else {
+            compressor = null;
+        }
+        
         shutdownHook = new Thread() {
             @Override
             public void run() {
@@ -79,6 +95,7 @@ public class OpflowRpcHttpWorker {
         
         defaultHandlers = new RoutingHandler()
             .post("/routine", new BlockingHandler(routineHandler))
+            .get("/ping", new PingHandler(componentId))
             .setFallbackHandler(new PageNotFoundHandler());
         
         if (logTracer.ready(LOG, Level.INFO)) LOG.info(logTracer
@@ -282,6 +299,7 @@ public class OpflowRpcHttpWorker {
                 String routineSignature = reqHeaders.getFirst(OpflowConstant.HTTP_HEADER_ROUTINE_SIGNATURE);
                 String routineScope = reqHeaders.getFirst(OpflowConstant.HTTP_HEADER_ROUTINE_SCOPE);
                 String[] routineTags = OpflowStringUtil.splitByComma(reqHeaders.getFirst(OpflowConstant.HTTP_HEADER_ROUTINE_TAGS));
+                Long routineDeadline = OpflowRpcDeadline.parse(reqHeaders.getFirst(OpflowConstant.HTTP_HEADER_ROUTINE_DEADLINE));
                 
                 OpflowLogTracer reqTracer = null;
                 if (logTracer.ready(LOG, Level.INFO)) {
@@ -294,19 +312,41 @@ public class OpflowRpcHttpWorker {
                         .text("Request[${requestId}][${requestTime}][x-rpc-http-worker-request-received] - httpWorker[${httpWorkerId}] receives a new RPC [${routineSignature}]")
                         .stringify());
                 
+                // drop the request when nobody is waiting for the result
+                if (OpflowRpcDeadline.isExpired(routineDeadline)) {
+                    measurer.countRpcInvocation(OpflowConstant.COMP_RPC_HTTP_WORKER, OpflowConstant.METHOD_INVOCATION_REMOTE_AMQP_WORKER, routineSignature, "expired");
+                    if (reqTracer != null && reqTracer.ready(LOG, Level.INFO)) LOG.info(reqTracer
+                            .put("routineDeadline", routineDeadline)
+                            .text("Request[${requestId}][${requestTime}][x-rpc-http-worker-request-expired] - the deadline [${routineDeadline}] has passed, the RPC is dropped")
+                            .stringify());
+                    OpflowRequestTimeoutException error = new OpflowRequestTimeoutException("The deadline of the request has already passed");
+                    exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "application/json");
+                    exchange.setStatusCode(504).getResponseSender().send(OpflowObjectTree.buildMap(false)
+                            .put("exceptionClass", error.getClass().getName())
+                            .put("type", error.getClass().getName())
+                            .put("message", error.getMessage())
+                            .toString());
+                    return;
+                }
+                
                 // get the body
                 String body = OpflowStringUtil.fromInputStream(exchange.getInputStream());
                 
                 // processing
                 Output output = null;
                 int count = 0;
-                for(Middleware middleware : middlewares) {
-                    if (middleware.getMatcher().match(routineSignature)) {
-                        count++;
-                        measurer.countRpcInvocation(OpflowConstant.COMP_RPC_HTTP_WORKER, OpflowConstant.METHOD_INVOCATION_REMOTE_AMQP_WORKER, routineSignature, "process");
-                        output = middleware.getListener().processMessage(body, routineSignature, routineScope, routineTimestamp, routineId, null);
-                        break;
+                Long previousDeadline = OpflowRpcDeadline.enter(routineDeadline);
+                try {
+                    for(Middleware middleware : middlewares) {
+                        if (middleware.getMatcher().match(routineSignature)) {
+                            count++;
+                            measurer.countRpcInvocation(OpflowConstant.COMP_RPC_HTTP_WORKER, OpflowConstant.METHOD_INVOCATION_REMOTE_AMQP_WORKER, routineSignature, "process");
+                            output = middleware.getListener().processMessage(body, routineSignature, routineScope, routineTimestamp, routineId, null);
+                            break;
+                        }
                     }
+                } finally {
+                    OpflowRpcDeadline.leave(previousDeadline);
                 }
                 
                 // rendering the output
@@ -317,12 +357,13 @@ public class OpflowRpcHttpWorker {
                     if (reqTracer != null && reqTracer.ready(LOG, Level.INFO)) LOG.info(reqTracer
                             .text("Request[${requestId}][${requestTime}][x-rpc-http-worker-request-finished] - RPC request processing has completed")
                             .stringify());
+                    String acceptEncoding = reqHeaders.getFirst(Headers.ACCEPT_ENCODING);
                     if (output.hasError()) {
                         exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "application/json");
-                        exchange.setStatusCode(500).getResponseSender().send(output.getError());
+                        sendContent(exchange.setStatusCode(500), output.getError(), acceptEncoding);
                     } else {
                         exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "application/json");
-                        exchange.getResponseSender().send(output.getValue());
+                        sendContent(exchange, output.getValue(), acceptEncoding);
                     }
                 }
             } catch (Exception exception) {
@@ -339,6 +380,37 @@ public class OpflowRpcHttpWorker {
         }
     }
     
+    private void sendContent(HttpServerExchange exchange, String content, String acceptEncoding) {
+        if (compressor != null && content != null) {
+            byte[] data = OpflowUtil.getBytes(content);
+            if (compressor.isApplicable(data, acceptEncoding)) {
+                byte[] packed = compressor.compress(data);
+                if (packed.length < data.length) {
+                    exchange.getResponseHeaders().put(Headers.CONTENT_ENCODING, compressor.getEncoding());
+                    exchange.getResponseSender().send(ByteBuffer.wrap(packed));
+                    return;
+                }
+            }
+        }
+        exchange.getResponseSender().send(content);
+    }
+    
+    class PingHandler implements HttpHandler {
+        final String componentId;
+        
+        public PingHandler(String componentId) {
+            this.componentId = componentId;
+        }
+        
+        @Override
+        public void handleRequest(HttpServerExchange exchange) throws Exception {
+            exchange.getResponseHeaders().put(new HttpString(OpflowConstant.OPFLOW_RES_HEADER_SERVERLET_ID), componentId)
+                    .put(new HttpString(OpflowConstant.OPFLOW_RES_HEADER_PROTO_VERSION), CONST.OPFLOW_PROTOCOL_VERSION)
+                    .put(Headers.CONTENT_TYPE, "application/json");
+            exchange.getResponseSender().send("{\"" + OpflowConstant.COMPONENT_ID + "\":\"" + componentId + "\"}");
+        }
+    }
+    
     class PageNotFoundHandler implements HttpHandler {
         @Override
         public void handleRequest(HttpServerExchange exchange) throws Exception {
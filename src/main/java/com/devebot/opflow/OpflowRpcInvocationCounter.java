@@ -1,10 +1,17 @@
 package com.devebot.opflow;
 
 import com.devebot.opflow.supports.OpflowDateTime;
+import com.devebot.opflow.supports.OpflowLatencyHistogram;
 import com.devebot.opflow.supports.OpflowMathUtil;
 import com.devebot.opflow.supports.OpflowObjectTree;
+import com.devebot.opflow.supports.OpflowPromWriter;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  *
@@ -20,36 +27,38 @@ public class OpflowRpcInvocationCounter {
     public static final String LABEL_RPC_SERVICE_NOT_READY_TOTAL = "rpcServiceNotReadyTotal";
     public static final String LABEL_RPC_PAUSING_TIMEOUT_TOTAL = "rpcPausingTimeoutTotal";
     public static final String LABEL_RPC_SEMAPHORE_TIMEOUT_TOTAL = "rpcSemaphoreTimeoutTotal";
+    public static final String LABEL_RPC_RATE_LIMITED_TOTAL = "rpcRateLimitedTotal";
+    public static final String LABEL_RPC_BULKHEAD_FULL_TOTAL = "rpcBulkheadFullTotal";
+    public static final String LABEL_RPC_SHED_TOTAL = "rpcShedTotal";
     public static final String LABEL_RPC_PUBLISHER = "rpcOverPublisher";
     public static final String LABEL_RPC_DIRECT_WORKER = "rpcOverNativeWorker";
     public static final String LABEL_RPC_REMOTE_AMQP_WORKER = "rpcOverRemoteAMQPWorkers";
     public static final String LABEL_RPC_REMOTE_HTTP_WORKER = "rpcOverRemoteHTTPWorkers";
+    public static final String LABEL_RPC_LATENCIES = "rpcLatencies";
+    public static final String LABEL_RPC_ROUTINE_CACHE = "rpcRoutineCache";
+
+    private static final int LATENCY_DIRECT_WORKER = 0;
+    private static final int LATENCY_REMOTE_AMQP_WORKER = 1;
+    private static final int LATENCY_REMOTE_HTTP_WORKER = 2;
+    private static final String[] LATENCY_LABELS = new String[] {
+        LABEL_RPC_DIRECT_WORKER,
+        LABEL_RPC_REMOTE_AMQP_WORKER,
+        LABEL_RPC_REMOTE_HTTP_WORKER,
+    };
+
+    public static final String PROM_RPC_INVOCATION_TOTAL = "opflow_rpc_invocation_total";
+    public static final String PROM_RPC_LATENCY = "opflow_rpc_latency_microseconds";
+
+    private static final String[] PROM_LATENCY_TRANSPORTS = new String[] {
+        OpflowConstant.METHOD_INVOCATION_NATIVE_WORKER,
+        OpflowConstant.METHOD_INVOCATION_REMOTE_AMQP_WORKER,
+        OpflowConstant.METHOD_INVOCATION_REMOTE_HTTP_WORKER,
+    };
+    private static final long[] PROM_LATENCY_BOUNDS = new long[] {
+        100, 250, 500, 1000, 2500, 5000, 10000, 25000, 50000, 100000, 250000, 500000, 1000000, 2500000, 5000000, 10000000
+    };
     
-    private Date startTime = new Date();
-    private volatile long total = 0;
-    // Restrictor
-    private volatile long acceptedRpcTotal = 0;
-    private volatile long rejectedRpcTotal = 0;
-    private volatile long cancellationRpcTotal = 0;
-    private volatile long serviceNotReadyRpcTotal = 0;
-    private volatile long pausingTimeoutRpcTotal = 0;
-    private volatile long semaphoreTimeoutRpcTotal = 0;
-    // Publisher
-    private volatile long publishingTotal = 0;
-    // Native worker
-    private volatile long direct = 0;
-    private volatile long directRetain = 0;
-    private volatile long directRescue = 0;
-    // AMQP workers
-    private volatile long remoteAMQPTotal = 0;
-    private volatile long remoteAMQPSuccess = 0;
-    private volatile long remoteAMQPFailure = 0;
-    private volatile long remoteAMQPTimeout = 0;
-    // HTTP workers
-    private volatile long remoteHTTPTotal = 0;
-    private volatile long remoteHTTPSuccess = 0;
-    private volatile long remoteHTTPFailure = 0;
-    private volatile long remoteHTTPTimeout = 0;
+    private volatile Epoch epoch = new Epoch();
 
     private boolean publisherEnabled = false;
     private boolean nativeWorkerEnabled = false;
@@ -59,153 +68,372 @@ public class OpflowRpcInvocationCounter {
     public OpflowRpcInvocationCounter() {
     }
 
-    public synchronized void incRejectedRpc() {
-        this.total++;
-        this.rejectedRpcTotal++;
+    public void incRejectedRpc() {
+        epoch.rejectedRpc.increment();
     }
 
-    public synchronized void incCancellationRpc() {
-        this.total++;
-        this.rejectedRpcTotal++;
-        this.cancellationRpcTotal++;
+    public void incCancellationRpc() {
+        epoch.cancellationRpc.increment();
     }
 
-    public synchronized void incServiceNotReadyRpc() {
-        this.total++;
-        this.rejectedRpcTotal++;
-        this.serviceNotReadyRpcTotal++;
+    public void incServiceNotReadyRpc() {
+        epoch.serviceNotReadyRpc.increment();
     }
 
-    public synchronized void incPausingTimeoutRpc() {
-        this.total++;
-        this.rejectedRpcTotal++;
-        this.pausingTimeoutRpcTotal++;
+    public void incPausingTimeoutRpc() {
+        epoch.pausingTimeoutRpc.increment();
     }
 
-    public synchronized void incSemaphoreTimeoutRpc() {
-        this.total++;
-        this.rejectedRpcTotal++;
-        this.semaphoreTimeoutRpcTotal++;
+    public void incSemaphoreTimeoutRpc() {
+        epoch.semaphoreTimeoutRpc.increment();
     }
 
-    public synchronized void incPublishingOk() {
-        this.total++;
-        this.acceptedRpcTotal++;
-        this.publishingTotal++;
+    public void incRateLimitedRpc() {
+        epoch.rateLimitedRpc.increment();
     }
 
-    public synchronized void incDirectRescue() {
-        this.total++;
-        this.acceptedRpcTotal++;
-        this.direct++;
-        this.directRescue++;
+    public void incBulkheadFullRpc() {
+        epoch.bulkheadFullRpc.increment();
     }
 
-    public synchronized void incDirectRetain() {
-        this.total++;
-        this.acceptedRpcTotal++;
-        this.direct++;
-        this.directRetain++;
+    public void incShedRpc() {
+        epoch.shedRpc.increment();
     }
 
-    public synchronized void incRemoteAMQPSuccess() {
-        this.total++;
-        this.acceptedRpcTotal++;
-        this.remoteAMQPTotal++;
-        this.remoteAMQPSuccess++;
+    public void incPublishingOk() {
+        epoch.publishing.increment();
     }
 
-    public synchronized void incRemoteAMQPFailure() {
-        this.total++;
-        this.acceptedRpcTotal++;
-        this.remoteAMQPTotal++;
-        this.remoteAMQPFailure++;
+    public void incDirectRescue() {
+        epoch.directRescue.increment();
     }
 
-    public synchronized void incRemoteAMQPTimeout() {
-        this.total++;
-        this.acceptedRpcTotal++;
-        this.remoteAMQPTotal++;
-        this.remoteAMQPTimeout++;
+    public void incDirectRetain() {
+        epoch.directRetain.increment();
     }
 
-    public synchronized void incRemoteHTTPSuccess() {
-        this.total++;
-        this.acceptedRpcTotal++;
-        this.remoteHTTPTotal++;
-        this.remoteHTTPSuccess++;
+    public void incRemoteAMQPSuccess() {
+        epoch.remoteAMQPSuccess.increment();
     }
 
-    public synchronized void incRemoteHTTPFailure() {
-        this.total++;
-        this.acceptedRpcTotal++;
-        this.remoteHTTPTotal++;
-        this.remoteHTTPFailure++;
+    public void incRemoteAMQPFailure() {
+        epoch.remoteAMQPFailure.increment();
     }
 
-    public synchronized void incRemoteHTTPTimeout() {
-        this.total++;
-        this.acceptedRpcTotal++;
-        this.remoteHTTPTotal++;
-        this.remoteHTTPTimeout++;
+    public void incRemoteAMQPTimeout() {
+        epoch.remoteAMQPTimeout.increment();
     }
 
-    private synchronized OpflowRpcInvocationCounter copy() {
-        OpflowRpcInvocationCounter that = new OpflowRpcInvocationCounter();
-        that.startTime = this.startTime;
-        that.total = this.total;
+    public void incRemoteHTTPSuccess() {
+        epoch.remoteHTTPSuccess.increment();
+    }
+
+    public void incRemoteHTTPFailure() {
+        epoch.remoteHTTPFailure.increment();
+    }
+
+    public void incRemoteHTTPTimeout() {
+        epoch.remoteHTTPTimeout.increment();
+    }
+
+    public void incRoutineCacheHit() {
+        epoch.routineCacheHit.increment();
+    }
+
+    public void incRoutineCacheMiss() {
+        epoch.routineCacheMiss.increment();
+    }
+
+    public void recordDirectLatency(String routineSignature, long nanos) {
+        recordLatency(routineSignature, LATENCY_DIRECT_WORKER, nanos);
+    }
+
+    public void recordRemoteAMQPLatency(String routineSignature, long nanos) {
+        recordLatency(routineSignature, LATENCY_REMOTE_AMQP_WORKER, nanos);
+    }
+
+    public void recordRemoteHTTPLatency(String routineSignature, long nanos) {
+        recordLatency(routineSignature, LATENCY_REMOTE_HTTP_WORKER, nanos);
+    }
+
+    private void recordLatency(String routineSignature, int transport, long nanos) {
+        if (routineSignature == null) {
+            return;
+        }
+        ConcurrentHashMap<String, OpflowLatencyHistogram[]> latencies = epoch.latencies;
+        OpflowLatencyHistogram[] histograms = latencies.get(routineSignature);
+        if (histograms == null) {
+            histograms = latencies.computeIfAbsent(routineSignature, (String key) -> new OpflowLatencyHistogram[LATENCY_LABELS.length]);
+        }
+        OpflowLatencyHistogram histogram = histograms[transport];
+        if (histogram == null) {
+            synchronized (histograms) {
+                histogram = histograms[transport];
+                if (histogram == null) {
+                    histogram = new OpflowLatencyHistogram();
+                    histograms[transport] = histogram;
+                }
+            }
+        }
+        histogram.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    /**
+     * The latency snapshots (in microseconds) keyed by routine signature, then by transport label.
+     */
+    public Map<String, Map<String, OpflowLatencyHistogram.Snapshot>> getLatencySnapshots() {
+        Map<String, Map<String, OpflowLatencyHistogram.Snapshot>> result = new TreeMap<>();
+        for (Map.Entry<String, OpflowLatencyHistogram[]> entry : epoch.latencies.entrySet()) {
+            Map<String, OpflowLatencyHistogram.Snapshot> snapshots = new LinkedHashMap<>();
+            OpflowLatencyHistogram[] histograms = entry.getValue();
+            for (int i = 0; i < histograms.length; i++) {
+                OpflowLatencyHistogram histogram = histograms[i];
+                if (histogram != null) {
+                    snapshots.put(LATENCY_LABELS[i], histogram.snapshot());
+                }
+            }
+            result.put(entry.getKey(), snapshots);
+        }
+        return result;
+    }
+
+    public Map<String, Object> latenciesToMap() {
+        Map<String, Object> result = OpflowObjectTree.buildMap().toMap();
+        for (Map.Entry<String, Map<String, OpflowLatencyHistogram.Snapshot>> entry : getLatencySnapshots().entrySet()) {
+            Map<String, Object> transports = OpflowObjectTree.buildMap().toMap();
+            for (Map.Entry<String, OpflowLatencyHistogram.Snapshot> item : entry.getValue().entrySet()) {
+                transports.put(item.getKey(), item.getValue().toMap());
+            }
+            result.put(entry.getKey(), transports);
+        }
+        return OpflowObjectTree.buildMap()
+                .put(LABEL_RPC_LATENCIES, result)
+                .toMap();
+    }
+
+    public static void writeInvocationFamily(OpflowPromWriter writer) {
+        writer.family(PROM_RPC_INVOCATION_TOTAL, OpflowPromWriter.TYPE_COUNTER, "The RPC invocations by flow and status");
+    }
+
+    public void writeInvocations(OpflowPromWriter writer, String connectorName) {
+        final Epoch that = this.epoch;
+        // Restrictor
+        writeInvocation(writer, connectorName, OpflowConstant.METHOD_INVOCATION_FLOW_RESTRICTOR, OpflowConstant.METHOD_INVOCATION_STATUS_REJECTED, that.rejectedRpc.sum());
+        writeInvocation(writer, connectorName, OpflowConstant.METHOD_INVOCATION_FLOW_RESTRICTOR, OpflowConstant.METHOD_INVOCATION_STATUS_CANCELLATION, that.cancellationRpc.sum());
+        writeInvocation(writer, connectorName, OpflowConstant.METHOD_INVOCATION_FLOW_RESTRICTOR, OpflowConstant.METHOD_INVOCATION_STATUS_SERVICE_NOT_READY, that.serviceNotReadyRpc.sum());
+        writeInvocation(writer, connectorName, OpflowConstant.METHOD_INVOCATION_FLOW_RESTRICTOR, OpflowConstant.METHOD_INVOCATION_STATUS_PAUSING_TIMEOUT, that.pausingTimeoutRpc.sum());
+        writeInvocation(writer, connectorName, OpflowConstant.METHOD_INVOCATION_FLOW_RESTRICTOR, OpflowConstant.METHOD_INVOCATION_STATUS_SEMAPHORE_TIMEOUT, that.semaphoreTimeoutRpc.sum());
+        writeInvocation(writer, connectorName, OpflowConstant.METHOD_INVOCATION_FLOW_RESTRICTOR, OpflowConstant.METHOD_INVOCATION_STATUS_RATE_LIMITED, that.rateLimitedRpc.sum());
+        writeInvocation(writer, connectorName, OpflowConstant.METHOD_INVOCATION_FLOW_RESTRICTOR, OpflowConstant.METHOD_INVOCATION_STATUS_BULKHEAD_FULL, that.bulkheadFullRpc.sum());
+        writeInvocation(writer, connectorName, OpflowConstant.METHOD_INVOCATION_FLOW_RESTRICTOR, OpflowConstant.METHOD_INVOCATION_STATUS_SHED, that.shedRpc.sum());
+        // Publisher
+        if (publisherEnabled) {
+            writeInvocation(writer, connectorName, OpflowConstant.METHOD_INVOCATION_FLOW_PUBSUB, OpflowConstant.METHOD_INVOCATION_STATUS_ENTER, that.publishing.sum());
+        }
+        // Native worker
+        if (nativeWorkerEnabled) {
+            writeInvocation(writer, connectorName, OpflowConstant.METHOD_INVOCATION_NATIVE_WORKER, OpflowConstant.METHOD_INVOCATION_STATUS_NORMAL, that.directRetain.sum());
+            writeInvocation(writer, connectorName, OpflowConstant.METHOD_INVOCATION_NATIVE_WORKER, OpflowConstant.METHOD_INVOCATION_STATUS_RESCUE, that.directRescue.sum());
+        }
+        // AMQP workers
+        if (remoteAMQPWorkerEnabled) {
+            writeInvocation(writer, connectorName, OpflowConstant.METHOD_INVOCATION_REMOTE_AMQP_WORKER, OpflowConstant.METHOD_INVOCATION_STATUS_OK, that.remoteAMQPSuccess.sum());
+            writeInvocation(writer, connectorName, OpflowConstant.METHOD_INVOCATION_REMOTE_AMQP_WORKER, OpflowConstant.METHOD_INVOCATION_STATUS_FAILED, that.remoteAMQPFailure.sum());
+            writeInvocation(writer, connectorName, OpflowConstant.METHOD_INVOCATION_REMOTE_AMQP_WORKER, OpflowConstant.METHOD_INVOCATION_STATUS_TIMEOUT, that.remoteAMQPTimeout.sum());
+        }
+        // HTTP workers
+        if (remoteHTTPWorkerEnabled) {
+            writeInvocation(writer, connectorName, OpflowConstant.METHOD_INVOCATION_REMOTE_HTTP_WORKER, OpflowConstant.METHOD_INVOCATION_STATUS_OK, that.remoteHTTPSuccess.sum());
+            writeInvocation(writer, connectorName, OpflowConstant.METHOD_INVOCATION_REMOTE_HTTP_WORKER, OpflowConstant.METHOD_INVOCATION_STATUS_FAILED, that.remoteHTTPFailure.sum());
+            writeInvocation(writer, connectorName, OpflowConstant.METHOD_INVOCATION_REMOTE_HTTP_WORKER, OpflowConstant.METHOD_INVOCATION_STATUS_TIMEOUT, that.remoteHTTPTimeout.sum());
+        }
+        // Routine cache
+        long routineCacheHit = that.routineCacheHit.sum();
+        long routineCacheMiss = that.routineCacheMiss.sum();
+        if (routineCacheHit + routineCacheMiss > 0) {
+            writeInvocation(writer, connectorName, OpflowConstant.METHOD_INVOCATION_ROUTINE_CACHE, OpflowConstant.METHOD_INVOCATION_STATUS_HIT, routineCacheHit);
+            writeInvocation(writer, connectorName, OpflowConstant.METHOD_INVOCATION_ROUTINE_CACHE, OpflowConstant.METHOD_INVOCATION_STATUS_MISS, routineCacheMiss);
+        }
+    }
+
+    private static void writeInvocation(OpflowPromWriter writer, String connectorName, String flow, String status, long value) {
+        writer.sample(PROM_RPC_INVOCATION_TOTAL)
+                .label(OpflowConstant.PARAM_CONNECTOR_NAME, connectorName)
+                .label("flow", flow)
+                .label("status", status)
+                .value(value);
+    }
+
+    public static void writeLatencyFamily(OpflowPromWriter writer) {
+        writer.family(PROM_RPC_LATENCY, OpflowPromWriter.TYPE_HISTOGRAM, "The RPC invocation latencies by routine and transport");
+    }
+
+    public void writeLatencies(OpflowPromWriter writer, String connectorName, long[] cumulative) {
+        for (Map.Entry<String, OpflowLatencyHistogram[]> entry : epoch.latencies.entrySet()) {
+            OpflowLatencyHistogram[] histograms = entry.getValue();
+            for (int i = 0; i < histograms.length; i++) {
+                OpflowLatencyHistogram histogram = histograms[i];
+                if (histogram == null) {
+                    continue;
+                }
+                long count = histogram.readCumulative(PROM_LATENCY_BOUNDS, cumulative);
+                for (int b = 0; b < PROM_LATENCY_BOUNDS.length; b++) {
+                    writer.sample(PROM_RPC_LATENCY, "_bucket")
+                            .label(OpflowConstant.PARAM_CONNECTOR_NAME, connectorName)
+                            .label("routine", entry.getKey())
+                            .label("transport", PROM_LATENCY_TRANSPORTS[i])
+                            .label("le", PROM_LATENCY_BOUNDS[b])
+                            .value(cumulative[b]);
+                }
+                writer.sample(PROM_RPC_LATENCY, "_bucket")
+                        .label(OpflowConstant.PARAM_CONNECTOR_NAME, connectorName)
+                        .label("routine", entry.getKey())
+                        .label("transport", PROM_LATENCY_TRANSPORTS[i])
+                        .label("le", "+Inf")
+                        .value(count);
+                writer.sample(PROM_RPC_LATENCY, "_sum")
+                        .label(OpflowConstant.PARAM_CONNECTOR_NAME, connectorName)
+                        .label("routine", entry.getKey())
+                        .label("transport", PROM_LATENCY_TRANSPORTS[i])
+                        .value(histogram.getSum());
+                writer.sample(PROM_RPC_LATENCY, "_count")
+                        .label(OpflowConstant.PARAM_CONNECTOR_NAME, connectorName)
+                        .label("routine", entry.getKey())
+                        .label("transport", PROM_LATENCY_TRANSPORTS[i])
+                        .value(count);
+            }
+        }
+    }
+
+    public static long[] createLatencyBuffer() {
+        return new long[PROM_LATENCY_BOUNDS.length];
+    }
+
+    private Snapshot copy() {
+        return new Snapshot(epoch);
+    }
+
+    public void reset() {
+        // swap in a fresh epoch, the late increments of the old epoch are dropped with it
+        epoch = new Epoch();
+    }
+
+    /*
+     * Only the leaf counters are incremented (a single LongAdder per invocation);
+     * the totals are derived from them when a snapshot is taken, so that a snapshot
+     * is always self-consistent.
+     */
+    private static class Epoch {
+        private final Date startTime = new Date();
         // Restrictor
-        that.acceptedRpcTotal = this.acceptedRpcTotal;
-        that.rejectedRpcTotal = this.rejectedRpcTotal;
-        that.cancellationRpcTotal = this.cancellationRpcTotal;
-        that.serviceNotReadyRpcTotal = this.serviceNotReadyRpcTotal;
-        that.pausingTimeoutRpcTotal = this.pausingTimeoutRpcTotal;
-        that.semaphoreTimeoutRpcTotal = this.semaphoreTimeoutRpcTotal;
+        private final LongAdder rejectedRpc = new LongAdder();
+        private final LongAdder cancellationRpc = new LongAdder();
+        private final LongAdder serviceNotReadyRpc = new LongAdder();
+        private final LongAdder pausingTimeoutRpc = new LongAdder();
+        private final LongAdder semaphoreTimeoutRpc = new LongAdder();
+        private final LongAdder rateLimitedRpc = new LongAdder();
+        private final LongAdder bulkheadFullRpc = new LongAdder();
+        private final LongAdder shedRpc = new LongAdder();
         // Publisher
-        that.publishingTotal = this.publishingTotal;
+        private final LongAdder publishing = new LongAdder();
         // Native worker
-        that.direct = this.direct;
-        that.directRescue = this.directRescue;
-        that.directRetain = this.directRetain;
+        private final LongAdder directRetain = new LongAdder();
+        private final LongAdder directRescue = new LongAdder();
         // AMQP workers
-        that.remoteAMQPTotal = this.remoteAMQPTotal;
-        that.remoteAMQPSuccess = this.remoteAMQPSuccess;
-        that.remoteAMQPFailure = this.remoteAMQPFailure;
-        that.remoteAMQPTimeout = this.remoteAMQPTimeout;
+        private final LongAdder remoteAMQPSuccess = new LongAdder();
+        private final LongAdder remoteAMQPFailure = new LongAdder();
+        private final LongAdder remoteAMQPTimeout = new LongAdder();
         // HTTP workers
-        that.remoteHTTPTotal = this.remoteHTTPTotal;
-        that.remoteHTTPSuccess = this.remoteHTTPSuccess;
-        that.remoteHTTPFailure = this.remoteHTTPFailure;
-        that.remoteHTTPTimeout = this.remoteHTTPTimeout;
-        return that;
+        private final LongAdder remoteHTTPSuccess = new LongAdder();
+        private final LongAdder remoteHTTPFailure = new LongAdder();
+        private final LongAdder remoteHTTPTimeout = new LongAdder();
+        // Routine cache (the serverlet side, not counted in the totals)
+        private final LongAdder routineCacheHit = new LongAdder();
+        private final LongAdder routineCacheMiss = new LongAdder();
+        // Latencies
+        private final ConcurrentHashMap<String, OpflowLatencyHistogram[]> latencies = new ConcurrentHashMap<>();
+
+        long getDirectTotal() {
+            return directRetain.sum() + directRescue.sum();
+        }
+
+        long getRemoteAMQPTotal() {
+            return remoteAMQPSuccess.sum() + remoteAMQPFailure.sum() + remoteAMQPTimeout.sum();
+        }
+
+        long getRemoteHTTPTotal() {
+            return remoteHTTPSuccess.sum() + remoteHTTPFailure.sum() + remoteHTTPTimeout.sum();
+        }
     }
 
-    public synchronized void reset() {
-        this.startTime = new Date();
-        this.total = 0;
+    private static class Snapshot {
+        private final Date startTime;
+        private final long total;
         // Restrictor
-        this.acceptedRpcTotal = 0;
-        this.rejectedRpcTotal = 0;
-        this.cancellationRpcTotal = 0;
-        this.serviceNotReadyRpcTotal = 0;
-        this.pausingTimeoutRpcTotal = 0;
-        this.semaphoreTimeoutRpcTotal = 0;
+        private final long acceptedRpcTotal;
+        private final long rejectedRpcTotal;
+        private final long cancellationRpcTotal;
+        private final long serviceNotReadyRpcTotal;
+        private final long pausingTimeoutRpcTotal;
+        private final long semaphoreTimeoutRpcTotal;
+        private final long rateLimitedRpcTotal;
+        private final long bulkheadFullRpcTotal;
+        private final long shedRpcTotal;
         // Publisher
-        this.publishingTotal = 0;
+        private final long publishingTotal;
         // Native worker
-        this.direct = 0;
-        this.directRescue = 0;
-        this.directRetain = 0;
+        private final long direct;
+        private final long directRetain;
+        private final long directRescue;
         // AMQP workers
-        this.remoteAMQPTotal = 0;
-        this.remoteAMQPSuccess = 0;
-        this.remoteAMQPFailure = 0;
-        this.remoteAMQPTimeout = 0;
+        private final long remoteAMQPTotal;
+        private final long remoteAMQPSuccess;
+        private final long remoteAMQPFailure;
+        private final long remoteAMQPTimeout;
         // HTTP workers
-        this.remoteHTTPTotal = 0;
-        this.remoteHTTPSuccess = 0;
-        this.remoteHTTPFailure = 0;
-        this.remoteHTTPTimeout = 0;
+        private final long remoteHTTPTotal;
+        private final long remoteHTTPSuccess;
+        private final long remoteHTTPFailure;
+        private final long remoteHTTPTimeout;
+        // Routine cache
+        private final long routineCacheHit;
+        private final long routineCacheMiss;
+
+        Snapshot(Epoch epoch) {
+            this.startTime = epoch.startTime;
+            // Restrictor
+            this.cancellationRpcTotal = epoch.cancellationRpc.sum();
+            this.serviceNotReadyRpcTotal = epoch.serviceNotReadyRpc.sum();
+            this.pausingTimeoutRpcTotal = epoch.pausingTimeoutRpc.sum();
+            this.semaphoreTimeoutRpcTotal = epoch.semaphoreTimeoutRpc.sum();
+            this.rateLimitedRpcTotal = epoch.rateLimitedRpc.sum();
+            this.bulkheadFullRpcTotal = epoch.bulkheadFullRpc.sum();
+            this.shedRpcTotal = epoch.shedRpc.sum();
+            this.rejectedRpcTotal = epoch.rejectedRpc.sum() + cancellationRpcTotal + serviceNotReadyRpcTotal
+                    + pausingTimeoutRpcTotal + semaphoreTimeoutRpcTotal + rateLimitedRpcTotal + bulkheadFullRpcTotal + shedRpcTotal;
+            // Publisher
+            this.publishingTotal = epoch.publishing.sum();
+            // Native worker
+            this.directRetain = epoch.directRetain.sum();
+            this.directRescue = epoch.directRescue.sum();
+            this.direct = directRetain + directRescue;
+            // AMQP workers
+            this.remoteAMQPSuccess = epoch.remoteAMQPSuccess.sum();
+            this.remoteAMQPFailure = epoch.remoteAMQPFailure.sum();
+            this.remoteAMQPTimeout = epoch.remoteAMQPTimeout.sum();
+            this.remoteAMQPTotal = remoteAMQPSuccess + remoteAMQPFailure + remoteAMQPTimeout;
+            // HTTP workers
+            this.remoteHTTPSuccess = epoch.remoteHTTPSuccess.sum();
+            this.remoteHTTPFailure = epoch.remoteHTTPFailure.sum();
+            this.remoteHTTPTimeout = epoch.remoteHTTPTimeout.sum();
+            this.remoteHTTPTotal = remoteHTTPSuccess + remoteHTTPFailure + remoteHTTPTimeout;
+            // Routine cache
+            this.routineCacheHit = epoch.routineCacheHit.sum();
+            this.routineCacheMiss = epoch.routineCacheMiss.sum();
+            // Totals
+            this.acceptedRpcTotal = publishingTotal + direct + remoteAMQPTotal + remoteHTTPTotal;
+            this.total = acceptedRpcTotal + rejectedRpcTotal;
+        }
     }
 
     public Map<String, Object> toMap() {
@@ -229,7 +457,8 @@ public class OpflowRpcInvocationCounter {
     }
 
     public Map<String, Object> toMap(final boolean cloned, final boolean verbose) {
-        final OpflowRpcInvocationCounter that = cloned ? this.copy() : this;
+        // the counters are always read through a snapshot, the cloned flag is kept for compatibility
+        final Snapshot that = this.copy();
         final Date currentTime = new Date();
         final long elapsedTime = (currentTime.getTime() - that.startTime.getTime());
 
@@ -244,6 +473,9 @@ public class OpflowRpcInvocationCounter {
                     .put(LABEL_RPC_SERVICE_NOT_READY_TOTAL, that.serviceNotReadyRpcTotal, that.serviceNotReadyRpcTotal > 0)
                     .put(LABEL_RPC_PAUSING_TIMEOUT_TOTAL, that.pausingTimeoutRpcTotal, that.pausingTimeoutRpcTotal > 0)
                     .put(LABEL_RPC_SEMAPHORE_TIMEOUT_TOTAL, that.semaphoreTimeoutRpcTotal, that.semaphoreTimeoutRpcTotal > 0)
+                    .put(LABEL_RPC_RATE_LIMITED_TOTAL, that.rateLimitedRpcTotal, that.rateLimitedRpcTotal > 0)
+                    .put(LABEL_RPC_BULKHEAD_FULL_TOTAL, that.bulkheadFullRpcTotal, that.bulkheadFullRpcTotal > 0)
+                    .put(LABEL_RPC_SHED_TOTAL, that.shedRpcTotal, that.shedRpcTotal > 0)
                     .toMap());
         }
 
@@ -311,6 +543,15 @@ public class OpflowRpcInvocationCounter {
             }).toMap());
         }
 
+        if (that.routineCacheHit + that.routineCacheMiss > 0) {
+            double hitRatio = ((double) that.routineCacheHit) / (that.routineCacheHit + that.routineCacheMiss);
+            builder.put(LABEL_RPC_ROUTINE_CACHE, OpflowObjectTree.buildMap()
+                    .put(OpflowConstant.METHOD_INVOCATION_STATUS_HIT, that.routineCacheHit)
+                    .put(OpflowConstant.METHOD_INVOCATION_STATUS_MISS, that.routineCacheMiss)
+                    .put("hitRatio", OpflowMathUtil.round(hitRatio, 3))
+                    .toMap());
+        }
+
         return builder
                 .put(OpflowConstant.OPFLOW_COMMON_START_TIMESTAMP, that.startTime)
                 .put(OpflowConstant.OPFLOW_COMMON_ELAPSED_TIME, OpflowDateTime.printElapsedTime(that.startTime, currentTime))
@@ -321,12 +562,7 @@ public class OpflowRpcInvocationCounter {
         return new OpflowThroughput.Source() {
             @Override
             public long getValue() {
-                return publishingTotal;
-            }
-
-            @Override
-            public Date getTime() {
-                return new Date();
+                return epoch.publishing.sum();
             }
         };
     }
@@ -335,12 +571,7 @@ public class OpflowRpcInvocationCounter {
         return new OpflowThroughput.Source() {
             @Override
             public long getValue() {
-                return direct;
-            }
-
-            @Override
-            public Date getTime() {
-                return new Date();
+                return epoch.getDirectTotal();
             }
         };
     }
@@ -349,12 +580,7 @@ public class OpflowRpcInvocationCounter {
         return new OpflowThroughput.Source() {
             @Override
             public long getValue() {
-                return remoteAMQPTotal;
-            }
-
-            @Override
-            public Date getTime() {
-                return new Date();
+                return epoch.getRemoteAMQPTotal();
             }
         };
     }
@@ -363,12 +589,7 @@ public class OpflowRpcInvocationCounter {
         return new OpflowThroughput.Source() {
             @Override
             public long getValue() {
-                return remoteHTTPTotal;
-            }
-
-            @Override
-            public Date getTime() {
-                return new Date();
+                return epoch.getRemoteHTTPTotal();
             }
         };
     }
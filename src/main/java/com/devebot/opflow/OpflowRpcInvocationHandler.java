@@ -14,6 +14,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,12 +39,15 @@ public class OpflowRpcInvocationHandler implements InvocationHandler {
     private final OpflowRpcHttpMaster httpMaster;
     private final OpflowPubsubHandler publisher;
 
+    private final String connectorName;
     private final Class clazz;
     private final Object nativeWorker;
     private final boolean nativeWorkerEnabled;
     private boolean nativeWorkerActive = true;
     private final Map<String, String> aliasOfMethod = new HashMap<>();
     private final Map<String, Boolean> methodIsAsync = new HashMap<>();
+    private final Map<String, String> bulkheadOfMethod = new HashMap<>();
+    private final Map<String, Integer> priorityOfMethod = new HashMap<>();
 
     private boolean publisherActive = true;
     private boolean remoteAMQPWorkerActive = true;
@@ -60,6 +64,7 @@ public class OpflowRpcInvocationHandler implements InvocationHandler {
         OpflowRpcAmqpMaster amqpMaster,
         OpflowRpcHttpMaster httpMaster,
         OpflowPubsubHandler publisher,
+        String connectorName,
         Class clazz,
         Object nativeWorker,
         boolean nativeWorkerEnabled
@@ -76,6 +81,7 @@ public class OpflowRpcInvocationHandler implements InvocationHandler {
 
         this.masterFlags = new int[] { FLAG_AMQP, FLAG_HTTP };
 
+        this.connectorName = connectorName;
         this.clazz = clazz;
         this.nativeWorker = nativeWorker;
         this.nativeWorkerEnabled = nativeWorkerEnabled;
@@ -96,6 +102,12 @@ public class OpflowRpcInvocationHandler implements InvocationHandler {
                         .stringify());
             }
             methodIsAsync.put(methodSignature, (routine != null) && routine.isAsync());
+            if (routine != null && routine.bulkhead() != null && routine.bulkhead().length() > 0) {
+                bulkheadOfMethod.put(methodSignature, routine.bulkhead());
+            }
+            if (routine != null && routine.priority() != 0) {
+                priorityOfMethod.put(methodSignature, routine.priority());
+            }
         }
     }
 
@@ -111,6 +123,7 @@ public class OpflowRpcInvocationHandler implements InvocationHandler {
                 .put("method", methodName)
                 .put("alias", aliasOfMethod.get(methodName))
                 .put("async", methodIsAsync.get(methodName))
+                .put("bulkhead", bulkheadOfMethod.get(methodName))
                 .toMap());
         }
         return infos;
@@ -176,18 +189,55 @@ public class OpflowRpcInvocationHandler implements InvocationHandler {
 
     @Override
     public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+        // get the method signature
+        final String methodSignature = OpflowUtil.getMethodSignature(method);
+
+        // convert the method signature to routineSignature
+        final String routineSignature = aliasOfMethod.getOrDefault(methodSignature, methodSignature);
+
         if (this.restrictor == null) {
-            return _invoke(proxy, method, args);
+            return _invoke(proxy, method, methodSignature, routineSignature, args, null);
         }
-        return this.restrictor.filter(new OpflowRestrictor.Action<Object>() {
+        final AtomicBoolean timedOut = new AtomicBoolean(false);
+        return this.restrictor.filter(new OpflowRestrictor.RoutineAction<Object>() {
+            @Override
+            public String getRoutineSignature() {
+                return routineSignature;
+            }
+
+            @Override
+            public String getRoutineGroup() {
+                return bulkheadOfMethod.get(methodSignature);
+            }
+
+            @Override
+            public String getConnectorName() {
+                return connectorName;
+            }
+
+            @Override
+            public int getRoutinePriority() {
+                return priorityOfMethod.getOrDefault(methodSignature, 0);
+            }
+
+            @Override
+            public Long getRoutineDeadline() {
+                return OpflowRpcDeadline.current();
+            }
+
+            @Override
+            public boolean isTimedOut() {
+                return timedOut.get();
+            }
+
             @Override
             public Object process() throws Throwable {
-                return _invoke(proxy, method, args);
+                return _invoke(proxy, method, methodSignature, routineSignature, args, timedOut);
             }
         });
     }
 
-    private Object _invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    private Object _invoke(Object proxy, Method method, String methodSignature, String routineSignature, Object[] args, AtomicBoolean timedOut) throws Throwable {
         // generate the routineId
         final String routineId = OpflowUUID.getBase64ID();
 
@@ -197,12 +247,6 @@ public class OpflowRpcInvocationHandler implements InvocationHandler {
         // create the logTracer
         final OpflowLogTracer reqTracer = logTracer.branch(OpflowConstant.REQUEST_TIME, routineTimestamp).branch(OpflowConstant.REQUEST_ID, routineId);
 
-        // get the method signature
-        String methodSignature = OpflowUtil.getMethodSignature(method);
-
-        // convert the method signature to routineSignature
-        String routineSignature = aliasOfMethod.getOrDefault(methodSignature, methodSignature);
-
         // determine the requestId
         final String requestId;
         if (reqExtractor != null) {
@@ -261,9 +305,11 @@ public class OpflowRpcInvocationHandler implements InvocationHandler {
                 if (isRemoteAMQPWorkerAvailable()) {
                     unfinished = false;
 
+                    long amqpStartTime = System.nanoTime();
                     OpflowRpcAmqpRequest amqpSession = amqpMaster.request(routineSignature, body, (new OpflowRpcParameter(routineId, routineTimestamp))
                             .setProgressEnabled(false));
                     OpflowRpcAmqpResult amqpResult = amqpSession.extractResult(false);
+                    measurer.observeRpcLatency(OpflowConstant.COMP_COMMANDER, OpflowConstant.METHOD_INVOCATION_REMOTE_AMQP_WORKER, routineSignature, System.nanoTime() - amqpStartTime);
 
                     if (amqpResult.isCompleted()) {
                         if (reqTracer.ready(LOG, OpflowLogTracer.Level.DEBUG)) LOG.debug(reqTracer
@@ -292,6 +338,9 @@ public class OpflowRpcInvocationHandler implements InvocationHandler {
                         if (reqTracer.ready(LOG, OpflowLogTracer.Level.DEBUG)) LOG.debug(reqTracer
                                 .text("Request[${requestId}][${requestTime}][x-commander-remote-amqp-worker-timeout] - RpcInvocationHandler.invoke() is timeout")
                                 .stringify());
+                        if (timedOut != null) {
+                            timedOut.set(true);
+                        }
                     }
 
                     unfinished = true;
@@ -309,8 +358,10 @@ public class OpflowRpcInvocationHandler implements InvocationHandler {
                 if (isRemoteHTTPWorkerAvailable() && routingInfo != null) {
                     unfinished = false;
 
+                    long httpStartTime = System.nanoTime();
                     OpflowRpcHttpMaster.Session httpSession = httpMaster.request(routineSignature, body, (new OpflowRpcParameter(routineId, routineTimestamp))
                             .setProgressEnabled(false), routingInfo);
+                    measurer.observeRpcLatency(OpflowConstant.COMP_COMMANDER, OpflowConstant.METHOD_INVOCATION_REMOTE_HTTP_WORKER, routineSignature, System.nanoTime() - httpStartTime);
 
                     if (httpSession.isOk()) {
                         measurer.countRpcInvocation(OpflowConstant.COMP_COMMANDER, OpflowConstant.METHOD_INVOCATION_REMOTE_HTTP_WORKER, routineSignature, "ok");
@@ -338,6 +389,9 @@ public class OpflowRpcInvocationHandler implements InvocationHandler {
                                     .text("Request[${requestId}][${requestTime}][x-commander-remote-http-worker-timeout] - RpcInvocationHandler.invoke() is timeout")
                                     .stringify());
                         }
+                        if (timedOut != null) {
+                            timedOut.set(true);
+                        }
                     }
 
                     if (httpSession.isCracked()) {
@@ -368,7 +422,13 @@ public class OpflowRpcInvocationHandler implements InvocationHandler {
                         .stringify());
                 measurer.countRpcInvocation(OpflowConstant.COMP_COMMANDER, OpflowConstant.METHOD_INVOCATION_NATIVE_WORKER, routineSignature, OpflowConstant.METHOD_INVOCATION_STATUS_NORMAL);
             }
-            return method.invoke(this.nativeWorker, args);
+            long directStartTime = System.nanoTime();
+            try {
+                return method.invoke(this.nativeWorker, args);
+            }
+            finally {
+                measurer.observeRpcLatency(OpflowConstant.COMP_COMMANDER, OpflowConstant.METHOD_INVOCATION_NATIVE_WORKER, routineSignature, System.nanoTime() - directStartTime);
+            }
         } else {
             if (reqTracer.ready(LOG, OpflowLogTracer.Level.DEBUG)) LOG.trace(reqTracer
                     .text("Request[${requestId}][${requestTime}][x-commander-remote-all-workers-timeout] - RpcInvocationHandler.invoke() is timeout")
@@ -7,12 +7,23 @@ import com.devebot.opflow.supports.OpflowDateTime;
 import com.devebot.opflow.supports.OpflowEnvTool;
 import com.devebot.opflow.supports.OpflowJsonTool;
 import com.devebot.opflow.supports.OpflowRevolvingMap;
+import com.squareup.nostro.okhttp3.Call;
+import com.squareup.nostro.okhttp3.Callback;
+import com.squareup.nostro.okhttp3.OkHttpClient;
+import com.squareup.nostro.okhttp3.Request;
+import com.squareup.nostro.okhttp3.Response;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -49,8 +60,8 @@ public class OpflowRpcObserver {
     private final OpflowRevolvingMap<String, OpflowRpcRoutingInfo> httpRoutingMap = new OpflowRevolvingMap<>(changeListener);
     
     private long keepAliveTimeout = 2 * KEEP_ALIVE_TIMEOUT;
-    private boolean congestiveAMQP = false;
-    private boolean congestiveHTTP = false;
+    private volatile boolean congestiveAMQP = false;
+    private volatile boolean congestiveHTTP = false;
     
     private final boolean trimmingEnabled;
     private final long trimmingTimeDelay;
@@ -61,6 +72,19 @@ public class OpflowRpcObserver {
     private final Object threadExecutorLock = new Object();
     private ExecutorService threadExecutor = null;
     
+    private final boolean outlierEnabled;
+    private final long outlierInterval;
+    private final int outlierMinRequests;
+    private final int outlierFailureRate;
+    private final int outlierLatencyFactor;
+    private final long outlierEjectionTime;
+    private final long outlierEjectionMaxTime;
+    private final int outlierEjectionPercent;
+    private final long outlierProbeTimeout;
+    private final Object outlierTimerLock = new Object();
+    private Timer outlierTimer = null;
+    private OkHttpClient probeClient = null;
+    
     public OpflowRpcObserver(Map<String, Object> kwargs) {
         componentId = OpflowUtil.getStringField(kwargs, OpflowConstant.COMPONENT_ID, true);
         
@@ -77,6 +101,16 @@ public class OpflowRpcObserver {
         trimmingEnabled = OpflowUtil.getBooleanField(kwargs, OpflowConstant.OPFLOW_COUNSELOR_TRIMMING_ENABLED, Boolean.TRUE);
         trimmingTimeDelay = OpflowUtil.getLongField(kwargs, OpflowConstant.OPFLOW_COUNSELOR_TRIMMING_TIME_DELAY, KEEP_ALIVE_TIMEOUT / 10);
         
+        outlierEnabled = OpflowUtil.getBooleanField(kwargs, OpflowConstant.OPFLOW_COUNSELOR_OUTLIER_ENABLED, Boolean.FALSE);
+        outlierInterval = OpflowUtil.getLongField(kwargs, OpflowConstant.OPFLOW_COUNSELOR_OUTLIER_INTERVAL, 10000l);
+        outlierMinRequests = OpflowUtil.getIntegerField(kwargs, OpflowConstant.OPFLOW_COUNSELOR_OUTLIER_MIN_REQUESTS, 10);
+        outlierFailureRate = OpflowUtil.getIntegerField(kwargs, OpflowConstant.OPFLOW_COUNSELOR_OUTLIER_FAILURE_RATE, 30);
+        outlierLatencyFactor = OpflowUtil.getIntegerField(kwargs, OpflowConstant.OPFLOW_COUNSELOR_OUTLIER_LATENCY_FACTOR, 3);
+        outlierEjectionTime = OpflowUtil.getLongField(kwargs, OpflowConstant.OPFLOW_COUNSELOR_OUTLIER_EJECTION_TIME, 30000l);
+        outlierEjectionMaxTime = OpflowUtil.getLongField(kwargs, OpflowConstant.OPFLOW_COUNSELOR_OUTLIER_EJECTION_MAX_TIME, 300000l);
+        outlierEjectionPercent = OpflowUtil.getIntegerField(kwargs, OpflowConstant.OPFLOW_COUNSELOR_OUTLIER_EJECTION_PERCENT, 50);
+        outlierProbeTimeout = OpflowUtil.getLongField(kwargs, OpflowConstant.OPFLOW_COUNSELOR_OUTLIER_PROBE_TIMEOUT, 1000l);
+        
         serviceUpdater = new OpflowDiscoveryMaster.ServiceHealthHook() {
             @Override
             public void onChange(Map<String, OpflowRpcRoutingInfo> serviceInfo) {
@@ -90,11 +124,8 @@ public class OpflowRpcObserver {
                             .put("serviceIds", httpRoutingKey)
                             .text("RpcCounselor[${rpcCounselorId}] current services: ${serviceIds}")
                             .stringify());
-                    for (Map.Entry<String, OpflowRpcRoutingInfo> entry : serviceInfo.entrySet()) {
-                        String componentId = entry.getKey();
-                        httpRoutingMap.put(componentId, entry.getValue());
-                        httpRoutingKey.remove(componentId);
-                    }
+                    httpRoutingMap.putAll(serviceInfo);
+                    httpRoutingKey.removeAll(serviceInfo.keySet());
                     if (eventTracer != null && eventTracer.ready(LOG, Level.TRACE)) LOG.trace(eventTracer
                             .put("serviceIds", httpRoutingKey)
                             .text("RpcCounselor[${rpcCounselorId}] removed services: ${serviceIds}")
@@ -137,6 +168,24 @@ public class OpflowRpcObserver {
         return keepAliveTimeout;
     }
 
+    public boolean isOutlierEnabled() {
+        return outlierEnabled;
+    }
+
+    public long getOutlierInterval() {
+        return outlierInterval;
+    }
+
+    public int getOutlierEjected() {
+        int count = 0;
+        for (OpflowRpcRoutingInfo info : httpRoutingMap.values()) {
+            if (info.isEjected()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     public OpflowDiscoveryMaster.ServiceHealthHook getServiceUpdater() {
         return serviceUpdater;
     }
@@ -162,7 +211,48 @@ public class OpflowRpcObserver {
         return threadExecutor;
     }
     
+    public void serve() {
+        if (!outlierEnabled || outlierInterval <= 0) {
+            return;
+        }
+        synchronized (outlierTimerLock) {
+            if (outlierTimer == null) {
+                outlierTimer = new Timer("Timer-" + OpflowRpcObserver.class.getSimpleName(), true);
+                outlierTimer.scheduleAtFixedRate(new TimerTask() {
+                    @Override
+                    public void run() {
+                        try {
+                            detectOutliers(httpRoutingMap);
+                        }
+                        catch (Throwable exception) {
+                            if (logTracer.ready(LOG, Level.DEBUG)) LOG.debug(logTracer
+                                    .put("exceptionName", exception.getClass().getName())
+                                    .text("RpcCounselor[${rpcCounselorId}] outlier detection has failed: ${exceptionName}")
+                                    .stringify());
+                        }
+                    }
+                }, outlierInterval, outlierInterval);
+                if (logTracer.ready(LOG, Level.DEBUG)) LOG.debug(logTracer
+                        .put("interval", outlierInterval)
+                        .text("RpcCounselor[${rpcCounselorId}] outlier detection has been started with interval: ${interval}")
+                        .stringify());
+            }
+        }
+    }
+    
     public void close() {
+        synchronized (outlierTimerLock) {
+            if (outlierTimer != null) {
+                outlierTimer.cancel();
+                outlierTimer.purge();
+                outlierTimer = null;
+            }
+            if (probeClient != null) {
+                probeClient.dispatcher().cancelAll();
+                probeClient.dispatcher().executorService().shutdown();
+                probeClient = null;
+            }
+        }
         synchronized (threadExecutorLock) {
             if (threadExecutor != null) {
                 threadExecutor.shutdown();
@@ -288,12 +378,18 @@ public class OpflowRpcObserver {
         switch (protocol) {
             case AMQP:
                 if (componentId != null) {
-                    amqpRoutingMap.get(componentId).setCongestive(congestive);
+                    OpflowRpcRoutingInfo info = amqpRoutingMap.get(componentId);
+                    if (info != null) {
+                        info.setCongestive(congestive);
+                    }
                 }
                 break;
             case HTTP:
                 if (componentId != null) {
-                    httpRoutingMap.get(componentId).setCongestive(congestive);
+                    OpflowRpcRoutingInfo info = httpRoutingMap.get(componentId);
+                    if (info != null) {
+                        info.setCongestive(congestive);
+                    }
                 }
                 break;
         }
@@ -326,12 +422,162 @@ public class OpflowRpcObserver {
         }
     }
     
+    public void recordOutcome(OpflowConstant.Protocol protocol, String componentId, boolean ok, long latency) {
+        if (!outlierEnabled || componentId == null) {
+            return;
+        }
+        OpflowRpcRoutingInfo info = null;
+        switch (protocol) {
+            case AMQP:
+                info = amqpRoutingMap.get(componentId);
+                break;
+            case HTTP:
+                info = httpRoutingMap.get(componentId);
+                break;
+        }
+        if (info != null) {
+            info.recordOutcome(ok, latency);
+        }
+    }
+    
+    private void detectOutliers(OpflowRevolvingMap<String, OpflowRpcRoutingInfo> revolver) {
+        List<OpflowRpcRoutingInfo> infos = revolver.values();
+        if (infos.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        int ejectedTotal = 0;
+        // probe the ejected/congestive workers, they are re-admitted when the probe is answered
+        for (OpflowRpcRoutingInfo info : infos) {
+            if (info.isEjectionExpired(now) || (!info.isEjected() && info.isCongestive())) {
+                probe(info);
+            }
+            if (info.isEjected()) {
+                ejectedTotal++;
+            }
+        }
+        // compare the error rate & the latency of the active workers with the fleet median
+        List<OpflowRpcRoutingInfo> candidates = new ArrayList<>();
+        List<OpflowRpcRoutingInfo.Stats> statsList = new ArrayList<>();
+        for (OpflowRpcRoutingInfo info : infos) {
+            if (info.isEjected()) {
+                continue;
+            }
+            OpflowRpcRoutingInfo.Stats stats = info.collectStats();
+            if (stats.getRequestCount() >= outlierMinRequests) {
+                candidates.add(info);
+                statsList.add(stats);
+            }
+        }
+        if (candidates.size() < 2) {
+            return;
+        }
+        double[] failureRates = new double[statsList.size()];
+        double[] latencies = new double[statsList.size()];
+        for (int i = 0; i < statsList.size(); i++) {
+            failureRates[i] = statsList.get(i).getFailureRate();
+            latencies[i] = statsList.get(i).getAverageLatency();
+        }
+        double medianFailureRate = median(failureRates);
+        double medianLatency = median(latencies);
+        int ejectedLimit = Math.max(1, infos.size() * outlierEjectionPercent / 100);
+        for (int i = 0; i < candidates.size() && ejectedTotal < ejectedLimit; i++) {
+            OpflowRpcRoutingInfo.Stats stats = statsList.get(i);
+            boolean outlier = (stats.getFailureRate() - medianFailureRate) * 100 > outlierFailureRate;
+            if (!outlier && medianLatency > 0 && outlierLatencyFactor > 0) {
+                outlier = stats.getAverageLatency() > medianLatency * outlierLatencyFactor;
+            }
+            if (outlier) {
+                OpflowRpcRoutingInfo info = candidates.get(i);
+                int ejectedCount = info.eject(now, outlierEjectionTime, outlierEjectionMaxTime);
+                ejectedTotal++;
+                if (logTracer.ready(LOG, Level.INFO)) LOG.info(logTracer
+                        .put("serverletId", info.getComponentId())
+                        .put("failureRate", stats.getFailureRate())
+                        .put("averageLatency", stats.getAverageLatency())
+                        .put("ejectedCount", ejectedCount)
+                        .text("RpcCounselor[${rpcCounselorId}] serverlet[${serverletId}] is ejected (failureRate: ${failureRate}, latency: ${averageLatency}, times: ${ejectedCount})")
+                        .stringify());
+            }
+        }
+    }
+    
+    private void probe(final OpflowRpcRoutingInfo info) {
+        // the probes run asynchronously (bounded by the callTimeout), one at a time per worker
+        if (!info.beginProbe()) {
+            return;
+        }
+        try {
+            Request request = new Request.Builder().url(info.getProbeUrl()).get().build();
+            assertProbeClient().newCall(request).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException exception) {
+                    try {
+                        onProbed(info, false);
+                    }
+                    finally {
+                        info.endProbe();
+                    }
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    try (Response ref = response) {
+                        onProbed(info, ref.isSuccessful());
+                    }
+                    finally {
+                        info.endProbe();
+                    }
+                }
+            });
+        }
+        catch (Exception exception) {
+            info.endProbe();
+        }
+    }
+    
+    private void onProbed(OpflowRpcRoutingInfo info, boolean ok) {
+        if (ok) {
+            info.readmit();
+            if (logTracer.ready(LOG, Level.DEBUG)) LOG.debug(logTracer
+                    .put("serverletId", info.getComponentId())
+                    .text("RpcCounselor[${rpcCounselorId}] serverlet[${serverletId}] is re-admitted")
+                    .stringify());
+        } else {
+            if (info.isEjected()) {
+                info.eject(System.currentTimeMillis(), outlierEjectionTime, outlierEjectionMaxTime);
+            }
+        }
+    }
+    
+    private OkHttpClient assertProbeClient() {
+        if (probeClient == null) {
+            probeClient = new OkHttpClient.Builder()
+                    .callTimeout(outlierProbeTimeout, TimeUnit.MILLISECONDS)
+                    .build();
+        }
+        return probeClient;
+    }
+    
+    private static double median(double[] values) {
+        double[] sorted = Arrays.copyOf(values, values.length);
+        Arrays.sort(sorted);
+        int mid = sorted.length / 2;
+        if (sorted.length % 2 == 0) {
+            return (sorted[mid - 1] + sorted[mid]) / 2;
+        }
+        return sorted[mid];
+    }
+    
     private OpflowRpcRoutingInfo selectGoodRoutingInfo(OpflowRevolvingMap<String, OpflowRpcRoutingInfo> revolver) {
         OpflowRpcRoutingInfo routingInfo = null;
         int size = revolver.size();
         while (size > 0) {
             OpflowRpcRoutingInfo info = revolver.rotate();
-            if (!info.isCongestive()) {
+            if (info == null) {
+                break;
+            }
+            if (!info.isCongestive() && !info.isEjected()) {
                 if (DEBUG && LOG.isDebugEnabled()) {
                     LOG.debug("Ok");
                 }
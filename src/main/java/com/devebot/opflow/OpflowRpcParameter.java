@@ -22,9 +22,11 @@ public class OpflowRpcParameter implements Customizer {
     private final String routineTimestamp;
     private String[] routineTags = null;
     private Long routineTTL = null;
+    private Long routineDeadline = null;
     private String routineSignature = null;
     private String routineScope = null;
     private Boolean callbackTransient = false;
+    private Boolean streamEnabled = false;
     private Boolean progressEnabled = null;
     
     private boolean isInternalOplog;
@@ -32,6 +34,7 @@ public class OpflowRpcParameter implements Customizer {
     public OpflowRpcParameter() {
         this.routineId = OpflowUUID.getBase64ID();
         this.routineTimestamp = OpflowDateTime.getCurrentTimeString();
+        this.routineDeadline = OpflowRpcDeadline.current();
 
         this.isInternalOplog = determineInternalOplog();
     }
@@ -47,6 +50,7 @@ public class OpflowRpcParameter implements Customizer {
         this.progressEnabled = OpflowUtil.getProgressEnabled(headers);
 
         this.routineTTL = OpflowUtil.getLongField(headers, "timeout", null);
+        this.routineDeadline = OpflowUtil.getRoutineDeadline(headers);
         this.callbackTransient = "forked".equals((String)headers.get("mode"));
 
         this.isInternalOplog = determineInternalOplog();
@@ -55,6 +59,7 @@ public class OpflowRpcParameter implements Customizer {
     public OpflowRpcParameter(String routineId, String routineTimestamp) {
         this.routineId = routineId;
         this.routineTimestamp = routineTimestamp;
+        this.routineDeadline = OpflowRpcDeadline.current();
 
         this.isInternalOplog = determineInternalOplog();
     }
@@ -98,6 +103,15 @@ public class OpflowRpcParameter implements Customizer {
         return this;
     }
     
+    public Long getRoutineDeadline() {
+        return routineDeadline;
+    }
+
+    public OpflowRpcParameter setRoutineDeadline(Long routineDeadline) {
+        this.routineDeadline = routineDeadline;
+        return this;
+    }
+    
     public String getRoutineScope() {
         return routineScope;
     }
@@ -117,6 +131,15 @@ public class OpflowRpcParameter implements Customizer {
         return this;
     }
 
+    public Boolean getStreamEnabled() {
+        return streamEnabled;
+    }
+
+    public OpflowRpcParameter setStreamEnabled(Boolean streamEnabled) {
+        this.streamEnabled = streamEnabled;
+        return this;
+    }
+
     public Boolean getProgressEnabled() {
         return progressEnabled;
     }
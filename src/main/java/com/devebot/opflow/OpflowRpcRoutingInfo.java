@@ -5,13 +5,20 @@ package com.devebot.opflow;
  * @author acegik
  */
 public class OpflowRpcRoutingInfo {
-    private OpflowConstant.Protocol protocol;
-    private String componentId;
-    private String address;
-    private String topic;
-    private Boolean congestive = null;
+    private final OpflowConstant.Protocol protocol;
+    private volatile String componentId;
+    private volatile Endpoint endpoint;
+    private volatile String topic;
+    private volatile Boolean congestive = null;
     
-    private String url = null;
+    private long requestCount = 0;
+    private long failureCount = 0;
+    private long latencyTotal = 0;
+    private volatile long ejectedUntil = 0;
+    private int ejectedCount = 0;
+    private long ejectedDuration = 0;
+    private long readmittedAt = 0;
+    private boolean probing = false;
 
     public OpflowRpcRoutingInfo(OpflowConstant.Protocol protocol, String componentId, String location) {
         this(protocol, componentId, location, null);
@@ -25,7 +32,7 @@ public class OpflowRpcRoutingInfo {
                 this.topic = location;
                 break;
             case HTTP:
-                this.address = location;
+                this.endpoint = (location != null) ? new Endpoint(location) : null;
                 break;
         }
         this.congestive = congestive;
@@ -36,10 +43,13 @@ public class OpflowRpcRoutingInfo {
     }
 
     public String getAddress() {
-        if (this.url == null) {
-            this.url = "http://" + this.address + "/routine";
-        }
-        return this.url;
+        Endpoint e = endpoint;
+        return (e != null) ? e.url : null;
+    }
+
+    public String getProbeUrl() {
+        Endpoint e = endpoint;
+        return (e != null) ? e.probeUrl : null;
     }
 
     public String getTopic() {
@@ -57,13 +67,77 @@ public class OpflowRpcRoutingInfo {
         this.congestive = congestive;
     }
     
+    public synchronized void recordOutcome(boolean ok, long latency) {
+        requestCount++;
+        if (!ok) {
+            failureCount++;
+        }
+        latencyTotal += latency;
+    }
+    
+    public synchronized Stats collectStats() {
+        Stats stats = new Stats(requestCount, failureCount, latencyTotal);
+        requestCount = 0;
+        failureCount = 0;
+        latencyTotal = 0;
+        return stats;
+    }
+    
+    public boolean isEjected() {
+        return ejectedUntil > 0;
+    }
+    
+    public boolean isEjectionExpired(long now) {
+        return ejectedUntil > 0 && now >= ejectedUntil;
+    }
+    
+    public synchronized int eject(long now, long baseEjectionTime, long maxEjectionTime) {
+        // the back-off starts over only when the worker stayed healthy for a whole ejection period
+        if (ejectedUntil == 0 && readmittedAt > 0 && now - readmittedAt >= ejectedDuration) {
+            ejectedCount = 0;
+        }
+        ejectedCount++;
+        long duration = baseEjectionTime << Math.min(ejectedCount - 1, 16);
+        if (duration <= 0 || duration > maxEjectionTime) {
+            duration = maxEjectionTime;
+        }
+        ejectedDuration = duration;
+        ejectedUntil = now + duration;
+        return ejectedCount;
+    }
+    
+    public synchronized boolean beginProbe() {
+        if (probing) {
+            return false;
+        }
+        probing = true;
+        return true;
+    }
+    
+    public synchronized void endProbe() {
+        probing = false;
+    }
+    
+    public synchronized void readmit() {
+        readmit(System.currentTimeMillis());
+    }
+    
+    public synchronized void readmit(long now) {
+        // the ejection count is kept, a worker that flaps is ejected for longer the next time
+        ejectedUntil = 0;
+        readmittedAt = now;
+        congestive = false;
+    }
+    
     public OpflowRpcRoutingInfo update(OpflowRpcRoutingInfo n) {
         if (n != null && n.protocol == this.protocol) {
             if (n.componentId != null) {
                 this.componentId = n.componentId;
             }
-            if (n.address != null) {
-                this.address = n.address;
+            // the address and its urls are swapped together, a reader never sees a mixed pair
+            Endpoint e = n.endpoint;
+            if (e != null && (this.endpoint == null || !e.address.equals(this.endpoint.address))) {
+                this.endpoint = e;
             }
             if (n.topic != null) {
                 this.topic = n.topic;
@@ -74,4 +148,46 @@ public class OpflowRpcRoutingInfo {
         }
         return this;
     }
+    
+    private static class Endpoint {
+        private final String address;
+        private final String url;
+        private final String probeUrl;
+
+        Endpoint(String address) {
+            this.address = address;
+            this.url = "http://" + address + "/routine";
+            this.probeUrl = "http://" + address + "/ping";
+        }
+    }
+    
+    public static class Stats {
+        private final long requestCount;
+        private final long failureCount;
+        private final long latencyTotal;
+
+        Stats(long requestCount, long failureCount, long latencyTotal) {
+            this.requestCount = requestCount;
+            this.failureCount = failureCount;
+            this.latencyTotal = latencyTotal;
+        }
+
+        public long getRequestCount() {
+            return requestCount;
+        }
+
+        public double getFailureRate() {
+            if (requestCount == 0) {
+                return 0;
+            }
+            return ((double) failureCount) / requestCount;
+        }
+
+        public double getAverageLatency() {
+            if (requestCount == 0) {
+                return 0;
+            }
+            return ((double) latencyTotal) / requestCount;
+        }
+    }
 }
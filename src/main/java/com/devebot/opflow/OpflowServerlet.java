@@ -7,14 +7,18 @@ import com.devebot.opflow.exception.OpflowBootstrapException;
 import com.devebot.opflow.exception.OpflowInstantiationException;
 import com.devebot.opflow.exception.OpflowJsonSyntaxException;
 import com.devebot.opflow.exception.OpflowMethodNotFoundException;
+import com.devebot.opflow.exception.OpflowRequestTimeoutException;
 import com.devebot.opflow.exception.OpflowTargetNotFoundException;
 import com.devebot.opflow.supports.OpflowCollectionUtil;
 import com.devebot.opflow.supports.OpflowObjectTree;
 import com.devebot.opflow.supports.OpflowSystemInfo;
+import com.devebot.opflow.supports.OpflowWeightedCache;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
@@ -22,6 +26,18 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -218,6 +234,9 @@ public class OpflowServerlet implements AutoCloseable {
             if (amqpWorker != null || httpWorker != null || subscriber != null) {
                 instantiator = new Instantiator(amqpWorker, httpWorker, subscriber, OpflowObjectTree.buildMap(false)
                     .put(OpflowConstant.COMPONENT_ID, componentId)
+                    .put(OpflowConstant.COMP_MEASURER, measurer)
+                    .put(OpflowConstant.OPFLOW_ROUTINE_CACHE_MAX_WEIGHT, kwargs.get(OpflowConstant.OPFLOW_ROUTINE_CACHE_MAX_WEIGHT))
+                    .put(OpflowConstant.OPFLOW_ROUTINE_CACHE_OFF_HEAP, kwargs.get(OpflowConstant.OPFLOW_ROUTINE_CACHE_OFF_HEAP))
                     .toMap());
             }
         } catch (OpflowBootstrapException exception) {
@@ -337,6 +356,9 @@ public class OpflowServerlet implements AutoCloseable {
         if (subscriber != null) {
             subscriber.close();
         }
+        if (instantiator != null) {
+            instantiator.close();
+        }
 
         OpflowUUID.release();
 
@@ -396,6 +418,9 @@ public class OpflowServerlet implements AutoCloseable {
     public static class Instantiator {
 
         private static final Logger LOG = LoggerFactory.getLogger(Instantiator.class);
+        private static final int BATCH_POOL_SIZE = Math.max(2, Runtime.getRuntime().availableProcessors());
+        private static final int BATCH_QUEUE_LIMIT = 256;
+        private static final long BATCH_WAIT_TIMEOUT = 30000l;
         private final OpflowLogTracer logTracer;
         private final OpflowRpcAmqpWorker amqpWorker;
         private final OpflowRpcAmqpWorker.Listener amqpListener;
@@ -407,6 +432,15 @@ public class OpflowServerlet implements AutoCloseable {
         private final Map<String, Method> methodRef = new HashMap<>();
         private final Map<String, Object> targetRef = new HashMap<>();
         private final Map<String, String> methodOfAlias = new HashMap<>();
+        private final Map<String, RoutineBatcher> batcherRef = new HashMap<>();
+        private final Map<String, Long> cacheTTLRef = new HashMap<>();
+        private final OpflowPromMeasurer measurer;
+        private final long routineCacheMaxWeight;
+        private final boolean routineCacheOffHeap;
+        private OpflowWeightedCache routineCache;
+        private ScheduledExecutorService batchScheduler;
+        private ExecutorService batchExecutor;
+        private boolean batchClosed = false;
         private volatile boolean processing = false;
         
         public Instantiator(OpflowRpcAmqpWorker amqpWorker, OpflowRpcHttpWorker httpWorker, OpflowPubsubHandler subscriber) throws OpflowBootstrapException {
@@ -420,6 +454,9 @@ public class OpflowServerlet implements AutoCloseable {
             options = OpflowObjectTree.ensureNonNull(options);
             final String componentId = OpflowUtil.getStringField(options, OpflowConstant.COMPONENT_ID, true);
             this.logTracer = OpflowLogTracer.ROOT.branch("instantiatorId", componentId);
+            this.measurer = (OpflowPromMeasurer) OpflowUtil.getOptionField(options, OpflowConstant.COMP_MEASURER, OpflowPromMeasurer.NULL);
+            this.routineCacheMaxWeight = OpflowUtil.getLongField(options, OpflowConstant.OPFLOW_ROUTINE_CACHE_MAX_WEIGHT, 64l * 1024 * 1024);
+            this.routineCacheOffHeap = OpflowUtil.getBooleanField(options, OpflowConstant.OPFLOW_ROUTINE_CACHE_OFF_HEAP, Boolean.FALSE);
             
             this.amqpWorker = amqpWorker;
             this.amqpListener = new OpflowRpcAmqpWorker.Listener() {
@@ -430,17 +467,50 @@ public class OpflowServerlet implements AutoCloseable {
                     final String routineTimestamp = response.getRoutineTimestamp();
                     final String routineScope = response.getRoutineScope();
                     final String routineSignature = response.getRoutineSignature();
-                    final String body = message.getBodyAsString();
-                    
-                    Map<String, String> extra = OpflowObjectTree.<String>buildMap()
-                        .put("replyToQueue", response.getReplyQueueName())
-                        .put("consumerTag", response.getConsumerTag())
-                        .toMap();
-                    
-                    RoutineOutput output = invokeRoutine(OpflowConstant.Protocol.AMQP, body, routineSignature, routineScope, routineTimestamp, routineId, componentId, extra);
-                    output.fill(response);
+                    final String claimCheck = OpflowUtil.getClaimCheck(headers);
                     
-                    return null;
+                    // the blob is removed once the routine has completed, either successfully or not
+                    boolean handedOver = false;
+                    try {
+                        final String body = (claimCheck == null) ? message.getBodyAsString() : resolveClaimCheck(claimCheck);
+                        
+                        RoutineBatcher batcher = batcherRef.get(methodOfAlias.getOrDefault(routineSignature, routineSignature));
+                        if (batcher != null) {
+                            // the request message is acknowledged once the batch has replied to it
+                            response.deferAck();
+                            batcher.submit(body, new Consumer<RoutineOutput>() {
+                                @Override
+                                public void accept(RoutineOutput output) {
+                                    boolean emitted = false;
+                                    try {
+                                        output.fill(response);
+                                        emitted = true;
+                                    }
+                                    finally {
+                                        removeClaimCheck(claimCheck);
+                                        response.settleAck(emitted);
+                                    }
+                                }
+                            });
+                            handedOver = true;
+                            return null;
+                        }
+                        
+                        Map<String, String> extra = OpflowObjectTree.<String>buildMap()
+                            .put("replyToQueue", response.getReplyQueueName())
+                            .put("consumerTag", response.getConsumerTag())
+                            .toMap();
+                        
+                        RoutineOutput output = invokeRoutine(OpflowConstant.Protocol.AMQP, body, routineSignature, routineScope, routineTimestamp, routineId, componentId, extra);
+                        output.fill(response);
+                        
+                        return null;
+                    }
+                    finally {
+                        if (!handedOver) {
+                            removeClaimCheck(claimCheck);
+                        }
+                    }
                 }
             };
             
@@ -448,6 +518,21 @@ public class OpflowServerlet implements AutoCloseable {
             this.httpListener = new OpflowRpcHttpWorker.Listener() {
                 @Override
                 public OpflowRpcHttpWorker.Output processMessage(String body, String routineSignature, String routineScope, String routineTimestamp, String routineId, Map<String, String> extra) {
+                    RoutineBatcher batcher = batcherRef.get(methodOfAlias.getOrDefault(routineSignature, routineSignature));
+                    if (batcher != null) {
+                        CompletableFuture<RoutineOutput> future = new CompletableFuture<>();
+                        batcher.submit(body, future::complete);
+                        Long remaining = OpflowRpcDeadline.remaining(OpflowRpcDeadline.current());
+                        long timeout = (remaining != null) ? Math.max(remaining, 0) : BATCH_WAIT_TIMEOUT;
+                        try {
+                            return future.get(timeout, TimeUnit.MILLISECONDS).export();
+                        } catch (TimeoutException ex) {
+                            return RoutineOutput.asFailure(new OpflowRequestTimeoutException("The batched routine[" + routineSignature
+                                    + "] has not completed in " + timeout + "ms")).export();
+                        } catch (InterruptedException | ExecutionException ex) {
+                            return RoutineOutput.asFailure(ex).export();
+                        }
+                    }
                     return invokeRoutine(OpflowConstant.Protocol.HTTP, body, routineSignature, routineScope, routineTimestamp, routineId, componentId, extra).export();
                 }
             };
@@ -513,6 +598,21 @@ public class OpflowServerlet implements AutoCloseable {
             }
         }
         
+        private void removeClaimCheck(String claimCheck) {
+            OpflowBlobStore blobStore = (amqpWorker != null) ? amqpWorker.getBlobStore() : null;
+            if (claimCheck != null && blobStore != null) {
+                blobStore.remove(claimCheck);
+            }
+        }
+        
+        private String resolveClaimCheck(String claimCheck) throws IOException {
+            OpflowBlobStore blobStore = (amqpWorker != null) ? amqpWorker.getBlobStore() : null;
+            if (blobStore == null) {
+                throw new IOException("Claim-check [" + claimCheck + "] is received but the blob store is not configured");
+            }
+            return StandardCharsets.UTF_8.decode(blobStore.load(claimCheck)).toString();
+        }
+        
         private RoutineOutput invokeRoutine(
             final OpflowConstant.Protocol protocol,
             final String body,
@@ -534,6 +634,22 @@ public class OpflowServerlet implements AutoCloseable {
                         + " - Serverlet[${instantiatorId}][${instanceId}] receives a RPC call to the routine[${methodSignature}]")
                     .stringify());
             }
+            Long cacheTTL = cacheTTLRef.get(methodSignature);
+            String cacheKey = null;
+            if (cacheTTL != null && routineCache != null && body != null) {
+                cacheKey = methodSignature + '\u0000' + body;
+                String cached = routineCache.get(cacheKey);
+                if (cached != null) {
+                    measurer.countRpcInvocation(OpflowConstant.COMP_SERVERLET, OpflowConstant.METHOD_INVOCATION_ROUTINE_CACHE, routineSignature, OpflowConstant.METHOD_INVOCATION_STATUS_HIT);
+                    if (reqTracer.ready(LOG, Level.INFO)) {
+                        LOG.info(reqTracer
+                            .text("Request[${requestId}][${requestTime}][x-serverlet-rpc-cached] - Return the cached output of the routine")
+                            .stringify());
+                    }
+                    return RoutineOutput.asSuccess(cached);
+                }
+                measurer.countRpcInvocation(OpflowConstant.COMP_SERVERLET, OpflowConstant.METHOD_INVOCATION_ROUTINE_CACHE, routineSignature, OpflowConstant.METHOD_INVOCATION_STATUS_MISS);
+            }
             Method method = methodRef.get(methodSignature);
             Object target = targetRef.get(methodSignature);
             assertMethodNotNull(methodSignature, method, target, reqTracer);
@@ -608,6 +724,9 @@ public class OpflowServerlet implements AutoCloseable {
                                 .put(OpflowConstant.COMPONENT_ID, httpWorker.getComponentId())
                                 .put("request", requestInfo, protocol == OpflowConstant.Protocol.HTTP)
                                 .toMap());
+                            if (routineCache != null) {
+                                opts.put("routineCache", routineCache.toMap());
+                            }
                             opts.put(OpflowConstant.INFO_SECTION_SOURCE_CODE, OpflowObjectTree.buildMap()
                                 .put("server", getGitInfo())
                                 .put(OpflowConstant.FRAMEWORK_ID, OpflowSystemInfo.getGitInfo())
@@ -632,6 +751,9 @@ public class OpflowServerlet implements AutoCloseable {
                         .stringify());
                 }
                 output = RoutineOutput.asSuccess(result);
+                if (cacheKey != null) {
+                    routineCache.put(cacheKey, result, cacheTTL);
+                }
 
                 if (reqTracer.ready(LOG, Level.INFO)) {
                     LOG.info(reqTracer
@@ -704,6 +826,15 @@ public class OpflowServerlet implements AutoCloseable {
                 return that;
             }
             
+            public static RoutineOutput asFailure(Throwable cause) {
+                return asFailure(OpflowObjectTree.buildMap(false)
+                    .put("exceptionClass", cause.getClass().getName())
+                    .put("exceptionPayload", OpflowJsonTool.toString(cause))
+                    .put("type", cause.getClass().getName())
+                    .put("message", cause.getMessage())
+                    .toString());
+            }
+            
             public void fill(OpflowRpcAmqpResponse response) {
                 if (failed) {
                     response.emitFailed(error);
@@ -783,6 +914,24 @@ public class OpflowServerlet implements AutoCloseable {
                             }
                         }
                     }
+                    if (routine != null && routine.cacheTTL() > 0) {
+                        cacheTTLRef.put(methodSignature, routine.cacheTTL());
+                        assertRoutineCache();
+                    }
+                    if (routine != null && !routine.batchMethod().isEmpty()) {
+                        Method batchMethod = findBatchMethod(type, method, routine.batchMethod());
+                        batcherRef.put(methodSignature, new RoutineBatcher(method, batchMethod, target,
+                                Math.max(routine.batchSize(), 1), Math.max(routine.batchDelay(), 0)));
+                        if (logTracer.ready(LOG, Level.DEBUG)) {
+                            LOG.debug(logTracer
+                                .put("methodSignature", methodSignature)
+                                .put("batchMethod", batchMethod.getName())
+                                .put("batchSize", routine.batchSize())
+                                .put("batchDelay", routine.batchDelay())
+                                .text("Serverlet[${instantiatorId}].instantiateType() - method[${methodSignature}] is batched by [${batchMethod}] (size: ${batchSize}, delay: ${batchDelay}us)")
+                                .stringify());
+                        }
+                    }
                 }
                 routineSignatures.addAll(methodOfAlias.keySet());
                 List<Class<?>> clazzes = OpflowUtil.getAllAncestorTypes(type);
@@ -845,6 +994,240 @@ public class OpflowServerlet implements AutoCloseable {
             process();
         }
 
+        public synchronized void close() {
+            batchClosed = true;
+            if (batchScheduler != null) {
+                batchScheduler.shutdown();
+            }
+            if (batchExecutor != null) {
+                batchExecutor.shutdown();
+            }
+        }
+        
+        private Method findBatchMethod(Class type, Method method, String batchMethodName) {
+            if (method.getParameterTypes().length != 1) {
+                throw new OpflowInstantiationException("Method[" + method.getName() + "] must have exactly one parameter to be batched");
+            }
+            for (Method candidate : type.getMethods()) {
+                if (candidate.getName().equals(batchMethodName) &&
+                        candidate.getParameterTypes().length == 1 &&
+                        candidate.getParameterTypes()[0].isAssignableFrom(List.class) &&
+                        List.class.isAssignableFrom(candidate.getReturnType())) {
+                    return candidate;
+                }
+            }
+            throw new OpflowInstantiationException("batchMethod[" + batchMethodName + "] of method[" + method.getName() + "] must accept and return a List");
+        }
+        
+        private synchronized void assertRoutineCache() {
+            if (routineCache == null) {
+                routineCache = new OpflowWeightedCache(routineCacheMaxWeight, routineCacheOffHeap);
+            }
+        }
+        
+        public Map<String, Object> getRoutineCacheInfo() {
+            return (routineCache != null) ? routineCache.toMap() : null;
+        }
+        
+        private synchronized ScheduledExecutorService assertBatchScheduler() {
+            if (batchClosed) {
+                throw new RejectedExecutionException("The batch executors have been closed");
+            }
+            if (batchScheduler == null) {
+                batchScheduler = Executors.newSingleThreadScheduledExecutor((Runnable runnable) -> {
+                    Thread thread = new Thread(runnable, "Timer-" + RoutineBatcher.class.getSimpleName());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            return batchScheduler;
+        }
+        
+        private synchronized ExecutorService assertBatchExecutor() {
+            if (batchClosed) {
+                throw new RejectedExecutionException("The batch executors have been closed");
+            }
+            if (batchExecutor == null) {
+                ThreadPoolExecutor pool = new ThreadPoolExecutor(BATCH_POOL_SIZE, BATCH_POOL_SIZE, 60, TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<Runnable>(BATCH_QUEUE_LIMIT), (Runnable runnable) -> {
+                            Thread thread = new Thread(runnable, "Pool-" + RoutineBatcher.class.getSimpleName());
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+                pool.allowCoreThreadTimeOut(true);
+                batchExecutor = pool;
+            }
+            return batchExecutor;
+        }
+        
+        private class RoutineBatcher {
+            private final Method method;
+            private final Method batchMethod;
+            private final Object target;
+            private final int batchSize;
+            private final long batchDelay;
+            private final Object batchLock = new Object();
+            private List<BatchItem> pending;
+            private ScheduledFuture<?> flushTimer = null;
+            
+            RoutineBatcher(Method method, Method batchMethod, Object target, int batchSize, long batchDelay) {
+                this.method = method;
+                this.batchMethod = batchMethod;
+                this.target = target;
+                this.batchSize = batchSize;
+                this.batchDelay = batchDelay;
+                this.pending = new ArrayList<>(batchSize);
+            }
+            
+            public void submit(String body, Consumer<RoutineOutput> callback) {
+                Object[] args;
+                try {
+                    args = OpflowJsonTool.toObjectArray(body, method.getParameterTypes());
+                } catch (OpflowJsonSyntaxException error) {
+                    callback.accept(RoutineOutput.asFailure(error));
+                    return;
+                }
+                List<BatchItem> ready = null;
+                synchronized (batchLock) {
+                    pending.add(new BatchItem(args[0], OpflowRpcDeadline.current(), callback));
+                    if (pending.size() >= batchSize) {
+                        ready = drain();
+                    } else if (flushTimer == null) {
+                        try {
+                            flushTimer = assertBatchScheduler().schedule(new Runnable() {
+                                @Override
+                                public void run() {
+                                    flush();
+                                }
+                            }, batchDelay, TimeUnit.MICROSECONDS);
+                        } catch (RejectedExecutionException ex) {
+                            // closed, execute() fails the pending items
+                            ready = drain();
+                        }
+                    }
+                }
+                if (ready != null) {
+                    execute(ready);
+                }
+            }
+            
+            private List<BatchItem> drain() {
+                List<BatchItem> ready = pending;
+                pending = new ArrayList<>(batchSize);
+                if (flushTimer != null) {
+                    flushTimer.cancel(false);
+                    flushTimer = null;
+                }
+                return ready;
+            }
+            
+            private void flush() {
+                List<BatchItem> ready;
+                synchronized (batchLock) {
+                    if (pending.isEmpty()) {
+                        flushTimer = null;
+                        return;
+                    }
+                    ready = drain();
+                }
+                execute(ready);
+            }
+            
+            private void execute(final List<BatchItem> items) {
+                try {
+                    assertBatchExecutor().execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            invoke(items);
+                        }
+                    });
+                } catch (RejectedExecutionException ex) {
+                    complete(items, RoutineOutput.asFailure(ex));
+                }
+            }
+            
+            private void invoke(List<BatchItem> all) {
+                // the expired items are dropped, the others run within the earliest deadline
+                List<BatchItem> items = new ArrayList<>(all.size());
+                Long deadline = null;
+                for (BatchItem item : all) {
+                    if (OpflowRpcDeadline.isExpired(item.deadline)) {
+                        item.complete(RoutineOutput.asFailure(new OpflowRequestTimeoutException("The deadline of the batched request has passed")));
+                    } else {
+                        items.add(item);
+                        if (item.deadline != null) {
+                            deadline = (deadline != null) ? Math.min(deadline, item.deadline) : item.deadline;
+                        }
+                    }
+                }
+                if (items.isEmpty()) {
+                    return;
+                }
+                List<Object> inputs = new ArrayList<>(items.size());
+                for (BatchItem item : items) {
+                    inputs.add(item.argument);
+                }
+                // the batches run on the worker threads, every batch logs on its own branch
+                final OpflowLogTracer batchTracer = logTracer.branch("batchMethod", batchMethod.getName());
+                if (batchTracer.ready(LOG, Level.DEBUG)) {
+                    LOG.debug(batchTracer
+                        .put("batchLength", items.size())
+                        .text("Serverlet[${instantiatorId}] - invoke the batchMethod[${batchMethod}] with ${batchLength} item(s)")
+                        .stringify());
+                }
+                Long previousDeadline = OpflowRpcDeadline.enter(deadline);
+                try {
+                    Object result = batchMethod.invoke(target, inputs);
+                    if (!(result instanceof List) || ((List) result).size() != items.size()) {
+                        throw new IllegalStateException("batchMethod[" + batchMethod.getName() + "] must return one result per item");
+                    }
+                    List outputs = (List) result;
+                    for (int i=0; i<items.size(); i++) {
+                        items.get(i).complete(RoutineOutput.asSuccess(OpflowJsonTool.toString(outputs.get(i))));
+                    }
+                } catch (InvocationTargetException ex) {
+                    Throwable cause = (ex.getCause() != null) ? ex.getCause() : ex;
+                    complete(items, RoutineOutput.asFailure(cause));
+                } catch (Exception ex) {
+                    complete(items, RoutineOutput.asFailure(ex));
+                } finally {
+                    OpflowRpcDeadline.leave(previousDeadline);
+                }
+            }
+            
+            private void complete(List<BatchItem> items, RoutineOutput output) {
+                for (BatchItem item : items) {
+                    item.complete(output);
+                }
+            }
+        }
+        
+        private class BatchItem {
+            private final Object argument;
+            private final Long deadline;
+            private final Consumer<RoutineOutput> callback;
+            
+            BatchItem(Object argument, Long deadline, Consumer<RoutineOutput> callback) {
+                this.argument = argument;
+                this.deadline = deadline;
+                this.callback = callback;
+            }
+            
+            void complete(RoutineOutput output) {
+                try {
+                    callback.accept(output);
+                } catch (Exception ex) {
+                    if (logTracer.ready(LOG, Level.ERROR)) {
+                        LOG.error(logTracer.copy()
+                            .put("exceptionClass", ex.getClass().getName())
+                            .put("exceptionMessage", ex.getMessage())
+                            .text("Serverlet[${instantiatorId}] - cannot deliver the output of a batched routine")
+                            .stringify());
+                    }
+                }
+            }
+        }
+        
         private void assertMethodNotNull(String methodSignature, Method method, Object target, OpflowLogTracer reqTracer) {
             if (method == null) {
                 if (reqTracer.ready(LOG, Level.ERROR)) {
@@ -1,5 +1,6 @@
 package com.devebot.opflow;
 
+import com.devebot.opflow.supports.OpflowObjectTree;
 import java.util.Map;
 
 /**
@@ -9,6 +10,10 @@ import java.util.Map;
 public interface OpflowTaskSubmitter {
     Map<String, Object> pause(long duration);
     Map<String, Object> unpause();
+    default Map<String, Object> updateRateLimits(Map<String, Object> limits) {
+        // the submitters that have no rate restrictor leave the limits untouched
+        return OpflowObjectTree.buildMap().toMap();
+    }
     Map<String, Object> reset();
     Map<String, Object> activateAllPublishers(boolean state, Map<String, Object> opts);
     Map<String, Object> activatePublisher(String connectorName, boolean state, Map<String, Object> opts);
@@ -6,8 +6,11 @@ import com.devebot.opflow.supports.OpflowObjectTree;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -21,9 +24,19 @@ public class OpflowThroughput {
 
     public interface Source {
         long getValue();
-        Date getTime();
+        /**
+         * @deprecated the meters stamp the samples with their own clocks, this value is ignored
+         */
+        @Deprecated
+        default Date getTime() {
+            return new Date();
+        }
     }
 
+    /**
+     * @deprecated use {@link Gauge#update(long, long, long)} instead
+     */
+    @Deprecated
     public static class Signal {
         public long value;
         public Date time;
@@ -33,7 +46,7 @@ public class OpflowThroughput {
             this.time = time;
         }
     }
-    
+
     public static class Speed {
         public double rate;
         public Date time;
@@ -47,28 +60,21 @@ public class OpflowThroughput {
     public static class Info {
         public Speed[] timeline;
         public Speed top;
+        public double m1Rate;
+        public double m5Rate;
+        public double m15Rate;
     }
     
-    private static class Store extends Signal {
-        public double rate;
-
-        public Store(long value, Date time) {
-            super(value, time);
-        }
-        
-        public Store(long value, Date time, double rate) {
-            super(value, time);
-            this.rate = rate;
-        }
-    }
-    
+    /*
+     * A windowed meter: the samples are kept in a ring of primitive longs that is written
+     * by the single scheduler thread and published through the volatile cursor, so that
+     * readers never lock the writer. The rates are computed from the nanoTime deltas and
+     * smoothed into the exponentially weighted moving averages of 1, 5 and 15 intervals.
+     */
     public static class Gauge {
         private final int length;
-        private final Store[] stores;
-        private Store top = null;
-        private int current = 0;
-        private int total = 0;
-        private Source reader = null;
+        private final Source reader;
+        private volatile Window window;
 
         public Gauge(int length) {
             this(length, null);
@@ -79,109 +85,187 @@ public class OpflowThroughput {
         }
         
         public Gauge(int length, Source source) {
-            this.length = length;
-            this.current = 0;
-            this.stores = new Store[length];
+            this.length = (length > 0) ? length : TAIL_LENGTH_DEFAULT;
             this.reader = source;
+            this.window = new Window(this.length);
         }
 
-        private int getIndex(int i) {
-            int real = current + i;
-            while (real >= length) {
-                real -= length;
+        public void update() {
+            if (reader != null) {
+                update(reader.getValue(), System.nanoTime(), System.currentTimeMillis());
             }
-            return real;
         }
 
-        private int next() {
-            current--;
-            if (current < 0) {
-                current = length - 1;
+        /**
+         * @deprecated the rates are computed from the monotonic clock, use {@link #update(long, long, long)}
+         */
+        @Deprecated
+        public void update(Signal point) {
+            if (point != null && point.time != null) {
+                update(point.value, System.nanoTime(), point.time.getTime());
             }
-            if (total < length) {
-                total++;
-            }
-            return current;
         }
 
-        public void update() {
-            if (reader != null) {
-                update(new Signal(reader.getValue(), reader.getTime()));
+        public void update(long value, long nanoTime, long wallTime) {
+            if (value >= 0) {
+                window.tick(value, nanoTime, wallTime);
             }
         }
+        
+        public void reset() {
+            window = new Window(length);
+        }
+        
+        public Info export() {
+            return export(length);
+        }
+        
+        public Info export(int len) {
+            return window.export(len);
+        }
+        
+        public Speed getTop() {
+            Window w = window;
+            return new Speed(w.peakRate, new Date(w.peakTime));
+        }
+    }
+    
+    private static class Window {
+        private final static double M1_ALPHA = 1.0 - Math.exp(-1.0);
+        private final static double M5_ALPHA = 1.0 - Math.exp(-1.0 / 5);
+        private final static double M15_ALPHA = 1.0 - Math.exp(-1.0 / 15);
 
-        public synchronized void update(Signal point) {
-            if (point == null) {
-                return;
-            }
+        private final int mask;
+        private final long[] values;
+        private final long[] nanoTimes;
+        private final long[] wallTimes;
+        private volatile long cursor = 0;
+        private volatile double m1Rate = 0;
+        private volatile double m5Rate = 0;
+        private volatile double m15Rate = 0;
+        private volatile double peakRate = 0;
+        private volatile long peakTime = 0;
+        private volatile Exported exported = null;
 
-            Store nextNode = new Store(point.value, point.time);
-            if (nextNode.value < 0 || nextNode.time == null) {
-                return;
-            }
+        Window(int length) {
+            // keep a predecessor for every exported sample, and a spare slot for the writer
+            int capacity = Integer.highestOneBit(length + 1) << 1;
+            this.mask = capacity - 1;
+            this.values = new long[capacity];
+            this.nanoTimes = new long[capacity];
+            this.wallTimes = new long[capacity];
+        }
 
-            Store prevNode = stores[current];
-            if (prevNode != null) {
-                long period = nextNode.time.getTime() - prevNode.time.getTime();
-                if (period <= 0) {
+        void tick(long value, long nanoTime, long wallTime) {
+            long n = cursor;
+            if (n > 0) {
+                int prev = (int) ((n - 1) & mask);
+                long elapsed = nanoTime - nanoTimes[prev];
+                if (elapsed <= 0) {
                     return;
                 }
-                nextNode.rate = 1000.0 * (nextNode.value - prevNode.value) / period;
-            }
-
-            if (top == null) {
-                top = nextNode;
-            } else {
-                if (top.rate < nextNode.rate) {
-                    top = nextNode;
+                if (value >= values[prev]) {
+                    double rate = 1e9 * (value - values[prev]) / elapsed;
+                    if (n == 1) {
+                        m1Rate = m5Rate = m15Rate = rate;
+                    } else {
+                        m1Rate += M1_ALPHA * (rate - m1Rate);
+                        m5Rate += M5_ALPHA * (rate - m5Rate);
+                        m15Rate += M15_ALPHA * (rate - m15Rate);
+                    }
+                    if (rate > peakRate || peakTime == 0) {
+                        peakRate = rate;
+                        peakTime = wallTime;
+                    }
                 }
             }
-
-            stores[next()] = nextNode;
+            int slot = (int) (n & mask);
+            values[slot] = value;
+            nanoTimes[slot] = nanoTime;
+            wallTimes[slot] = wallTime;
+            cursor = n + 1;
         }
-        
-        public synchronized void reset() {
-            top = null;
-            for (int i=0; i<length; i++) {
-                stores[i] = null;
+
+        Info export(int len) {
+            if (len <= 0) {
+                len = 1;
             }
+            // the info computed since the last tick is cached, every reader receives its own copy
+            // because the fields of Info and Speed are public and mutable
+            Exported last = exported;
+            if (last != null && last.cursor == cursor && last.length == len) {
+                return copyOf(last.info);
+            }
+            Info result = new Info();
+            long n;
+            do {
+                n = cursor;
+                result.timeline = collect(n, len);
+                // the timeline is consistent while the writer has not wrapped into the slots that were read
+            } while (cursor - n > mask - result.timeline.length - 1);
+            if (peakTime > 0) {
+                result.top = new Speed(OpflowMathUtil.round(peakRate, 1), new Date(peakTime));
+            }
+            result.m1Rate = OpflowMathUtil.round(m1Rate, 1);
+            result.m5Rate = OpflowMathUtil.round(m5Rate, 1);
+            result.m15Rate = OpflowMathUtil.round(m15Rate, 1);
+            exported = new Exported(n, len, result);
+            return copyOf(result);
         }
-        
-        public Info export() {
-            return export(total);
-        }
-        
-        public Info export(int len) {
+
+        private static Info copyOf(Info info) {
             Info result = new Info();
-            // extract the top
-            if (top != null) {
-                result.top = new Speed(OpflowMathUtil.round(top.rate, 1), top.time);
+            result.timeline = new Speed[info.timeline.length];
+            for (int i=0; i<info.timeline.length; i++) {
+                result.timeline[i] = copyOf(info.timeline[i]);
             }
-            // generate the timeline
-            if (len <= 0) {
-                len = 1;
+            result.top = copyOf(info.top);
+            result.m1Rate = info.m1Rate;
+            result.m5Rate = info.m5Rate;
+            result.m15Rate = info.m15Rate;
+            return result;
+        }
+
+        private static Speed copyOf(Speed speed) {
+            if (speed == null) {
+                return null;
             }
+            return new Speed(speed.rate, (speed.time != null) ? new Date(speed.time.getTime()) : null);
+        }
+
+        private Speed[] collect(long n, int len) {
+            // the slot after the latest sample is left to the writer, it is never exported
+            int total = (int) Math.min(Math.max(n - 1, 0), mask - 1);
             if (len > total) {
                 len = total;
             }
-            result.timeline = new Speed[len];
+            // generate the timeline, the latest sample first
+            Speed[] timeline = new Speed[len];
             for (int i=0; i<len; i++) {
-                Store item = stores[getIndex(i)];
-                if (item != null) {
-                    result.timeline[i] = new Speed(OpflowMathUtil.round(item.rate, 1), item.time);
-                }
+                int slot = (int) ((n - 1 - i) & mask);
+                int prev = (int) ((n - 2 - i) & mask);
+                long elapsed = nanoTimes[slot] - nanoTimes[prev];
+                double rate = (elapsed > 0 && values[slot] >= values[prev]) ? 1e9 * (values[slot] - values[prev]) / elapsed : 0;
+                timeline[i] = new Speed(OpflowMathUtil.round(rate, 1), new Date(wallTimes[slot]));
             }
-            return result;
+            return timeline;
         }
-        
-        public Speed getTop() {
-            return new Speed(top.rate, top.time);
+    }
+    
+    private static class Exported {
+        private final long cursor;
+        private final int length;
+        private final Info info;
+
+        Exported(long cursor, int length, Info info) {
+            this.cursor = cursor;
+            this.length = length;
+            this.info = info;
         }
     }
     
     public static class Tuple {
-        private final Object lock = new Object();
-        private final Map<String, Gauge> gauges = new HashMap<>();
+        private final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
         
         private int length = TAIL_LENGTH_DEFAULT;
 
@@ -198,18 +282,20 @@ public class OpflowThroughput {
         }
         
         public void update() {
-            synchronized (lock) {
-                for (Map.Entry<String, Gauge> entry : gauges.entrySet()) {
-                    entry.getValue().update();
+            update(System.nanoTime(), System.currentTimeMillis());
+        }
+        
+        void update(long nanoTime, long wallTime) {
+            for (Gauge gauge : gauges.values()) {
+                if (gauge.reader != null) {
+                    gauge.update(gauge.reader.getValue(), nanoTime, wallTime);
                 }
             }
         }
         
         public void reset() {
-            synchronized (lock) {
-                for (Map.Entry<String, Gauge> entry : gauges.entrySet()) {
-                    entry.getValue().reset();
-                }
+            for (Gauge gauge : gauges.values()) {
+                gauge.reset();
             }
         }
         
@@ -228,20 +314,32 @@ public class OpflowThroughput {
         }
     }
     
+    private static ScheduledExecutorService scheduler;
+
+    private static synchronized ScheduledExecutorService getScheduler() {
+        // all of the meters share a single timer thread
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor((Runnable runnable) -> {
+                Thread thread = new Thread(runnable, "Timer-" + OpflowUtil.extractClassName(Meter.class));
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return scheduler;
+    }
+    
     public static class Meter {
         private final static Logger LOG = LoggerFactory.getLogger(Meter.class);
 
         private long interval = INTERVAL_DEFAULT;
         private int length = TAIL_LENGTH_DEFAULT;
-        private Timer timer;
-        private TimerTask timerTask;
+        private ScheduledFuture<?> timerTask;
         private volatile boolean running = false;
         private volatile boolean active = false;
 
         private final String componentId;
         private final OpflowLogTracer logTracer;
-        private final Object lock = new Object();
-        private final Map<String, Tuple> tuples = new HashMap<>();
+        private final Map<String, Tuple> tuples = new ConcurrentHashMap<>();
 
         public Meter(Map<String, Object> kwargs) {
             kwargs = OpflowObjectTree.ensureNonNull(kwargs);
@@ -293,44 +391,44 @@ public class OpflowThroughput {
         }
 
         public Tuple register(String connectorName) {
-            Tuple tuple = tuples.get(connectorName);
-            if (tuple == null) {
-                tuple = new Tuple(length);
-                tuples.put(connectorName, tuple);
-            }
-            return tuple;
+            return tuples.computeIfAbsent(connectorName, (String key) -> new Tuple(length));
         }
 
         public void reset() {
             if (isActive()) {
-                synchronized (lock) {
-                    for (Map.Entry<String, Tuple> entry : tuples.entrySet()) {
-                        entry.getValue().reset();
-                    }
+                for (Tuple tuple : tuples.values()) {
+                    tuple.reset();
+                }
+            }
+        }
+
+        private void update() {
+            if (isActive()) {
+                long nanoTime = System.nanoTime();
+                long wallTime = System.currentTimeMillis();
+                for (Tuple tuple : tuples.values()) {
+                    tuple.update(nanoTime, wallTime);
                 }
             }
         }
 
         public synchronized void serve() {
             if (!this.running) {
-                if (this.timer == null) {
-                    this.timer = new Timer("Timer-" + OpflowUtil.extractClassName(Meter.class), true);
-                }
-                if (this.timerTask == null) {
-                    this.timerTask = new TimerTask() {
-                        @Override
-                        public void run() {
-                            if (isActive()) {
-                                synchronized (lock) {
-                                    for (Map.Entry<String, Tuple> entry : tuples.entrySet()) {
-                                        entry.getValue().update();
-                                    }
-                                }
-                            }
+                this.timerTask = getScheduler().scheduleAtFixedRate(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            update();
                         }
-                    };
-                }
-                this.timer.scheduleAtFixedRate(this.timerTask, 0, this.interval);
+                        catch (Exception e) {
+                            if (logTracer.ready(LOG, Level.ERROR)) LOG.error(logTracer
+                                    .put("exceptionClass", e.getClass().getName())
+                                    .put("exceptionMessage", e.getMessage())
+                                    .text("SpeedMeter[${speedMeterId}].update() has failed")
+                                    .stringify());
+                        }
+                    }
+                }, 0, this.interval, TimeUnit.MILLISECONDS);
                 this.running = true;
             }
         }
@@ -340,11 +438,8 @@ public class OpflowThroughput {
                 if (logTracer.ready(LOG, Level.DEBUG)) LOG.debug(logTracer
                         .text("SpeedMeter[${speedMeterId}].close()")
                         .stringify());
-                timerTask.cancel();
+                timerTask.cancel(false);
                 timerTask = null;
-                timer.cancel();
-                timer.purge();
-                timer = null;
                 running = false;
                 if (logTracer.ready(LOG, Level.TRACE)) LOG.trace(logTracer
                         .text("SpeedMeter[${speedMeterId}].close() end!")
@@ -226,6 +226,24 @@ public class OpflowUtil {
         }
     }
     
+    public static Long getRoutineDeadline(Map<String, Object> headers) {
+        if (headers == null) return null;
+        return OpflowRpcDeadline.parse(headers.get(OpflowConstant.OPFLOW_REQ_HEADER_ROUTINE_DEADLINE));
+    }
+    
+    public static void setRoutineDeadline(Map<String, Object> headers, Long value) {
+        if (headers == null) return;
+        if (value != null) {
+            headers.put(OpflowConstant.OPFLOW_REQ_HEADER_ROUTINE_DEADLINE, value);
+        }
+    }
+    
+    public static String getClaimCheck(Map<String, Object> headers) {
+        if (headers == null) return null;
+        Object claimCheck = headers.get(OpflowConstant.OPFLOW_REQ_HEADER_CLAIM_CHECK);
+        return (claimCheck != null) ? claimCheck.toString() : null;
+    }
+    
     public static String getDateField(Map<String, Object> headers, String fieldName, boolean currentIfNotFound) {
         Object date = headers.get(fieldName);
         if (date instanceof String) {
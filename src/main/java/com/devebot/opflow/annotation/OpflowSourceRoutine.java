@@ -15,4 +15,6 @@ public @interface OpflowSourceRoutine {
     String alias() default "";
     boolean isAsync() default false;
     boolean skipped() default false;
+    String bulkhead() default "";
+    int priority() default 0;
 }
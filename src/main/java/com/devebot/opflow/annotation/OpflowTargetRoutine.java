@@ -14,4 +14,8 @@ import java.lang.annotation.Target;
 public @interface OpflowTargetRoutine {
     String[] alias() default {};
     boolean enabled() default true;
+    String batchMethod() default "";
+    int batchSize() default 64;
+    long batchDelay() default 1000; // microseconds
+    long cacheTTL() default 0; // milliseconds, 0 disables the result cache
 }
@@ -0,0 +1,27 @@
+package com.devebot.opflow.exception;
+
+/**
+ *
+ * @author drupalex
+ */
+public class OpflowBulkheadFullException extends OpflowRestrictionException {
+
+    public OpflowBulkheadFullException() {
+    }
+
+    public OpflowBulkheadFullException(String message) {
+        super(message);
+    }
+
+    public OpflowBulkheadFullException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public OpflowBulkheadFullException(Throwable cause) {
+        super(cause);
+    }
+
+    public OpflowBulkheadFullException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+}
@@ -0,0 +1,27 @@
+package com.devebot.opflow.exception;
+
+/**
+ *
+ * @author drupalex
+ */
+public class OpflowLoadSheddingException extends OpflowRestrictionException {
+
+    public OpflowLoadSheddingException() {
+    }
+
+    public OpflowLoadSheddingException(String message) {
+        super(message);
+    }
+
+    public OpflowLoadSheddingException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public OpflowLoadSheddingException(Throwable cause) {
+        super(cause);
+    }
+
+    public OpflowLoadSheddingException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+}
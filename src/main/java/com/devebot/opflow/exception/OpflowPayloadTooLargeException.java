@@ -0,0 +1,23 @@
+package com.devebot.opflow.exception;
+
+/**
+ *
+ * @author acegik
+ */
+public class OpflowPayloadTooLargeException extends OpflowOperationException {
+
+    public OpflowPayloadTooLargeException() {
+    }
+
+    public OpflowPayloadTooLargeException(String message) {
+        super(message);
+    }
+
+    public OpflowPayloadTooLargeException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public OpflowPayloadTooLargeException(Throwable cause) {
+        super(cause);
+    }
+}
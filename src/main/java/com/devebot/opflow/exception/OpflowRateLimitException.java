@@ -0,0 +1,27 @@
+package com.devebot.opflow.exception;
+
+/**
+ *
+ * @author drupalex
+ */
+public class OpflowRateLimitException extends OpflowRestrictionException {
+
+    public OpflowRateLimitException() {
+    }
+
+    public OpflowRateLimitException(String message) {
+        super(message);
+    }
+
+    public OpflowRateLimitException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public OpflowRateLimitException(Throwable cause) {
+        super(cause);
+    }
+
+    public OpflowRateLimitException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+}
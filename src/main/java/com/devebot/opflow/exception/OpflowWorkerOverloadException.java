@@ -0,0 +1,27 @@
+package com.devebot.opflow.exception;
+
+/**
+ *
+ * @author drupalex
+ */
+public class OpflowWorkerOverloadException extends OpflowRestrictionException {
+
+    public OpflowWorkerOverloadException() {
+    }
+
+    public OpflowWorkerOverloadException(String message) {
+        super(message);
+    }
+
+    public OpflowWorkerOverloadException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public OpflowWorkerOverloadException(Throwable cause) {
+        super(cause);
+    }
+
+    public OpflowWorkerOverloadException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+}
@@ -162,11 +162,37 @@ public class OpflowInfoCollectorMaster implements OpflowInfoCollector {
                                 } else {
                                     opt2.put(OpflowConstant.OPFLOW_RESTRICT_PAUSE_STATUS, "off");
                                 }
+                                opt2.put(OpflowConstant.OPFLOW_RESTRICT_RATE_ENABLED, restrictor.isRateEnabled());
+                                if (restrictor.isRateEnabled()) {
+                                    opt2.put(OpflowConstant.OPFLOW_RESTRICT_RATE_POLICY, restrictor.getRatePolicy());
+                                    opt2.put(OpflowConstant.OPFLOW_RESTRICT_RATE_TIMEOUT, restrictor.getRateTimeout());
+                                    opt2.put(OpflowConstant.OPFLOW_RESTRICT_RATE_LIMITS, restrictor.getRateLimits());
+                                }
+                                opt2.put(OpflowConstant.OPFLOW_RESTRICT_BULKHEAD_ENABLED, restrictor.isBulkheadEnabled());
+                                if (restrictor.isBulkheadEnabled()) {
+                                    opt2.put(OpflowConstant.OPFLOW_RESTRICT_BULKHEAD_TIMEOUT, restrictor.getBulkheadTimeout());
+                                    opt2.put(OpflowConstant.OPFLOW_RESTRICT_BULKHEADS, restrictor.getBulkheads());
+                                }
+                                opt2.put(OpflowConstant.OPFLOW_RESTRICT_SHEDDING_ENABLED, restrictor.isSheddingEnabled());
+                                if (restrictor.isSheddingEnabled()) {
+                                    opt2.put(OpflowConstant.OPFLOW_RESTRICT_SHEDDING_LIMIT, restrictor.getSheddingLimit());
+                                    opt2.put(OpflowConstant.OPFLOW_RESTRICT_SHEDDING_TIMEOUT, restrictor.getSheddingTimeout());
+                                    opt2.put(OpflowConstant.OPFLOW_RESTRICT_SHEDDING_INFLIGHT, restrictor.getSheddingInflight());
+                                    opt2.put(OpflowConstant.OPFLOW_RESTRICT_SHEDDING_QUEUED, restrictor.getSheddingQueued());
+                                    opt2.put(OpflowConstant.OPFLOW_RESTRICT_SHEDDING_TOTAL, restrictor.getSheddingTotal());
+                                    opt2.put(OpflowConstant.OPFLOW_RESTRICT_SHEDDING_SERVICE_TIME, restrictor.getSheddingServiceTime());
+                                }
                                 opt2.put(OpflowConstant.OPFLOW_RESTRICT_SEMAPHORE_PERMITS, restrictor.getSemaphoreLimit());
                                 opt2.put(OpflowConstant.OPFLOW_RESTRICT_SEMAPHORE_USED_PERMITS, restrictor.getSemaphoreLimit() - availablePermits);
                                 opt2.put(OpflowConstant.OPFLOW_RESTRICT_SEMAPHORE_FREE_PERMITS, availablePermits);
                                 opt2.put(OpflowConstant.OPFLOW_RESTRICT_SEMAPHORE_ENABLED, restrictor.isSemaphoreEnabled());
                                 opt2.put(OpflowConstant.OPFLOW_RESTRICT_SEMAPHORE_TIMEOUT, restrictor.getSemaphoreTimeout());
+                                opt2.put(OpflowConstant.OPFLOW_RESTRICT_ADAPTIVE_ENABLED, restrictor.isAdaptiveEnabled());
+                                if (restrictor.isAdaptiveEnabled()) {
+                                    opt2.put(OpflowConstant.OPFLOW_RESTRICT_ADAPTIVE_LIMIT, restrictor.getAdaptiveLimit());
+                                    opt2.put(OpflowConstant.OPFLOW_RESTRICT_ADAPTIVE_INFLIGHT, restrictor.getAdaptiveInflight());
+                                    opt2.put(OpflowConstant.OPFLOW_RESTRICT_ADAPTIVE_RTT, restrictor.getAdaptiveRtt());
+                                }
                             }
                         }).toMap());
                     } else {
@@ -187,6 +213,9 @@ public class OpflowInfoCollectorMaster implements OpflowInfoCollector {
                                 .put(OpflowConstant.OPFLOW_COUNSELOR_TRIMMING_ENABLED, rpcObserver.isTrimmingEnabled())
                                 .put(OpflowConstant.OPFLOW_COUNSELOR_TRIMMING_TIME_DELAY, rpcObserver.getTrimmingTimeDelay())
                                 .put(OpflowConstant.OPFLOW_COUNSELOR_KEEP_ALIVE_TIMEOUT, rpcObserver.getKeepAliveTimeout())
+                                .put(OpflowConstant.OPFLOW_COUNSELOR_OUTLIER_ENABLED, rpcObserver.isOutlierEnabled())
+                                .put(OpflowConstant.OPFLOW_COUNSELOR_OUTLIER_INTERVAL, rpcObserver.getOutlierInterval(), rpcObserver.isOutlierEnabled())
+                                .put(OpflowConstant.OPFLOW_COUNSELOR_OUTLIER_EJECTED, rpcObserver.getOutlierEjected(), rpcObserver.isOutlierEnabled())
                                 .toMap());
                     }
                 }
@@ -370,6 +399,9 @@ public class OpflowInfoCollectorMaster implements OpflowInfoCollector {
             OpflowRpcInvocationCounter counter = _measurer.getRpcInvocationCounter(OpflowConstant.COMP_COMMANDER);
             if (counter != null) {
                 OpflowObjectTree.merge(metrics, counter.toMap(true, checkOption(flag, SCOPE_MESSAGE_RATE)));
+                if (checkOption(flag, SCOPE_THROUGHPUT)) {
+                    OpflowObjectTree.merge(metrics, counter.latenciesToMap());
+                }
             }
         }
 
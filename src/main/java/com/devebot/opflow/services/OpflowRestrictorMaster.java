@@ -25,6 +25,9 @@ public class OpflowRestrictorMaster extends OpflowRestrictable.Runner implements
     private final OpflowRestrictor.OnOff onoffRestrictor;
     private final OpflowRestrictor.Valve valveRestrictor;
     private final OpflowRestrictor.Pause pauseRestrictor;
+    private final OpflowRestrictor.Rate rateRestrictor;
+    private final OpflowRestrictor.Bulkhead bulkheadRestrictor;
+    private final OpflowRestrictor.Shedding sheddingRestrictor;
     private final OpflowRestrictor.Limit limitRestrictor;
 
     public OpflowRestrictorMaster(Map<String, Object> options) {
@@ -41,11 +44,17 @@ public class OpflowRestrictorMaster extends OpflowRestrictable.Runner implements
         onoffRestrictor = new OpflowRestrictor.OnOff(options);
         valveRestrictor = new OpflowRestrictor.Valve(options);
         pauseRestrictor = new OpflowRestrictor.Pause(options);
+        rateRestrictor = new OpflowRestrictor.Rate(options);
+        bulkheadRestrictor = new OpflowRestrictor.Bulkhead(options);
+        sheddingRestrictor = new OpflowRestrictor.Shedding(options);
         limitRestrictor = new OpflowRestrictor.Limit(options);
 
         super.append(onoffRestrictor.setLogTracer(logTracer));
         super.append(valveRestrictor.setLogTracer(logTracer).setMeasurer(measurer));
         super.append(pauseRestrictor.setLogTracer(logTracer));
+        super.append(rateRestrictor.setLogTracer(logTracer));
+        super.append(bulkheadRestrictor.setLogTracer(logTracer));
+        super.append(sheddingRestrictor.setLogTracer(logTracer));
         super.append(limitRestrictor.setLogTracer(logTracer));
 
         if (logTracer.ready(LOG, OpflowLogTracer.Level.INFO)) LOG.info(logTracer
@@ -115,6 +124,66 @@ public class OpflowRestrictorMaster extends OpflowRestrictable.Runner implements
         return pauseRestrictor.unpause();
     }
 
+    public boolean isRateEnabled() {
+        return rateRestrictor.isRateEnabled();
+    }
+
+    public String getRatePolicy() {
+        return rateRestrictor.getRatePolicy();
+    }
+
+    public long getRateTimeout() {
+        return rateRestrictor.getRateTimeout();
+    }
+
+    public Map<String, Object> getRateLimits() {
+        return rateRestrictor.getRateLimits();
+    }
+
+    public Map<String, Object> updateRateLimits(Map<String, Object> limits) {
+        return rateRestrictor.updateRateLimits(limits);
+    }
+
+    public boolean isBulkheadEnabled() {
+        return bulkheadRestrictor.isBulkheadEnabled();
+    }
+
+    public long getBulkheadTimeout() {
+        return bulkheadRestrictor.getBulkheadTimeout();
+    }
+
+    public Map<String, Object> getBulkheads() {
+        return bulkheadRestrictor.getBulkheads();
+    }
+
+    public boolean isSheddingEnabled() {
+        return sheddingRestrictor.isSheddingEnabled();
+    }
+
+    public int getSheddingLimit() {
+        return sheddingRestrictor.getSheddingLimit();
+    }
+
+    public long getSheddingTimeout() {
+        return sheddingRestrictor.getSheddingTimeout();
+    }
+
+    public int getSheddingInflight() {
+        return sheddingRestrictor.getSheddingInflight();
+    }
+
+    public int getSheddingQueued() {
+        return sheddingRestrictor.getSheddingQueued();
+    }
+
+    public long getSheddingTotal() {
+        return sheddingRestrictor.getSheddingTotal();
+    }
+
+    public long getSheddingServiceTime() {
+        return sheddingRestrictor.getServiceTime();
+    }
+
     public int getSemaphoreLimit() {
         return limitRestrictor.getSemaphoreLimit();
     }
@@ -131,6 +200,22 @@ public class OpflowRestrictorMaster extends OpflowRestrictable.Runner implements
         return limitRestrictor.getSemaphoreTimeout();
     }
 
+    public boolean isAdaptiveEnabled() {
+        return limitRestrictor.isAdaptiveEnabled();
+    }
+
+    public int getAdaptiveLimit() {
+        return limitRestrictor.getAdaptiveLimit();
+    }
+
+    public int getAdaptiveInflight() {
+        return limitRestrictor.getAdaptiveInflight();
+    }
+
+    public long getAdaptiveRtt() {
+        return limitRestrictor.getAdaptiveRtt();
+    }
+
     @Override
     public void close() {
         pauseRestrictor.close();
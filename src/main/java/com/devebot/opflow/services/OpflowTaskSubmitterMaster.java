@@ -73,6 +73,20 @@ public class OpflowTaskSubmitterMaster implements OpflowTaskSubmitter {
         return restrictor.unpause();
     }
 
+    @Override
+    public Map<String, Object> updateRateLimits(Map<String, Object> limits) {
+        if (logTracer.ready(LOG, OpflowLogTracer.Level.INFO)) LOG.info(logTracer
+                .text("OpflowTaskSubmitter[${taskSubmitterId}].updateRateLimits() is invoked")
+                .stringify());
+        if (restrictor == null) {
+            return OpflowObjectTree.buildMap()
+                    .toMap();
+        }
+        return OpflowObjectTree.buildMap()
+                .put(OpflowConstant.OPFLOW_RESTRICT_RATE_LIMITS, restrictor.updateRateLimits(limits))
+                .toMap();
+    }
+
     @Override
     public Map<String, Object> reset() {
         Map<String, Object> info = OpflowObjectTree.buildMap().toMap();
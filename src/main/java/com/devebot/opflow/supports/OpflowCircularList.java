@@ -6,7 +6,9 @@ import java.util.List;
 /**
  *
  * @author acegik
+ * @deprecated OpflowRevolvingMap rotates over immutable snapshots, this list is no longer used internally
  */
+@Deprecated
 public class OpflowCircularList<V> {
     
     private Node<V> current = null;
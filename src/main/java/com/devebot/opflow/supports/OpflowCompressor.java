@@ -0,0 +1,325 @@
+package com.devebot.opflow.supports;
+
+import com.devebot.opflow.exception.OpflowOperationException;
+import com.devebot.opflow.exception.OpflowPayloadTooLargeException;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ *
+ * @author acegik
+ */
+public class OpflowCompressor {
+    public final static String ENCODING_IDENTITY = "identity";
+    public final static String ENCODING_DEFLATE = "deflate";
+    public final static String ENCODING_LZ = "x-opflow-lz";
+
+    public final static String ACCEPT_ENCODINGS = ENCODING_DEFLATE + ", " + ENCODING_LZ;
+
+    public final static int DEFAULT_THRESHOLD = 16384;
+    public final static int DEFAULT_DECODED_SIZE_LIMIT = 64 * 1024 * 1024;
+
+    private final static int BUFFER_SIZE = 8192;
+
+    private final static int LZ_HASH_BITS = 14;
+    private final static int LZ_MIN_MATCH = 4;
+    private final static int LZ_MAX_OFFSET = 0xFFFF;
+    private final static int LZ_LAST_LITERALS = 5;
+    private final static int LZ_MATCH_FIND_LIMIT = 12;
+
+    private static volatile int decodedSizeLimit = loadDecodedSizeLimit();
+
+    private final String encoding;
+    private final int threshold;
+
+    public OpflowCompressor(String encoding, Integer threshold) {
+        if (encoding == null) {
+            encoding = ENCODING_DEFLATE;
+        }
+        if (!isSupported(encoding)) {
+            throw new IllegalArgumentException("Unsupported compression encoding: " + encoding);
+        }
+        this.encoding = encoding;
+        this.threshold = (threshold != null && threshold >= 0) ? threshold : DEFAULT_THRESHOLD;
+    }
+
+    public String getEncoding() {
+        return encoding;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public boolean isApplicable(byte[] data, String acceptEncoding) {
+        return data != null && data.length >= threshold && isAccepted(acceptEncoding, encoding);
+    }
+
+    public byte[] compress(byte[] data) {
+        return encode(encoding, data);
+    }
+
+    public static int getDecodedSizeLimit() {
+        return decodedSizeLimit;
+    }
+
+    public static void setDecodedSizeLimit(int limit) {
+        decodedSizeLimit = (limit > 0) ? limit : DEFAULT_DECODED_SIZE_LIMIT;
+    }
+
+    private static int loadDecodedSizeLimit() {
+        String value = OpflowEnvTool.instance.getEnvironVariable("OPFLOW_DECODED_SIZE_LIMIT", null);
+        if (value != null) {
+            try {
+                int limit = Integer.parseInt(value.trim());
+                if (limit > 0) {
+                    return limit;
+                }
+            }
+            catch (NumberFormatException exception) {}
+        }
+        return DEFAULT_DECODED_SIZE_LIMIT;
+    }
+
+    public static boolean isSupported(String encoding) {
+        return ENCODING_DEFLATE.equals(encoding) || ENCODING_LZ.equals(encoding);
+    }
+
+    public static boolean isAccepted(String acceptEncoding, String encoding) {
+        if (acceptEncoding == null || encoding == null) {
+            return false;
+        }
+        for (String item : acceptEncoding.split(",")) {
+            String name = item.trim();
+            int semicolon = name.indexOf(';');
+            if (semicolon >= 0) {
+                name = name.substring(0, semicolon).trim();
+            }
+            if (encoding.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static byte[] encode(String encoding, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (ENCODING_DEFLATE.equals(encoding)) {
+            return deflate(data);
+        }
+        if (ENCODING_LZ.equals(encoding)) {
+            return lzCompress(data);
+        }
+        return data;
+    }
+
+    public static byte[] decode(String encoding, byte[] data) {
+        return decode(encoding, data, decodedSizeLimit);
+    }
+
+    public static byte[] decode(String encoding, byte[] data, int limit) {
+        if (data == null || encoding == null) {
+            return data;
+        }
+        if (ENCODING_DEFLATE.equalsIgnoreCase(encoding)) {
+            return inflate(data, limit);
+        }
+        if (ENCODING_LZ.equalsIgnoreCase(encoding)) {
+            return lzDecompress(data, limit);
+        }
+        return data;
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                output.write(buffer, 0, count);
+            }
+            return output.toByteArray();
+        }
+        finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data, int limit) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream output = new ByteArrayOutputStream((int) Math.max(64, Math.min(data.length * 4l, limit)));
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new OpflowOperationException("The deflate payload is truncated");
+                }
+                if (output.size() + (long) count > limit) {
+                    throw new OpflowPayloadTooLargeException("The inflated payload exceeds the limit of " + limit + " bytes");
+                }
+                output.write(buffer, 0, count);
+            }
+            return output.toByteArray();
+        }
+        catch (DataFormatException exception) {
+            throw new OpflowOperationException(exception);
+        }
+        finally {
+            inflater.end();
+        }
+    }
+
+    /*
+     * The LZ block layout: a 4-byte big-endian length of the original data, followed
+     * by a sequence of [token][literal-length*][literals][offset:2][match-length*]
+     * entries (LZ4 block style). The last entry carries only literals.
+     */
+    private static byte[] lzCompress(byte[] src) {
+        final int srcLen = src.length;
+        byte[] dst = new byte[4 + srcLen + srcLen / 255 + 16];
+        writeIntBE(dst, 0, srcLen);
+        int op = 4;
+        int anchor = 0;
+
+        if (srcLen > LZ_MATCH_FIND_LIMIT) {
+            final int[] table = new int[1 << LZ_HASH_BITS];
+            Arrays.fill(table, -1);
+            final int findLimit = srcLen - LZ_MATCH_FIND_LIMIT;
+            final int matchLimit = srcLen - LZ_LAST_LITERALS;
+            int ip = 0;
+            while (ip < findLimit) {
+                int sequence = readIntLE(src, ip);
+                int hash = (sequence * -1640531535) >>> (32 - LZ_HASH_BITS);
+                int ref = table[hash];
+                table[hash] = ip;
+                if (ref < 0 || ip - ref > LZ_MAX_OFFSET || readIntLE(src, ref) != sequence) {
+                    ip++;
+                    continue;
+                }
+                int matchLen = LZ_MIN_MATCH;
+                while (ip + matchLen < matchLimit && src[ref + matchLen] == src[ip + matchLen]) {
+                    matchLen++;
+                }
+                int literalLen = ip - anchor;
+                int tokenPos = op++;
+                op = writeLength(dst, op, literalLen);
+                System.arraycopy(src, anchor, dst, op, literalLen);
+                op += literalLen;
+                int offset = ip - ref;
+                dst[op++] = (byte) offset;
+                dst[op++] = (byte) (offset >>> 8);
+                op = writeLength(dst, op, matchLen - LZ_MIN_MATCH);
+                dst[tokenPos] = (byte) ((Math.min(literalLen, 15) << 4) | Math.min(matchLen - LZ_MIN_MATCH, 15));
+                ip += matchLen;
+                anchor = ip;
+            }
+        }
+
+        int literalLen = srcLen - anchor;
+        int tokenPos = op++;
+        op = writeLength(dst, op, literalLen);
+        System.arraycopy(src, anchor, dst, op, literalLen);
+        op += literalLen;
+        dst[tokenPos] = (byte) (Math.min(literalLen, 15) << 4);
+
+        return Arrays.copyOf(dst, op);
+    }
+
+    private static byte[] lzDecompress(byte[] src, int limit) {
+        try {
+            int dstLen = readIntBE(src, 0);
+            if (dstLen < 0) {
+                throw new OpflowOperationException("The LZ payload has an invalid length");
+            }
+            if (dstLen > limit) {
+                throw new OpflowPayloadTooLargeException("The LZ payload declares " + dstLen + " bytes, over the limit of " + limit + " bytes");
+            }
+            // a length byte expands to at most 255 bytes, a larger header is corrupted
+            if (dstLen > src.length * 255l + 16) {
+                throw new OpflowOperationException("The LZ payload has an invalid length");
+            }
+            byte[] dst = new byte[dstLen];
+            int ip = 4;
+            int op = 0;
+            while (ip < src.length) {
+                int token = src[ip++] & 0xFF;
+                int literalLen = token >>> 4;
+                if (literalLen == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        literalLen += b;
+                    } while (b == 255);
+                }
+                System.arraycopy(src, ip, dst, op, literalLen);
+                ip += literalLen;
+                op += literalLen;
+                if (ip >= src.length) {
+                    break;
+                }
+                int offset = (src[ip++] & 0xFF) | ((src[ip++] & 0xFF) << 8);
+                int matchLen = token & 0x0F;
+                if (matchLen == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        matchLen += b;
+                    } while (b == 255);
+                }
+                matchLen += LZ_MIN_MATCH;
+                int ref = op - offset;
+                if (offset == 0 || ref < 0 || op + matchLen > dstLen) {
+                    throw new OpflowOperationException("The LZ payload is malformed");
+                }
+                for (int i = 0; i < matchLen; i++) {
+                    dst[op++] = dst[ref++];
+                }
+            }
+            if (op != dstLen) {
+                throw new OpflowOperationException("The LZ payload is truncated");
+            }
+            return dst;
+        }
+        catch (IndexOutOfBoundsException exception) {
+            throw new OpflowOperationException("The LZ payload is malformed", exception);
+        }
+    }
+
+    private static int writeLength(byte[] dst, int op, int length) {
+        if (length < 15) {
+            return op;
+        }
+        length -= 15;
+        while (length >= 255) {
+            dst[op++] = (byte) 255;
+            length -= 255;
+        }
+        dst[op++] = (byte) length;
+        return op;
+    }
+
+    private static int readIntLE(byte[] buf, int pos) {
+        return (buf[pos] & 0xFF) | ((buf[pos + 1] & 0xFF) << 8) | ((buf[pos + 2] & 0xFF) << 16) | ((buf[pos + 3] & 0xFF) << 24);
+    }
+
+    private static int readIntBE(byte[] buf, int pos) {
+        return ((buf[pos] & 0xFF) << 24) | ((buf[pos + 1] & 0xFF) << 16) | ((buf[pos + 2] & 0xFF) << 8) | (buf[pos + 3] & 0xFF);
+    }
+
+    private static void writeIntBE(byte[] buf, int pos, int value) {
+        buf[pos] = (byte) (value >>> 24);
+        buf[pos + 1] = (byte) (value >>> 16);
+        buf[pos + 2] = (byte) (value >>> 8);
+        buf[pos + 3] = (byte) value;
+    }
+}
@@ -0,0 +1,170 @@
+package com.devebot.opflow.supports;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ * @author acegik
+ */
+public class OpflowLatencyHistogram {
+    public final static double[] PERCENTILES = new double[] { 0.5, 0.9, 0.99, 0.999 };
+    public final static String[] PERCENTILE_LABELS = new String[] { "p50", "p90", "p99", "p999" };
+
+    /*
+     * Log-linear buckets (HDR style): the values below 2^SUB_BITS have their own
+     * bucket, every further power of two is split into 2^SUB_BITS linear buckets,
+     * so that the relative error of a bucket stays under 1/2^SUB_BITS (6.25%).
+     */
+    private final static int SUB_BITS = 4;
+    private final static int SUB_COUNT = 1 << SUB_BITS;
+    private final static int MAX_EXPONENT = 40;
+    private final static int BUCKET_COUNT = (MAX_EXPONENT - SUB_BITS + 2) * SUB_COUNT;
+    private final static long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        if (value > MAX_VALUE) {
+            value = MAX_VALUE;
+        }
+        buckets.incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        return new Snapshot(counts, total, sum.sum(), max.get());
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Fills the cumulative counts at the given (ascending) bounds straight from the
+     * live buckets, a bucket is counted under a bound when its upper edge does not
+     * exceed the bound. Returns the count over all of the buckets.
+     */
+    public long readCumulative(long[] bounds, long[] output) {
+        long cumulative = 0;
+        int b = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long upper = upperBoundOf(i);
+            while (b < bounds.length && upper > bounds[b]) {
+                output[b++] = cumulative;
+            }
+            cumulative += buckets.get(i);
+        }
+        while (b < bounds.length) {
+            output[b++] = cumulative;
+        }
+        return cumulative;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BITS;
+        return ((shift + 1) << SUB_BITS) + (int) ((value >>> shift) & (SUB_COUNT - 1));
+    }
+
+    static long lowerBoundOf(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        int shift = (index >>> SUB_BITS) - 1;
+        return ((long) (SUB_COUNT + (index & (SUB_COUNT - 1)))) << shift;
+    }
+
+    static long upperBoundOf(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        int shift = (index >>> SUB_BITS) - 1;
+        return lowerBoundOf(index) + (1L << shift) - 1;
+    }
+
+    public static class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return (count > 0) ? ((double) sum) / count : 0;
+        }
+
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile * count));
+            long cumulative = 0;
+            for (int i = 0; i < counts.length; i++) {
+                cumulative += counts[i];
+                if (cumulative >= rank) {
+                    return Math.min(max, (lowerBoundOf(i) + upperBoundOf(i)) / 2);
+                }
+            }
+            return max;
+        }
+
+        public long getCountAtOrBelow(long value) {
+            long cumulative = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (lowerBoundOf(i) > value) {
+                    break;
+                }
+                cumulative += counts[i];
+            }
+            return cumulative;
+        }
+
+        public Map<String, Object> toMap() {
+            OpflowObjectTree.Builder builder = OpflowObjectTree.buildMap()
+                    .put("count", count)
+                    .put("mean", OpflowMathUtil.round(getMean(), 1));
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                builder.put(PERCENTILE_LABELS[i], getValueAtPercentile(PERCENTILES[i]));
+            }
+            return builder.put("max", max).toMap();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.devebot.opflow.supports;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ *
+ * @author acegik
+ */
+public class OpflowPromWriter {
+    public final static String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    public final static String TYPE_COUNTER = "counter";
+    public final static String TYPE_GAUGE = "gauge";
+    public final static String TYPE_HISTOGRAM = "histogram";
+
+    private final static int CAPACITY_DEFAULT = 16384;
+    private final static byte[] DIGITS = "0123456789".getBytes();
+
+    /*
+     * The samples are encoded straight into a byte buffer that grows on demand and
+     * is kept between the scrapes, so that a steady scrape does not allocate.
+     */
+    private byte[] buffer;
+    private int size = 0;
+    private boolean labelOpened = false;
+
+    public OpflowPromWriter() {
+        this(CAPACITY_DEFAULT);
+    }
+
+    public OpflowPromWriter(int capacity) {
+        this.buffer = new byte[(capacity > 0) ? capacity : CAPACITY_DEFAULT];
+    }
+
+    public OpflowPromWriter reset() {
+        size = 0;
+        labelOpened = false;
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void writeTo(OutputStream output) throws IOException {
+        output.write(buffer, 0, size);
+    }
+
+    public OpflowPromWriter family(String name, String type, String help) {
+        if (help != null) {
+            ascii("# HELP ").ascii(name).put(' ').escape(help, false).put('\n');
+        }
+        return ascii("# TYPE ").ascii(name).put(' ').ascii(type).put('\n');
+    }
+
+    public OpflowPromWriter sample(String name) {
+        labelOpened = false;
+        return ascii(name);
+    }
+
+    public OpflowPromWriter sample(String name, String suffix) {
+        labelOpened = false;
+        return ascii(name).ascii(suffix);
+    }
+
+    public OpflowPromWriter label(String key, String value) {
+        // a null value leaves the label out of the sample
+        if (value == null) {
+            return this;
+        }
+        put(labelOpened ? ',' : '{');
+        labelOpened = true;
+        return ascii(key).put('=').put('"').escape(value, true).put('"');
+    }
+
+    public OpflowPromWriter label(String key, long value) {
+        put(labelOpened ? ',' : '{');
+        labelOpened = true;
+        return ascii(key).put('=').put('"').number(value).put('"');
+    }
+
+    public OpflowPromWriter value(long value) {
+        closeLabels();
+        return put(' ').number(value).put('\n');
+    }
+
+    public OpflowPromWriter value(double value) {
+        closeLabels();
+        put(' ');
+        if (Double.isNaN(value)) {
+            ascii("NaN");
+        } else if (Double.isInfinite(value)) {
+            ascii(value > 0 ? "+Inf" : "-Inf");
+        } else if (value == (long) value) {
+            number((long) value);
+        } else if (Math.abs(value) < 1e15) {
+            // fixed point with 6 fractional digits, the trailing zeros are trimmed
+            if (value < 0) {
+                put('-');
+                value = -value;
+            }
+            long scaled = Math.round(value * 1e6);
+            number(scaled / 1000000);
+            long fraction = scaled % 1000000;
+            if (fraction > 0) {
+                put('.');
+                int digits = 6;
+                while (fraction % 10 == 0) {
+                    fraction /= 10;
+                    digits--;
+                }
+                for (long d = pow10(digits - 1); d > 0; d /= 10) {
+                    put((char) DIGITS[(int) (fraction / d % 10)]);
+                }
+            }
+        } else {
+            ascii(Double.toString(value));
+        }
+        return put('\n');
+    }
+
+    private void closeLabels() {
+        if (labelOpened) {
+            put('}');
+            labelOpened = false;
+        }
+    }
+
+    private OpflowPromWriter number(long value) {
+        if (value == Long.MIN_VALUE) {
+            return ascii(Long.toString(value));
+        }
+        if (value < 0) {
+            put('-');
+            value = -value;
+        }
+        ensure(20);
+        int start = size;
+        do {
+            buffer[size++] = DIGITS[(int) (value % 10)];
+            value /= 10;
+        } while (value > 0);
+        // the digits have been written in the reversed order
+        for (int i = start, j = size - 1; i < j; i++, j--) {
+            byte tmp = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = tmp;
+        }
+        return this;
+    }
+
+    private OpflowPromWriter ascii(String text) {
+        int len = text.length();
+        ensure(len);
+        for (int i = 0; i < len; i++) {
+            buffer[size++] = (byte) text.charAt(i);
+        }
+        return this;
+    }
+
+    private OpflowPromWriter escape(String text, boolean quoted) {
+        if (text == null) {
+            return this;
+        }
+        int len = text.length();
+        for (int i = 0; i < len; i++) {
+            char c = text.charAt(i);
+            if (c == '\\') {
+                put('\\').put('\\');
+            } else if (c == '\n') {
+                put('\\').put('n');
+            } else if (c == '"' && quoted) {
+                put('\\').put('"');
+            } else if (c < 0x80) {
+                put(c);
+            } else if (c < 0x800) {
+                put((char) (0xC0 | (c >> 6)));
+                put((char) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, text.charAt(++i));
+                put((char) (0xF0 | (cp >> 18)));
+                put((char) (0x80 | ((cp >> 12) & 0x3F)));
+                put((char) (0x80 | ((cp >> 6) & 0x3F)));
+                put((char) (0x80 | (cp & 0x3F)));
+            } else {
+                put((char) (0xE0 | (c >> 12)));
+                put((char) (0x80 | ((c >> 6) & 0x3F)));
+                put((char) (0x80 | (c & 0x3F)));
+            }
+        }
+        return this;
+    }
+
+    private OpflowPromWriter put(char c) {
+        ensure(1);
+        buffer[size++] = (byte) c;
+        return this;
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, size + extra));
+        }
+    }
+
+    private static long pow10(int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= 10;
+        }
+        return result;
+    }
+}
@@ -1,7 +1,12 @@
 package com.devebot.opflow.supports;
 
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  *
@@ -18,8 +23,8 @@ public class OpflowRevolvingMap<K, V> {
     
     private final ChangeListener<K, V> changeListener;
     private final Object changeLock = new Object();
-    private final HashMap<K, OpflowCircularList.Node<V>> lookupTable = new HashMap<>();
-    private final OpflowCircularList<V> revolver = new OpflowCircularList<>();
+    private final AtomicInteger cursor = new AtomicInteger(0);
+    private volatile Snapshot<K, V> snapshot = new Snapshot<>(new LinkedHashMap<>());
     
     public OpflowRevolvingMap() {
         this(null);
@@ -30,71 +35,137 @@ public class OpflowRevolvingMap<K, V> {
     }
     
     public int size() {
-        return lookupTable.size();
+        return snapshot.values.length;
     }
     
     public Set<K> keySet() {
-        return lookupTable.keySet();
+        return snapshot.lookupTable.keySet();
+    }
+    
+    public List<V> values() {
+        return Collections.unmodifiableList(Arrays.asList(snapshot.values));
     }
     
     public V get(K key) {
-        if (lookupTable.containsKey(key)) {
-            OpflowCircularList.Node<V> node = lookupTable.get(key);
-            if (node != null) {
-                return node.getRef();
+        return snapshot.lookupTable.get(key);
+    }
+    
+    public void put(K key, V obj) {
+        synchronized (changeLock) {
+            LinkedHashMap<K, V> lookupTable = null;
+            if (snapshot.lookupTable.containsKey(key)) {
+                lookupTable = update(lookupTable, key, obj);
+            } else {
+                lookupTable = create(lookupTable, key, obj);
             }
+            commit(lookupTable);
         }
-        return null;
     }
     
-    public void put(K key, V obj) {
+    public void putAll(Map<K, V> objs) {
+        if (objs == null || objs.isEmpty()) {
+            return;
+        }
         synchronized (changeLock) {
-            if (lookupTable.containsKey(key)) {
-                OpflowCircularList.Node<V> node = lookupTable.get(key);
-                V oldObj = node.getRef();
-                if (changeListener != null) {
-                    node.setRef(changeListener.onUpdating(key, oldObj, obj));
+            LinkedHashMap<K, V> lookupTable = null;
+            for (Map.Entry<K, V> entry : objs.entrySet()) {
+                if (snapshot.lookupTable.containsKey(entry.getKey())) {
+                    lookupTable = update(lookupTable, entry.getKey(), entry.getValue());
                 } else {
-                    node.setRef(obj);
-                }
-            } else {
-                OpflowCircularList.Node<V> node = revolver.createNode(obj);
-                revolver.appendNode(node);
-                lookupTable.put(key, node);
-                if (changeListener != null) {
-                    changeListener.onCreating(key, obj);
+                    lookupTable = create(lookupTable, entry.getKey(), entry.getValue());
                 }
             }
+            commit(lookupTable);
+        }
+    }
+    
+    private LinkedHashMap<K, V> update(LinkedHashMap<K, V> lookupTable, K key, V obj) {
+        V oldObj = snapshot.lookupTable.get(key);
+        V newObj = (changeListener != null) ? changeListener.onUpdating(key, oldObj, obj) : obj;
+        // the listener may merge into the current object, then the snapshot stays as is
+        if (newObj == oldObj) {
+            return lookupTable;
+        }
+        if (lookupTable == null) {
+            lookupTable = new LinkedHashMap<>(snapshot.lookupTable);
+        }
+        lookupTable.put(key, newObj);
+        return lookupTable;
+    }
+    
+    private LinkedHashMap<K, V> create(LinkedHashMap<K, V> lookupTable, K key, V obj) {
+        if (lookupTable == null) {
+            lookupTable = new LinkedHashMap<>(snapshot.lookupTable);
+        }
+        lookupTable.put(key, obj);
+        if (changeListener != null) {
+            changeListener.onCreating(key, obj);
+        }
+        return lookupTable;
+    }
+    
+    private void commit(LinkedHashMap<K, V> lookupTable) {
+        if (lookupTable != null) {
+            snapshot = new Snapshot<>(lookupTable);
         }
     }
     
     public V remove(K key) {
         synchronized (changeLock) {
-            return _remove(key);
+            if (!snapshot.lookupTable.containsKey(key)) {
+                return null;
+            }
+            LinkedHashMap<K, V> lookupTable = new LinkedHashMap<>(snapshot.lookupTable);
+            V obj = lookupTable.remove(key);
+            snapshot = new Snapshot<>(lookupTable);
+            if (changeListener != null) {
+                changeListener.onDeleting(key, obj);
+            }
+            return obj;
         }
     }
     
     public void removeAll(Set<K> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return;
+        }
         synchronized (changeLock) {
+            LinkedHashMap<K, V> lookupTable = new LinkedHashMap<>(snapshot.lookupTable);
+            Map<K, V> removed = new LinkedHashMap<>();
             for (K key : keys) {
-                _remove(key);
+                if (lookupTable.containsKey(key)) {
+                    removed.put(key, lookupTable.remove(key));
+                }
+            }
+            if (removed.isEmpty()) {
+                return;
+            }
+            snapshot = new Snapshot<>(lookupTable);
+            if (changeListener != null) {
+                for (Map.Entry<K, V> entry : removed.entrySet()) {
+                    changeListener.onDeleting(entry.getKey(), entry.getValue());
+                }
             }
         }
     }
     
     public V rotate() {
-        return revolver.nextRef();
+        V[] values = snapshot.values;
+        if (values.length == 0) {
+            return null;
+        }
+        int pos = (cursor.getAndIncrement() & Integer.MAX_VALUE) % values.length;
+        return values[pos];
     }
     
-    private V _remove(K key) {
-        if (lookupTable.containsKey(key)) {
-            OpflowCircularList.Node<V> node = lookupTable.remove(key);
-            revolver.removeNode(node);
-            if (changeListener != null) {
-                changeListener.onDeleting(key, node.getRef());
-            }
-            return node.getRef();
+    private static class Snapshot<K, V> {
+        private final Map<K, V> lookupTable;
+        private final V[] values;
+
+        @SuppressWarnings("unchecked")
+        Snapshot(LinkedHashMap<K, V> lookupTable) {
+            this.lookupTable = Collections.unmodifiableMap(lookupTable);
+            this.values = (V[]) lookupTable.values().toArray();
         }
-        return null;
     }
 }
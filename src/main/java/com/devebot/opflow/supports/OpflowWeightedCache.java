@@ -0,0 +1,169 @@
+package com.devebot.opflow.supports;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ * @author acegik
+ */
+public class OpflowWeightedCache {
+    private final static long ENTRY_OVERHEAD = 64;
+
+    /*
+     * A CLOCK approximation of LRU: the lookups only read the concurrent map and mark
+     * the entry as referenced, the writers (serialized by the clock lock) give each
+     * referenced entry a second chance before it is evicted. An entry leaves the map
+     * through remove(key, entry) only, so that its weight is released exactly once.
+     */
+    private final long maxWeight;
+    private final boolean offHeap;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ArrayDeque<Entry> clock = new ArrayDeque<>();
+    private final AtomicLong totalWeight = new AtomicLong(0);
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    public OpflowWeightedCache(long maxWeight, boolean offHeap) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("maxWeight must be positive");
+        }
+        this.maxWeight = maxWeight;
+        this.offHeap = offHeap;
+    }
+
+    public String get(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiredAt <= System.currentTimeMillis()) {
+            release(entry);
+            entry = null;
+        }
+        if (entry == null) {
+            missCount.increment();
+            return null;
+        }
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        hitCount.increment();
+        return entry.getValue();
+    }
+
+    public void put(String key, String value, long ttl) {
+        if (key == null || value == null || ttl <= 0) {
+            return;
+        }
+        Entry entry = new Entry(key, value, offHeap, System.currentTimeMillis() + ttl);
+        entry.weight += 2l * key.length() + ENTRY_OVERHEAD;
+        if (entry.weight > maxWeight) {
+            return;
+        }
+        synchronized (clock) {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                totalWeight.addAndGet(-previous.weight);
+            }
+            totalWeight.addAndGet(entry.weight);
+            clock.addLast(entry);
+            while (totalWeight.get() > maxWeight && !clock.isEmpty()) {
+                Entry candidate = clock.pollFirst();
+                if (entries.get(candidate.key) != candidate) {
+                    continue;
+                }
+                if (candidate.referenced && candidate != entry) {
+                    candidate.referenced = false;
+                    clock.addLast(candidate);
+                    continue;
+                }
+                if (release(candidate)) {
+                    evictionCount.increment();
+                }
+            }
+            // the replaced and the expired entries linger in the clock until they are reached
+            if (clock.size() > 2 * entries.size() + 16) {
+                Iterator<Entry> iter = clock.iterator();
+                while (iter.hasNext()) {
+                    Entry item = iter.next();
+                    if (entries.get(item.key) != item) {
+                        iter.remove();
+                    }
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (clock) {
+            for (Entry entry : entries.values()) {
+                release(entry);
+            }
+            clock.clear();
+        }
+    }
+
+    public double getHitRatio() {
+        long hits = hitCount.sum();
+        long total = hits + missCount.sum();
+        return (total > 0) ? ((double) hits) / total : 0;
+    }
+
+    public Map<String, Object> toMap() {
+        return OpflowObjectTree.buildMap()
+                .put("size", entries.size())
+                .put("weight", totalWeight.get())
+                .put("maxWeight", maxWeight)
+                .put("offHeap", offHeap)
+                .put("hitCount", hitCount.sum())
+                .put("missCount", missCount.sum())
+                .put("evictionCount", evictionCount.sum())
+                .put("hitRatio", getHitRatio())
+                .toMap();
+    }
+
+    private boolean release(Entry entry) {
+        if (entries.remove(entry.key, entry)) {
+            totalWeight.addAndGet(-entry.weight);
+            return true;
+        }
+        return false;
+    }
+
+    private static class Entry {
+        private final String key;
+        private final String value;
+        private final ByteBuffer buffer;
+        private final long expiredAt;
+        private long weight;
+        private volatile boolean referenced = false;
+
+        Entry(String key, String value, boolean offHeap, long expiredAt) {
+            this.key = key;
+            if (offHeap) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                this.buffer = ByteBuffer.allocateDirect(bytes.length);
+                this.buffer.put(bytes).flip();
+                this.value = null;
+                this.weight = bytes.length;
+            } else {
+                this.buffer = null;
+                this.value = value;
+                this.weight = 2l * value.length();
+            }
+            this.expiredAt = expiredAt;
+        }
+
+        String getValue() {
+            if (buffer != null) {
+                return StandardCharsets.UTF_8.decode(buffer.duplicate()).toString();
+            }
+            return value;
+        }
+    }
+}